@@ -77,7 +77,9 @@ declare namespace Cordova {
             status: string,
             statusCode: string,
             tenantId: string,
-            userInfo: IUserInfo
+            userInfo: IUserInfo,
+            errorCode?: string,
+            errorDescription?: string
         }
 
         class AuthenticationResult implements IAuthenticationResult {
@@ -90,6 +92,8 @@ declare namespace Cordova {
             statusCode: string;
             tenantId: string;
             userInfo: IUserInfo;
+            errorCode?: string;
+            errorDescription?: string;
 
             /**
             * Creates authorization header for web requests.
@@ -103,6 +107,10 @@ declare namespace Cordova {
             then(doneCallBack: (context: IAuthenticationResult) => void, failCallBack?: (message: string) => void);
         }
 
+        interface IPromiseAuthenticationResults {
+            then(doneCallBack: (results: IAuthenticationResult[]) => void, failCallBack?: (message: string) => void);
+        }
+
         interface IAuthenticationContext {
             authority: string,
             validateAuthority: boolean,
@@ -133,10 +141,25 @@ declare namespace Cordova {
              * @param   {String}  resourceUrl Resource identifier
              * @param   {String}  clientId    Client (application) identifier
              * @param   {String}  userId      User identifier (optional)
+             * @param   {Number}  timeoutMs   Overall time budget of the call in milliseconds (optional)
              *
              * @returns {Promise} Promise either fulfilled with AuthenticationResult object or rejected with error
              */
-            acquireTokenSilentAsync(resourceUrl: string, clientId: string, userId: string): IPromiseAuthenticationResult;
+            acquireTokenSilentAsync(resourceUrl: string, clientId: string, userId: string, timeoutMs?: number): IPromiseAuthenticationResult;
+
+            /**
+             * Acquires tokens for several resources WITHOUT using interactive flow. Tokens found in the cache
+             * are returned as is, the missing ones are acquired together with the multi resource refresh token.
+             * This method guarantees that no UI will be shown to user.
+             *
+             * @param   {String[]} resourceUrls Resource identifiers
+             * @param   {String}   clientId     Client (application) identifier
+             * @param   {String}   userId       User identifier (optional)
+             *
+             * @returns {Promise} Promise either fulfilled with AuthenticationResult objects in the order of
+             *                    resourceUrls, or rejected with error
+             */
+            acquireTokensSilentAsync(resourceUrls: string[], clientId: string, userId: string): IPromiseAuthenticationResults;
 
             tokenCacheClear(): IPromise;
         }
@@ -171,10 +194,12 @@ declare namespace Cordova {
             *
             * @param   {String}   authority         Authority url to send code and token requests
             * @param   {Boolean}  validateAuthority Validate authority before sending token request. True by default
+            * @param   {Boolean}  preWarm           Open connections to the authority in background so that the first
+            *                                       token request finds them warm. False by default
             *
             * @returns {Promise}  Promise either fulfilled with newly created authentication context or rejected with error
             */
-            static createAsync(authority: string, validateAuthority?: boolean): IPromiseAuthenticationContext;
+            static createAsync(authority: string, validateAuthority?: boolean, preWarm?: boolean): IPromiseAuthenticationContext;
 
             /**
             * Acquires token using interactive flow if needed. It checks the cache to return existing result
@@ -201,10 +226,25 @@ declare namespace Cordova {
              * @param   {String}  resourceUrl Resource identifier
              * @param   {String}  clientId    Client (application) identifier
              * @param   {String}  userId      User identifier (optional)
+             * @param   {Number}  timeoutMs   Overall time budget of the call in milliseconds (optional)
              *
              * @returns {Promise} Promise either fulfilled with AuthenticationResult object or rejected with error
              */
-            acquireTokenSilentAsync(resourceUrl: string, clientId: string, userId: string): IPromiseAuthenticationResult;
+            acquireTokenSilentAsync(resourceUrl: string, clientId: string, userId: string, timeoutMs?: number): IPromiseAuthenticationResult;
+
+            /**
+             * Acquires tokens for several resources WITHOUT using interactive flow. Tokens found in the cache
+             * are returned as is, the missing ones are acquired together with the multi resource refresh token.
+             * This method guarantees that no UI will be shown to user.
+             *
+             * @param   {String[]} resourceUrls Resource identifiers
+             * @param   {String}   clientId     Client (application) identifier
+             * @param   {String}   userId       User identifier (optional)
+             *
+             * @returns {Promise} Promise either fulfilled with AuthenticationResult objects in the order of
+             *                    resourceUrls, or rejected with error
+             */
+            acquireTokensSilentAsync(resourceUrls: string[], clientId: string, userId: string): IPromiseAuthenticationResults;
 
             tokenCacheClear(): IPromise;
 
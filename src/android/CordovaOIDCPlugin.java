@@ -74,7 +74,8 @@ public class CordovaOIDCPlugin extends CordovaPlugin {
             String authority = args.getString(0);
             // AuthenticationContext constructor validates authority by default
             boolean validateAuthority = args.optBoolean(1, true);
-            return createAsync(authority);
+            boolean preWarm = args.optBoolean(2, false);
+            return createAsync(authority, preWarm);
 
         } else if (action.equals("acquireTokenAsync")) {
 
@@ -114,13 +115,38 @@ public class CordovaOIDCPlugin extends CordovaPlugin {
             // This is a workaround for Cordova bridge issue. When null us passed from JS side
             // it is being translated to "null" string
             final String userId = args.getString(4).equals("null") ? null : args.getString(4);
+            final long timeOutMillis = args.optLong(5, 0);
 
             cordova.getThreadPool().execute(new Runnable() {
                 @Override
                 public void run() {
                     acquireTokenSilentAsync(
                             authority,
-                            resourceUrl, clientId, userId);
+                            resourceUrl, clientId, userId, timeOutMillis);
+                }
+            });
+
+            return true;
+
+        } else if (action.equals("acquireTokensSilentAsync")) {
+
+            final String authority = args.getString(0);
+            final boolean validateAuthority = args.optBoolean(1, true);
+            final JSONArray resourceUrlArray = args.getJSONArray(2);
+            final String[] resourceUrls = new String[resourceUrlArray.length()];
+            for (int i = 0; i < resourceUrls.length; i++) {
+                resourceUrls[i] = resourceUrlArray.getString(i);
+            }
+            final String clientId = args.getString(3);
+
+            // This is a workaround for Cordova bridge issue. When null us passed from JS side
+            // it is being translated to "null" string
+            final String userId = args.getString(4).equals("null") ? null : args.getString(4);
+
+            cordova.getThreadPool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    acquireTokensSilentAsync(authority, resourceUrls, clientId, userId);
                 }
             });
 
@@ -165,12 +191,15 @@ public class CordovaOIDCPlugin extends CordovaPlugin {
         return false;
     }
 
-    private boolean createAsync(String authority) {
+    private boolean createAsync(String authority, boolean preWarm) {
 
         final String endpointFagment = "connect";
         final String responseType = "code";
         try {
-            getOrCreateContext(authority, endpointFagment, responseType);
+            AuthenticationContext authContext = getOrCreateContext(authority, endpointFagment, responseType);
+            if (preWarm) {
+                authContext.preWarmConnections();
+            }
         } catch (Exception e) {
             callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.ERROR, e.getMessage()));
             return true;
@@ -213,7 +242,8 @@ public class CordovaOIDCPlugin extends CordovaPlugin {
                 new DefaultAuthenticationCallback(callbackContext));
     }
 
-    private void acquireTokenSilentAsync(String authority, String resourceUrl, String clientId, String userId) {
+    private void acquireTokenSilentAsync(String authority, String resourceUrl, String clientId, String userId,
+                                         long timeOutMillis) {
 
         final AuthenticationContext authContext;
         final String endpointFagment = "connect";
@@ -242,7 +272,41 @@ public class CordovaOIDCPlugin extends CordovaPlugin {
             return;
         }
 
-        authContext.acquireTokenSilentAsync(resourceUrl, clientId, userId, new DefaultAuthenticationCallback(callbackContext));
+        authContext.acquireTokenSilentAsync(resourceUrl, clientId, userId, Math.max(timeOutMillis, 0),
+                new DefaultAuthenticationCallback(callbackContext));
+    }
+
+    private void acquireTokensSilentAsync(String authority, String[] resourceUrls, String clientId, String userId) {
+
+        final AuthenticationContext authContext;
+        final String endpointFagment = "connect";
+        final String responseType = "code";
+        try{
+            authContext = getOrCreateContext(authority, endpointFagment, responseType);
+        } catch (Exception e) {
+            callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.ERROR, e.getMessage()));
+            return;
+        }
+
+        final CallbackContext batchCallbackContext = callbackContext;
+        authContext.acquireTokensSilentAsync(resourceUrls, clientId, userId,
+                new AuthenticationCallback<AuthenticationResult[]>() {
+                    @Override
+                    public void onSuccess(AuthenticationResult[] authResults) {
+                        try {
+                            batchCallbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK,
+                                    SimpleSerialization.authenticationResultsToJSON(authResults)));
+                        } catch (JSONException e) {
+                            batchCallbackContext.sendPluginResult(new PluginResult(PluginResult.Status.JSON_EXCEPTION,
+                                    "Failed to serialize Authentication results"));
+                        }
+                    }
+
+                    @Override
+                    public void onError(Exception authException) {
+                        new DefaultAuthenticationCallback(batchCallbackContext).onError(authException);
+                    }
+                });
     }
 
     private boolean readTokenCacheItems(String authority) throws JSONException {
@@ -7,6 +7,7 @@
 
 package com.cordova.plugin.oidc;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -70,6 +71,28 @@ class SimpleSerialization {
         return authResult;
     }
 
+    /**
+     * Convert AuthenticationResult array to JSON representation, keeping the order of the
+     * results. Failed results carry their errorCode and errorDescription
+     * @param authenticationResults AuthenticationResult array
+     * @return JSONArray of AuthenticationResult structures
+     * @throws JSONException
+     */
+    static JSONArray authenticationResultsToJSON(AuthenticationResult[] authenticationResults) throws JSONException {
+        JSONArray results = new JSONArray();
+
+        for (AuthenticationResult authenticationResult : authenticationResults) {
+            JSONObject authResult = authenticationResultToJSON(authenticationResult);
+            if (authenticationResult.getStatus() == AuthenticationResult.AuthenticationStatus.Failed) {
+                authResult.put("errorCode", authenticationResult.getErrorCode());
+                authResult.put("errorDescription", authenticationResult.getErrorDescription());
+            }
+            results.put(authResult);
+        }
+
+        return results;
+    }
+
     /**
      * Convert TokenCacheItem object to JSON representation. Nested userInfo field is being
      * serialized as well. In case if userInfo field is not exists in input object it will
@@ -113,23 +113,20 @@ final class APIEvent extends DefaultEvent {
         Telemetry.getInstance().flush(getTelemetryRequestId());
     }
 
-    void setIdToken(final String rawIdToken) {
-        if (StringExtensions.isNullOrBlank(rawIdToken)) {
-            return;
-        }
-
-        final IdToken idToken;
-        try {
-            idToken = new IdToken(rawIdToken);
-        } catch (AuthenticationException ae) {
+    /**
+     * Record the identity provider, tenant and user of the result. The claims are read from the
+     * result so that the id token is decoded at most once per result.
+     */
+    void setAuthenticationResult(final AuthenticationResult result) {
+        final UserInfo userInfo = result == null ? null : result.getUserInfo();
+        if (userInfo == null) {
             return;
         }
 
-        final UserInfo userInfo = new UserInfo(idToken);
-        setProperty(EventStrings.IDP_NAME, idToken.getIdentityProvider());
+        setProperty(EventStrings.IDP_NAME, userInfo.getIdentityProvider());
 
         try {
-            setProperty(EventStrings.TENANT_ID, StringExtensions.createHash(idToken.getTenantId()));
+            setProperty(EventStrings.TENANT_ID, StringExtensions.createHash(result.getTenantId()));
             setProperty(EventStrings.USER_ID, StringExtensions.createHash(userInfo.getDisplayableId()));
         } catch (UnsupportedEncodingException | NoSuchAlgorithmException e) {
             Logger.i(TAG, "Skipping TENANT_ID and USER_ID", "");
@@ -25,6 +25,7 @@ package com.cordova.plugin.oidc;
 
 import com.google.gson.Gson;
 
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -32,6 +33,10 @@ import java.util.UUID;
  */
 abstract class AbstractMetadataRequestor<MetadataType, MetadataRequestOptions> {
 
+    private static final String HEADER_ETAG = "ETag";
+
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
     /**
      * Used to handle network requests.
      */
@@ -39,6 +44,14 @@ abstract class AbstractMetadataRequestor<MetadataType, MetadataRequestOptions> {
 
     private UUID mCorrelationId;
 
+    private long mDeadlineMillis = 0;
+
+    private String mETag;
+
+    private long mMaxAgeMillis = -1;
+
+    private boolean mNoStore;
+
     /**
      * Response parser.
      */
@@ -59,6 +72,65 @@ abstract class AbstractMetadataRequestor<MetadataType, MetadataRequestOptions> {
         return mCorrelationId;
     }
 
+    /**
+     * Set the deadline for the metadata requests.
+     *
+     * @param deadlineMillis Time in milliseconds since epoch, 0 if there is no deadline.
+     */
+    final void setDeadline(final long deadlineMillis) {
+        mDeadlineMillis = deadlineMillis;
+    }
+
+    final long getDeadline() {
+        return mDeadlineMillis;
+    }
+
+    /**
+     * Send the request conditionally, the server answers 304 if the metadata did not change.
+     *
+     * @param eTag Entity tag of the cached metadata.
+     */
+    final void setETag(final String eTag) {
+        mETag = eTag;
+    }
+
+    /**
+     * @return Entity tag of the last response, or the one that was set if the response has none.
+     */
+    final String getETag() {
+        return mETag;
+    }
+
+    /**
+     * @return Freshness lifetime given by Cache-Control of the last response, -1 if it has none.
+     */
+    final long getMaxAgeMillis() {
+        return mMaxAgeMillis;
+    }
+
+    /**
+     * @return true if Cache-Control of the last response forbids storing the metadata.
+     */
+    final boolean isNoStore() {
+        return mNoStore;
+    }
+
+    final void addConditionalHeaders(final Map<String, String> headers) {
+        if (!StringExtensions.isNullOrBlank(mETag)) {
+            headers.put(HEADER_IF_NONE_MATCH, mETag);
+        }
+    }
+
+    final void readCacheHeaders(final HttpWebResponse response) {
+        final String eTag = response.getResponseHeader(HEADER_ETAG);
+        if (!StringExtensions.isNullOrBlank(eTag)) {
+            mETag = eTag;
+        }
+
+        mMaxAgeMillis = response.getCacheMaxAgeMillis();
+        mNoStore = response.isNoStore();
+    }
+
     /**
      * Gets the thread-safe lazy-initialized parser for JSON.
      *
@@ -28,8 +28,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ResolveInfo;
 
-import java.io.IOException;
-
 /**
  * Internal class handling the detailed acquire token interactive logic. Will be responsible for showing the webview,
  * auth code acquisition, token acquisition.
@@ -83,26 +81,38 @@ final class AcquireTokenInteractiveRequest {
     /**
      *
      * @param url Url containing the auth code.
-     * @return {@link AuthenticationResult} for acquire token request with grant_type as code.
-     * @throws AuthenticationException
+     * @param callback {@link Callback} with the {@link AuthenticationResult} for acquire token request with
+     *                 grant_type as code, invoked on the thread completing the request.
      */
-    AuthenticationResult acquireTokenWithAuthCode(final String url) throws AuthenticationException {
+    void acquireTokenWithAuthCode(final String url, final Callback<AuthenticationResult> callback) {
         Logger.v(TAG, "Start token acquisition with auth code.", mAuthRequest.getLogInfo(), null);
 
         final Oauth2 oauthRequest = new Oauth2(mAuthRequest, new WebRequestHandler());
-        final AuthenticationResult result;
-        try {
-            result = oauthRequest.getToken(url);
-            Logger.v(TAG, "OnActivityResult processed the result. "
-                    + mAuthRequest.getLogInfo());
-        } catch (final IOException | AuthenticationException exc) {
-            final String msg = "Error in processing code to get token. "
-                    + mAuthRequest.getLogInfo() + getCorrelationInfo();
-            throw new AuthenticationException(
-				OIDCError.AUTHORIZATION_CODE_NOT_EXCHANGED_FOR_TOKEN,
-                    msg, exc);
-        }
+        oauthRequest.getTokenAsync(url, new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult result) {
+                Logger.v(TAG, "OnActivityResult processed the result. "
+                        + mAuthRequest.getLogInfo());
+                try {
+                    callback.onSuccess(processTokenResult(result));
+                } catch (final AuthenticationException e) {
+                    callback.onError(e);
+                }
+            }
 
+            @Override
+            public void onError(final Throwable throwable) {
+                final String msg = "Error in processing code to get token. "
+                        + mAuthRequest.getLogInfo() + getCorrelationInfo();
+                callback.onError(new AuthenticationException(
+                        OIDCError.AUTHORIZATION_CODE_NOT_EXCHANGED_FOR_TOKEN,
+                        msg, throwable));
+            }
+        });
+    }
+
+    private AuthenticationResult processTokenResult(final AuthenticationResult result)
+            throws AuthenticationException {
         if (result == null) {
             Logger.e(TAG, "Returned result with exchanging auth code for token is null", getCorrelationInfo(),
 				OIDCError.AUTHORIZATION_CODE_NOT_EXCHANGED_FOR_TOKEN);
@@ -35,10 +35,13 @@ import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Internal class for handling acquireToken logic, including the silent flow and interactive flow.
@@ -92,7 +95,8 @@ class AcquireTokenRequest {
      */
     void acquireToken(final IWindowComponent activity, final boolean useDialog, final AuthenticationRequest authRequest,
                       final AuthenticationCallback<AuthenticationResult> authenticationCallback) {
-        final CallbackHandler callbackHandle = new CallbackHandler(getHandler(), authenticationCallback);
+        final CallbackHandler<AuthenticationResult> callbackHandle = new CallbackHandler<>(getHandler(),
+                authenticationCallback);
         // Executes all the calls inside the Runnable to return immediately to
         // user. All UI
         // related actions will be performed using Handler.
@@ -107,16 +111,22 @@ class AcquireTokenRequest {
                     validateAcquireTokenRequest(authRequest);
                     performAcquireTokenRequest(callbackHandle, activity, useDialog, authRequest);
                 } catch (final AuthenticationException authenticationException) {
-                    mAPIEvent.setWasApiCallSuccessful(false, authenticationException);
-                    mAPIEvent.setCorrelationId(authRequest.getCorrelationId().toString());
-                    mAPIEvent.stopTelemetryAndFlush();
-
-                    callbackHandle.onError(authenticationException);
+                    onAcquireTokenError(callbackHandle, authRequest, authenticationException);
                 }
             }
         });
     }
 
+    private void onAcquireTokenError(final CallbackHandler<AuthenticationResult> callbackHandle,
+                                     final AuthenticationRequest authRequest,
+                                     final AuthenticationException authenticationException) {
+        mAPIEvent.setWasApiCallSuccessful(false, authenticationException);
+        mAPIEvent.setCorrelationId(authRequest.getCorrelationId().toString());
+        mAPIEvent.stopTelemetryAndFlush();
+
+        callbackHandle.onError(authenticationException);
+    }
+
     /**
      * Developer is using refresh token call to do refresh without cache usage.
      * App context or activity is not needed. Async requests are created, so this
@@ -127,7 +137,7 @@ class AcquireTokenRequest {
         Logger.setCorrelationId(authenticationRequest.getCorrelationId());
         Logger.v(TAG, "Refresh token without cache");
 
-        final CallbackHandler callbackHandle = new CallbackHandler(getHandler(), externalCallback);
+        final CallbackHandler<AuthenticationResult> callbackHandle = new CallbackHandler<>(getHandler(), externalCallback);
 
         // Execute all the calls inside Runnable to return immediately. All UI
         // related actions will be performed using Handler.
@@ -137,25 +147,232 @@ class AcquireTokenRequest {
                 try {
                     // validate acquire token call first.
                     validateAcquireTokenRequest(authenticationRequest);
+                } catch (final AuthenticationException authenticationException) {
+                    onAcquireTokenError(callbackHandle, authenticationRequest, authenticationException);
+                    return;
+                }
+
+                // The request thread is released while the refresh token is redeemed
+                final AcquireTokenSilentHandler acquireTokenSilentHandler = new AcquireTokenSilentHandler(mContext,
+                        authenticationRequest, mTokenCacheAccessor);
+                acquireTokenSilentHandler.acquireTokenWithRefreshToken(refreshToken,
+                        new Callback<AuthenticationResult>() {
+                    @Override
+                    public void onSuccess(final AuthenticationResult authResult) {
+                        mAPIEvent.setWasApiCallSuccessful(true, null);
+                        mAPIEvent.setAuthenticationResult(authResult);
+                        callbackHandle.onSuccess(authResult);
+                        mAPIEvent.setCorrelationId(authenticationRequest.getCorrelationId().toString());
+                        mAPIEvent.stopTelemetryAndFlush();
+                    }
+
+                    @Override
+                    public void onError(final Throwable throwable) {
+                        onAcquireTokenError(callbackHandle, authenticationRequest,
+                                toAuthenticationException(throwable));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Silently acquire tokens for several resources of the same client id and user. Access tokens
+     * found in the cache are returned as is, the missing ones are redeemed concurrently with the
+     * shared MRRT, at most {@link AuthenticationSettings#getBatchTokenParallelism()} at a time, and
+     * the returned tokens are written back to the cache in a single batch. Results are in the order
+     * of the resources, a resource that cannot be acquired gets a failed {@link AuthenticationResult}.
+     */
+    void acquireTokensSilent(final String[] resources, final AuthenticationRequest authRequest,
+                             final AuthenticationCallback<AuthenticationResult[]> authenticationCallback) {
+        final CallbackHandler<AuthenticationResult[]> callbackHandle = new CallbackHandler<>(getHandler(),
+                authenticationCallback);
+        Logger.setCorrelationId(authRequest.getCorrelationId());
+        Logger.v(TAG, "Sending async batch task from thread:" + android.os.Process.myTid());
+        THREAD_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    validateAcquireTokenRequest(authRequest);
+                    performAcquireTokensSilent(resources, authRequest, new Callback<AuthenticationResult[]>() {
+                        @Override
+                        public void onSuccess(final AuthenticationResult[] results) {
+                            mAPIEvent.setWasApiCallSuccessful(true, null);
+                            callbackHandle.onSuccess(results);
+                            mAPIEvent.setCorrelationId(authRequest.getCorrelationId().toString());
+                            mAPIEvent.stopTelemetryAndFlush();
+                        }
 
-                    final AcquireTokenSilentHandler acquireTokenSilentHandler = new AcquireTokenSilentHandler(mContext,
-                            authenticationRequest, mTokenCacheAccessor);
-                    final AuthenticationResult authResult
-                            = acquireTokenSilentHandler.acquireTokenWithRefreshToken(refreshToken);
-                    mAPIEvent.setWasApiCallSuccessful(true, null);
-                    mAPIEvent.setIdToken(authResult.getIdToken());
-                    callbackHandle.onSuccess(authResult);
+                        @Override
+                        public void onError(final Throwable throwable) {
+                            final AuthenticationException authenticationException
+                                    = toAuthenticationException(throwable);
+                            mAPIEvent.setWasApiCallSuccessful(false, authenticationException);
+                            callbackHandle.onError(authenticationException);
+                            mAPIEvent.setCorrelationId(authRequest.getCorrelationId().toString());
+                            mAPIEvent.stopTelemetryAndFlush();
+                        }
+                    });
                 } catch (final AuthenticationException authenticationException) {
                     mAPIEvent.setWasApiCallSuccessful(false, authenticationException);
                     callbackHandle.onError(authenticationException);
-                } finally {
-                    mAPIEvent.setCorrelationId(authenticationRequest.getCorrelationId().toString());
+                    mAPIEvent.setCorrelationId(authRequest.getCorrelationId().toString());
                     mAPIEvent.stopTelemetryAndFlush();
                 }
             }
         });
     }
 
+    private void performAcquireTokensSilent(final String[] resources, final AuthenticationRequest authRequest,
+                                            final Callback<AuthenticationResult[]> callback)
+            throws AuthenticationException {
+        if (mTokenCacheAccessor == null) {
+            throw new AuthenticationException(OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED,
+                    "Token cache is not available for batch request");
+        }
+
+        final AuthenticationResult[] results = new AuthenticationResult[resources.length];
+        final String user = authRequest.getUserFromRequest();
+        final List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < resources.length; i++) {
+            final TokenCacheItem accessTokenItem = mTokenCacheAccessor.getATFromCache(resources[i],
+                    authRequest.getClientId(), user);
+            if (accessTokenItem != null) {
+                results[i] = AuthenticationResult.createResult(accessTokenItem);
+            } else {
+                missing.add(i);
+            }
+        }
+
+        Logger.v(TAG, "Batch request found " + (resources.length - missing.size()) + " of "
+                + resources.length + " access tokens in cache.");
+        if (missing.isEmpty()) {
+            callback.onSuccess(results);
+            return;
+        }
+
+        new BatchRequest(authRequest, resources, results, missing, callback).start();
+    }
+
+    /**
+     * Runs the silent lookup of every resource missing from the cache, the same cache, negative result and
+     * RT, MRRT and FRT lookup as a single silent request. At most the configured batch parallelism are in
+     * flight, and none of them holds a thread while its redemption is pending.
+     */
+    private final class BatchRequest {
+        private final AuthenticationRequest mAuthRequest;
+        private final String[] mResources;
+        private final AuthenticationResult[] mResults;
+        private final List<Integer> mMissing;
+        private final Callback<AuthenticationResult[]> mCallback;
+        private final int mParallelism;
+        private final AtomicInteger mRemaining;
+        private final AtomicInteger mInFlight = new AtomicInteger();
+        private final AtomicInteger mFillRequests = new AtomicInteger();
+        private int mNext;
+
+        BatchRequest(final AuthenticationRequest authRequest, final String[] resources,
+                     final AuthenticationResult[] results, final List<Integer> missing,
+                     final Callback<AuthenticationResult[]> callback) {
+            mAuthRequest = authRequest;
+            mResources = resources;
+            mResults = results;
+            mMissing = missing;
+            mCallback = callback;
+            mParallelism = Math.min(AuthenticationSettings.INSTANCE.getBatchTokenParallelism(), missing.size());
+            mRemaining = new AtomicInteger(missing.size());
+        }
+
+        void start() {
+            mTokenCacheAccessor.beginBatchWrite();
+            fill();
+        }
+
+        /**
+         * Starts lookups until the window is full. Lookups completing while it runs, cache hits included, only
+         * ask for another pass, so the stack does not grow with the number of resources.
+         */
+        private void fill() {
+            if (mFillRequests.getAndIncrement() != 0) {
+                return;
+            }
+
+            do {
+                while (mNext < mMissing.size() && mInFlight.get() < mParallelism) {
+                    mInFlight.incrementAndGet();
+                    startLookup(mMissing.get(mNext++));
+                }
+            } while (mFillRequests.decrementAndGet() != 0);
+        }
+
+        private void startLookup(final int index) {
+            acquireTokenSilentForResource(mAuthRequest, mResources[index], new Callback<AuthenticationResult>() {
+                @Override
+                public void onSuccess(final AuthenticationResult result) {
+                    complete(index, result);
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                    complete(index, createErrorResult(throwable));
+                }
+            });
+        }
+
+        private void complete(final int index, final AuthenticationResult result) {
+            mResults[index] = result;
+            mInFlight.decrementAndGet();
+            if (mRemaining.decrementAndGet() == 0) {
+                mTokenCacheAccessor.commitBatchWrite();
+                mCallback.onSuccess(mResults);
+                return;
+            }
+
+            fill();
+        }
+    }
+
+    private void acquireTokenSilentForResource(final AuthenticationRequest authRequest, final String resource,
+                                               final Callback<AuthenticationResult> callback) {
+        new AcquireTokenSilentHandler(mContext, createResourceRequest(authRequest, resource), mTokenCacheAccessor)
+                .getAccessToken(new Callback<AuthenticationResult>() {
+                    @Override
+                    public void onSuccess(final AuthenticationResult result) {
+                        callback.onSuccess(result != null ? result : new AuthenticationResult(
+                                OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED.name(),
+                                "No refresh token found for resource " + resource, null));
+                    }
+
+                    @Override
+                    public void onError(final Throwable throwable) {
+                        callback.onSuccess(createErrorResult(throwable));
+                    }
+                });
+    }
+
+    private static AuthenticationResult createErrorResult(final Throwable throwable) {
+        final AuthenticationException exception = toAuthenticationException(throwable);
+        final OIDCError code = exception.getCode() == null ? OIDCError.AUTH_FAILED_NO_TOKEN : exception.getCode();
+        return new AuthenticationResult(code.name(), ExceptionExtensions.getExceptionMessage(exception), null);
+    }
+
+    /**
+     * Copy of the batch request for one of its resources.
+     */
+    private static AuthenticationRequest createResourceRequest(final AuthenticationRequest authRequest,
+                                                               final String resource) {
+        final AuthenticationRequest request = new AuthenticationRequest(authRequest.getAuthority(), resource,
+                authRequest.getClientId(), authRequest.getUserId(), authRequest.getCorrelationId(),
+                authRequest.getIsExtendedLifetimeEnabled(), authRequest.getEndpointFragment(),
+                authRequest.getResponseType());
+        request.setUserIdentifierType(authRequest.getUserIdentifierType());
+        request.setSilent(true);
+        request.setPrompt(PromptBehavior.Auto);
+        request.setDeadlineMillis(authRequest.getDeadlineMillis());
+        request.setTelemetryRequestId(authRequest.getTelemetryRequestId());
+        return request;
+    }
+
     private void validateAcquireTokenRequest(final AuthenticationRequest authenticationRequest)
             throws AuthenticationException {
         final URL authorityUrl = StringExtensions.getUrl(authenticationRequest.getAuthority());
@@ -212,32 +429,83 @@ class AcquireTokenRequest {
      * If silent request fails and no prompt is allowed, we'll return the exception back via callback.
      * If silent request fails and prompt is allowed, we'll prompt the user and launch webview.
      */
-    private void performAcquireTokenRequest(final CallbackHandler callbackHandle,
+    private void performAcquireTokenRequest(final CallbackHandler<AuthenticationResult> callbackHandle,
                                             final IWindowComponent activity,
                                             final boolean useDialog,
                                             final AuthenticationRequest authenticationRequest)
             throws AuthenticationException {
 
-        // tryAcquireTokenSilent will:
-        // 1) throw AuthenticationException if
-        //    a) No access token is returned from local flow and no prompt is allowed
-        //    b) Server error or network errors when sending post request to token endpoint with grant_type
-        //       as refresh_token in local flow
-        //    c) Broker returns ERROR_CODE_BAD_ARGUMENTS, ACCOUNT_MANAGER_ERROR_CODE_BAD_AUTHENTICATION
-        //       or ERROR_CODE_UNSUPPORTED_OPERATION
-        // 2) Non-null AuthenticationResult if we could try silent request, and silent request either successfully
-        //    return the token back or returns the AuthenticationResult containing oauth error
-        // 3) Null AuthenticationResult if
-        //    a) we cannot try silent request
-        //    b) silent request returns a null result. Broker will return a null result if 1) no matching account in
-        //       broker 2) broker doesn't return any token back.
-        final AuthenticationResult authenticationResultFromSilentRequest = tryAcquireTokenSilent(authenticationRequest);
-        if (isAccessTokenReturned(authenticationResultFromSilentRequest)) {
+        if (!shouldTrySilentFlow(authenticationRequest)) {
+            Logger.d(TAG, "Trying to acquire token interactively.");
+            acquireTokenInteractiveFlow(callbackHandle, activity, useDialog, authenticationRequest);
+            return;
+        }
+
+        // The local lookup, and the refresh token redemption it may send, do not hold the request thread. Only
+        // the broker and interactive steps run back on it once the local flow completes.
+        Logger.v(TAG, "Try to acquire token silently, return valid AT or use RT in the cache.");
+        tryAcquireTokenSilentLocally(authenticationRequest, new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult localResult) {
+                THREAD_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            completeAcquireTokenRequest(callbackHandle, activity, useDialog, authenticationRequest,
+                                    acquireTokenSilentFlow(authenticationRequest, localResult));
+                        } catch (final AuthenticationException authenticationException) {
+                            onAcquireTokenError(callbackHandle, authenticationRequest, authenticationException);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                onAcquireTokenError(callbackHandle, authenticationRequest, toAuthenticationException(throwable));
+            }
+        });
+    }
+
+    /**
+     * Completes the request with the result of the silent flow, which is:
+     * 1) Non-null AuthenticationResult if silent request either successfully return the token back or returns the
+     *    AuthenticationResult containing oauth error
+     * 2) Null AuthenticationResult if silent request returns a null result. Broker will return a null result if
+     *    1) no matching account in broker 2) broker doesn't return any token back.
+     * If no access token is returned and no prompt is allowed, throws AuthenticationException.
+     */
+    private void completeAcquireTokenRequest(final CallbackHandler<AuthenticationResult> callbackHandle,
+                                             final IWindowComponent activity,
+                                             final boolean useDialog,
+                                             final AuthenticationRequest authenticationRequest,
+                                             final AuthenticationResult authenticationResult)
+            throws AuthenticationException {
+        final boolean isAccessTokenReturned = isAccessTokenReturned(authenticationResult);
+        // Silent request, if token not returned, return AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED back
+        // to developer.
+        if (!isAccessTokenReturned && authenticationRequest.isSilent()) {
+            // TODO: investigate which server response actually should force user to sign in again
+            // and which error actually should just notify user that some resource require extra steps
+
+            final String errorInfo = authenticationResult == null
+                    ? "No result returned from acquireTokenSilent" : authenticationResult.getErrorLogInfo();
+            // User does not want to launch activity
+            Logger.e(TAG, "Prompt is not allowed and failed to get token:", authenticationRequest.getLogInfo()
+                            + " " + errorInfo,
+                    OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED);
+            throw new AuthenticationException(
+				OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED, authenticationRequest.getLogInfo()
+                    + " " + errorInfo);
+        }
+
+        if (isAccessTokenReturned) {
+            Logger.v(TAG, "Token is successfully returned from silent flow. ");
             mAPIEvent.setWasApiCallSuccessful(true, null);
             mAPIEvent.setCorrelationId(authenticationRequest.getCorrelationId().toString());
-            mAPIEvent.setIdToken(authenticationResultFromSilentRequest.getIdToken());
+            mAPIEvent.setAuthenticationResult(authenticationResult);
             mAPIEvent.stopTelemetryAndFlush();
-            callbackHandle.onSuccess(authenticationResultFromSilentRequest);
+            callbackHandle.onSuccess(authenticationResult);
             return;
         }
 
@@ -245,41 +513,14 @@ class AcquireTokenRequest {
         acquireTokenInteractiveFlow(callbackHandle, activity, useDialog, authenticationRequest);
     }
 
-    private AuthenticationResult tryAcquireTokenSilent(final AuthenticationRequest authenticationRequest)
-            throws AuthenticationException {
-        AuthenticationResult authenticationResult = null;
-
-        if (shouldTrySilentFlow(authenticationRequest)) {
-            Logger.v(TAG, "Try to acquire token silently, return valid AT or use RT in the cache.");
-            authenticationResult = acquireTokenSilentFlow(authenticationRequest);
-
-            final boolean isAccessTokenReturned = isAccessTokenReturned(authenticationResult);
-            // Silent request, if token not returned, return AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED back
-            // to developer.
-            if (!isAccessTokenReturned && authenticationRequest.isSilent()) {
-                // TODO: investigate which server response actually should force user to sign in again
-                // and which error actually should just notify user that some resource require extra steps
-
-                final String errorInfo = authenticationResult == null
-                        ? "No result returned from acquireTokenSilent" : authenticationResult.getErrorLogInfo();
-                // User does not want to launch activity
-                Logger.e(TAG, "Prompt is not allowed and failed to get token:", authenticationRequest.getLogInfo()
-                                + " " + errorInfo,
-                        OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED);
-                throw new AuthenticationException(
-					OIDCError.AUTH_REFRESH_FAILED_PROMPT_NOT_ALLOWED, authenticationRequest.getLogInfo()
-                        + " " + errorInfo);
-            }
-
-            if (isAccessTokenReturned) {
-                Logger.v(TAG, "Token is successfully returned from silent flow. ");
-            }
+    private static AuthenticationException toAuthenticationException(final Throwable throwable) {
+        if (throwable instanceof AuthenticationException) {
+            return (AuthenticationException) throwable;
         }
 
-        return authenticationResult;
+        return new AuthenticationException(OIDCError.AUTH_FAILED_NO_TOKEN, throwable.getMessage(), throwable);
     }
 
-
     private boolean shouldTrySilentFlow(final AuthenticationRequest authenticationRequest) {
         return !Utility.isClaimsChallengePresent(authenticationRequest)
                 && authenticationRequest.getPrompt() == PromptBehavior.Auto
@@ -291,11 +532,11 @@ class AcquireTokenRequest {
      * AT in local cache is already expired, will try RT in the local cache. If RT requst failed, and if we can switch
      * to broker for auth, will switch to broker for authentication.
      */
-    private AuthenticationResult acquireTokenSilentFlow(final AuthenticationRequest authenticationRequest)
+    private AuthenticationResult acquireTokenSilentFlow(final AuthenticationRequest authenticationRequest,
+                                                        final AuthenticationResult authResult)
             throws AuthenticationException {
 
-        // Always try with local cache first.
-        final AuthenticationResult authResult = tryAcquireTokenSilentLocally(authenticationRequest);
+        // Local cache is always tried first.
         if (isAccessTokenReturned(authResult)) {
             return authResult;
         }
@@ -325,13 +566,13 @@ class AcquireTokenRequest {
     /**
      * Try acquire token silent locally.
      */
-    private AuthenticationResult tryAcquireTokenSilentLocally(final AuthenticationRequest authenticationRequest)
-            throws AuthenticationException {
+    private void tryAcquireTokenSilentLocally(final AuthenticationRequest authenticationRequest,
+                                              final Callback<AuthenticationResult> callback) {
         Logger.v(TAG, "Try to silently get token from local cache.");
         final AcquireTokenSilentHandler acquireTokenSilentHandler = new AcquireTokenSilentHandler(mContext,
                 authenticationRequest, mTokenCacheAccessor);
 
-        return acquireTokenSilentHandler.getAccessToken();
+        acquireTokenSilentHandler.getAccessToken(callback);
     }
 
     /**
@@ -386,7 +627,7 @@ class AcquireTokenRequest {
      * Handles the acquire token interactive flow. If we can switch to broker, will always launch webview via broker.
      * If we cannot switch to broker, will launch webview locally.
      */
-    private void acquireTokenInteractiveFlow(final CallbackHandler callbackHandle,
+    private void acquireTokenInteractiveFlow(final CallbackHandler<AuthenticationResult> callbackHandle,
                                              final IWindowComponent activity,
                                              final boolean useDialog,
                                              final AuthenticationRequest authenticationRequest)
@@ -612,7 +853,7 @@ class AcquireTokenRequest {
                     } else {
                         // Browser has the url and it will exchange auth code
                         // for token
-                        final CallbackHandler callbackHandle = new CallbackHandler(getHandler(),
+                        final CallbackHandler<AuthenticationResult> callbackHandle = new CallbackHandler<>(getHandler(),
                                 waitingRequest.getDelegate());
 
                         // Executes all the calls inside the Runnable to return
@@ -623,38 +864,45 @@ class AcquireTokenRequest {
 
                             @Override
                             public void run() {
-                                try {
-                                    final AcquireTokenInteractiveRequest acquireTokenInteractiveRequest
-                                            = new AcquireTokenInteractiveRequest(mContext, waitingRequest.getRequest(),
-                                            mTokenCacheAccessor);
-                                    final AuthenticationResult authenticationResult
-                                            = acquireTokenInteractiveRequest.acquireTokenWithAuthCode(endingUrl);
-
-                                    waitingRequest.getAPIEvent().setWasApiCallSuccessful(true, null);
-                                    waitingRequest.getAPIEvent().setCorrelationId(
-                                            waitingRequest.getRequest().getCorrelationId().toString());
-                                    waitingRequest.getAPIEvent().setIdToken(authenticationResult.getIdToken());
-                                    waitingRequest.getAPIEvent().stopTelemetryAndFlush();
-
-                                    if (waitingRequest.getDelegate() != null) {
-                                        Logger.v(TAG, "Sending result to callback. "
-                                                + waitingRequest.getRequest().getLogInfo());
-                                        callbackHandle.onSuccess(authenticationResult);
-                                    }
-                                } catch (final AuthenticationException authenticationException) {
-                                    final StringBuilder message
-                                            = new StringBuilder(authenticationException.getMessage());
-                                    if (authenticationException.getCause() != null) {
-                                        message.append(authenticationException.getCause().getMessage());
+                                final AcquireTokenInteractiveRequest acquireTokenInteractiveRequest
+                                        = new AcquireTokenInteractiveRequest(mContext, waitingRequest.getRequest(),
+                                        mTokenCacheAccessor);
+                                // The code is redeemed without holding the request thread
+                                acquireTokenInteractiveRequest.acquireTokenWithAuthCode(endingUrl,
+                                        new Callback<AuthenticationResult>() {
+                                    @Override
+                                    public void onSuccess(final AuthenticationResult authenticationResult) {
+                                        waitingRequest.getAPIEvent().setWasApiCallSuccessful(true, null);
+                                        waitingRequest.getAPIEvent().setCorrelationId(
+                                                waitingRequest.getRequest().getCorrelationId().toString());
+                                        waitingRequest.getAPIEvent().setAuthenticationResult(authenticationResult);
+                                        waitingRequest.getAPIEvent().stopTelemetryAndFlush();
+
+                                        if (waitingRequest.getDelegate() != null) {
+                                            Logger.v(TAG, "Sending result to callback. "
+                                                    + waitingRequest.getRequest().getLogInfo());
+                                            callbackHandle.onSuccess(authenticationResult);
+                                        }
                                     }
 
-                                    Logger.e(TAG, message.toString(),
-                                            ExceptionExtensions.getExceptionMessage(authenticationException),
-										OIDCError.AUTHORIZATION_CODE_NOT_EXCHANGED_FOR_TOKEN,
-                                            authenticationException);
-                                    waitingRequestOnError(callbackHandle, waitingRequest, requestId,
-                                            authenticationException);
-                                }
+                                    @Override
+                                    public void onError(final Throwable throwable) {
+                                        final AuthenticationException authenticationException
+                                                = toAuthenticationException(throwable);
+                                        final StringBuilder message
+                                                = new StringBuilder(authenticationException.getMessage());
+                                        if (authenticationException.getCause() != null) {
+                                            message.append(authenticationException.getCause().getMessage());
+                                        }
+
+                                        Logger.e(TAG, message.toString(),
+                                                ExceptionExtensions.getExceptionMessage(authenticationException),
+											OIDCError.AUTHORIZATION_CODE_NOT_EXCHANGED_FOR_TOKEN,
+                                                authenticationException);
+                                        waitingRequestOnError(callbackHandle, waitingRequest, requestId,
+                                                authenticationException);
+                                    }
+                                });
                             }
                         });
                     }
@@ -682,8 +930,8 @@ class AcquireTokenRequest {
         waitingRequestOnError(null, waitingRequest, requestId, exc);
     }
 
-    private void waitingRequestOnError(final CallbackHandler handler, final AuthenticationRequestState waitingRequest,
-                                       final int requestId, final AuthenticationException exc) {
+    private void waitingRequestOnError(final CallbackHandler<AuthenticationResult> handler,
+                                       final AuthenticationRequestState waitingRequest, final int requestId, final AuthenticationException exc) {
         try {
             if (waitingRequest != null && waitingRequest.getDelegate() != null) {
                 Logger.v(TAG, "Sending error to callback"
@@ -706,12 +954,12 @@ class AcquireTokenRequest {
         }
     }
 
-    private static class CallbackHandler {
+    private static class CallbackHandler<T> {
         private Handler mRefHandler;
 
-        private AuthenticationCallback<AuthenticationResult> mCallback;
+        private AuthenticationCallback<T> mCallback;
 
-        public CallbackHandler(Handler ref, AuthenticationCallback<AuthenticationResult> callbackExt) {
+        public CallbackHandler(Handler ref, AuthenticationCallback<T> callbackExt) {
             mRefHandler = ref;
             mCallback = callbackExt;
         }
@@ -731,7 +979,7 @@ class AcquireTokenRequest {
             }
         }
 
-        public void onSuccess(final AuthenticationResult result) {
+        public void onSuccess(final T result) {
             if (mCallback != null) {
                 if (mRefHandler != null) {
                     mRefHandler.post(new Runnable() {
@@ -746,7 +994,7 @@ class AcquireTokenRequest {
             }
         }
 
-        AuthenticationCallback<AuthenticationResult> getCallback() {
+        AuthenticationCallback<T> getCallback() {
             return mCallback;
         }
     }
@@ -25,6 +25,17 @@ package com.cordova.plugin.oidc;
 import android.content.Context;
 
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Internal class handling the detailed acquiretoken silent logic, including cache lookup and also
@@ -32,6 +43,24 @@ import java.io.IOException;
  */
 class AcquireTokenSilentHandler {
     private static final String TAG = AcquireTokenSilentHandler.class.getSimpleName();
+
+    /**
+     * Refresh token redemptions in flight, keyed by authority, client id, resource, user and refresh
+     * token. Silent requests do not hold the request thread while their redemption is pending, so a
+     * request arriving meanwhile for the same token joins it and no second POST is sent.
+     */
+    private static final SingleFlight<String, AuthenticationResult> REDEMPTIONS = new SingleFlight<>();
+
+    /**
+     * Starts the refresh-ahead and stale-while-revalidate renewals off the calling thread.
+     */
+    private static final ExecutorService REFRESH_AHEAD_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Keys with a background renewal queued or running, at most one per key.
+     */
+    private static final Set<String> REFRESHES_AHEAD =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     
     private final Context mContext;
     private final TokenCacheAccessor mTokenCacheAccessor;
@@ -89,75 +118,309 @@ class AcquireTokenSilentHandler {
      *    ii>  If FRT request fails, and we haven't tried with MRRT, use MRRT. 
      *    iii> If FRT does not exist, if we haven't tried with MRRT, use the MRRT. 
      *    VI>  If FRT exists, and we've already tried with MRRT, return the MRRT result. 
+     * No thread waits on the refresh token requests. The callback is invoked on the thread
+     * completing the last request, or on the calling thread if no request is sent.
+     *
+     * @param callback {@link Callback} with the result, null if there is no cache or no token to use.
      */
-    AuthenticationResult getAccessToken() throws AuthenticationException {
+    void getAccessToken(final Callback<AuthenticationResult> callback) {
         // If mTokenCacheAccessor is null, won't handle with token cache lookup. 
         if (mTokenCacheAccessor == null) {
-            return null;
+            callback.onSuccess(null);
+            return;
         }
         
-        // Check for if there is valid access token item in the cache.
-        final TokenCacheItem accessTokenItem = mTokenCacheAccessor.getATFromCache(mAuthRequest.getResource(), 
-                mAuthRequest.getClientId(), mAuthRequest.getUserFromRequest());
+        final AuthenticationResult staleResult;
+        final TokenCacheItem accessTokenItem;
+        try {
+            // Check for if there is valid access token item in the cache.
+            accessTokenItem = mTokenCacheAccessor.getATFromCache(mAuthRequest.getResource(),
+                    mAuthRequest.getClientId(), mAuthRequest.getUserFromRequest());
+            if (accessTokenItem == null) {
+                final AuthenticationResult negativeResult = NegativeResultCache.INSTANCE.get(
+                        mAuthRequest.getAuthority(), mAuthRequest.getClientId(), mAuthRequest.getResource(),
+                        mAuthRequest.getUserFromRequest());
+                if (negativeResult != null) {
+                    Logger.v(TAG, "Refresh token recently failed with " + negativeResult.getErrorCode()
+                            + ", fail without sending it again.");
+                    reportNegativeResultHit(negativeResult.getErrorCode());
+                    callback.onSuccess(negativeResult);
+                    return;
+                }
+
+                staleResult = getStaleResultWhileRevalidating();
+            } else {
+                staleResult = null;
+            }
+        } catch (final AuthenticationException e) {
+            callback.onError(e);
+            return;
+        }
+
         if (accessTokenItem == null) {
+            if (staleResult != null) {
+                callback.onSuccess(staleResult);
+                return;
+            }
+
             Logger.v(TAG, "No valid access token exists, try with refresh token.");
-            return tryRT();
+            tryRT(new Callback<AuthenticationResult>() {
+                @Override
+                public void onSuccess(final AuthenticationResult result) {
+                    NegativeResultCache.INSTANCE.record(mAuthRequest.getAuthority(), mAuthRequest.getClientId(),
+                            mAuthRequest.getResource(), mAuthRequest.getUserFromRequest(), result);
+                    callback.onSuccess(result);
+                }
+
+                @Override
+                public void onError(final Throwable throwable) {
+                    callback.onError(throwable);
+                }
+            });
+            return;
         }
         
         Logger.v(TAG, "Return AT from cache.");
-        return AuthenticationResult.createResult(accessTokenItem);
+        if (accessTokenItem.isInRefreshAheadWindow(AuthenticationSettings.INSTANCE.getRefreshAheadFraction())) {
+            refreshAhead();
+        }
+
+        callback.onSuccess(AuthenticationResult.createResult(accessTokenItem));
+    }
+
+    private void reportNegativeResultHit(final String errorCode) {
+        final String telemetryRequestId = mAuthRequest.getTelemetryRequestId();
+        final CacheEvent cacheEvent = new CacheEvent(EventStrings.NEGATIVE_RESULT_CACHE_LOOKUP);
+        cacheEvent.setRequestId(telemetryRequestId);
+        Telemetry.getInstance().startEvent(telemetryRequestId, EventStrings.NEGATIVE_RESULT_CACHE_LOOKUP);
+        cacheEvent.setNegativeResultHit(errorCode);
+        Telemetry.getInstance().stopEvent(telemetryRequestId, cacheEvent, EventStrings.NEGATIVE_RESULT_CACHE_LOOKUP);
+    }
+
+    /**
+     * In stale-while-revalidate mode, return the expired access token still within its
+     * extended expiry and renew it in background.
+     *
+     * @return the extended lifetime result, null if the mode is off or there is no stale token
+     */
+    private AuthenticationResult getStaleResultWhileRevalidating() throws AuthenticationException {
+        if (!mAuthRequest.getIsExtendedLifetimeEnabled()
+                || !AuthenticationSettings.INSTANCE.getServeStaleWhileRevalidate()) {
+            return null;
+        }
+
+        final TokenCacheItem staleTokenItem = mTokenCacheAccessor.getStaleToken(mAuthRequest);
+        if (staleTokenItem == null) {
+            return null;
+        }
+
+        // The circuit breaker is not checked, an open one fails the renewal fast or lets it probe
+        renewInBackground("Access token is expired, returning the stale one and renewing it in background.");
+        return AuthenticationResult.createExtendedLifeTimeResult(staleTokenItem);
+    }
+
+    /**
+     * Renew the access token in background while the cached one is still returned. Skipped
+     * if the circuit breaker of the token endpoint is not closed.
+     */
+    private void refreshAhead() {
+        final URL tokenEndpoint = StringExtensions.getUrl(new Oauth2(mAuthRequest).getTokenEndpoint());
+        if (tokenEndpoint == null
+                || CircuitBreaker.forHost(tokenEndpoint.getHost()).getState() != CircuitBreaker.State.CLOSED) {
+            Logger.v(TAG, "Token endpoint is not available, skip refresh-ahead.");
+            return;
+        }
+
+        renewInBackground("Access token is close to expiry, renewing it in background.");
+    }
+
+    /**
+     * Renew the access token in background through the RT, MRRT and FRT lookup. Skipped if
+     * a renewal for the same key is already queued.
+     */
+    private void renewInBackground(final String message) {
+        final String key = getRedemptionKey();
+        if (!REFRESHES_AHEAD.add(key)) {
+            return;
+        }
+
+        final String telemetryRequestId = Telemetry.registerNewRequest();
+        final AuthenticationRequest request = new AuthenticationRequest(mAuthRequest.getAuthority(),
+                mAuthRequest.getResource(), mAuthRequest.getClientId(), mAuthRequest.getUserId(),
+                mAuthRequest.getCorrelationId(), mAuthRequest.getIsExtendedLifetimeEnabled(),
+                mAuthRequest.getEndpointFragment(), mAuthRequest.getResponseType());
+        request.setLoginHint(mAuthRequest.getLoginHint());
+        request.setUserIdentifierType(mAuthRequest.getUserIdentifierType());
+        request.setSilent(true);
+        request.setTelemetryRequestId(telemetryRequestId);
+        final AcquireTokenSilentHandler handler = new AcquireTokenSilentHandler(mContext, request,
+                mTokenCacheAccessor.withTelemetryRequestId(telemetryRequestId));
+        if (!(mWebRequestHandler instanceof WebRequestHandler)) {
+            // Keep the handler injected for testing, the default one is per request.
+            handler.setWebRequestHandler(mWebRequestHandler);
+        }
+
+        Logger.v(TAG, message);
+        final Callback<AuthenticationResult> renewalCallback = new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult result) {
+                REFRESHES_AHEAD.remove(key);
+                Telemetry.getInstance().flush(telemetryRequestId);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                Logger.w(TAG, "Background renewal failed, the token is renewed on the next request.",
+                        throwable.getMessage(), OIDCError.AUTH_FAILED_NO_TOKEN);
+                onSuccess(null);
+            }
+        };
+        REFRESH_AHEAD_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    handler.tryRT(renewalCallback);
+                } catch (final RuntimeException e) {
+                    renewalCallback.onError(e);
+                }
+            }
+        });
     }
     
     /**
      * Send token request with grant_type as refresh_token to token endpoint for getting new access token. 
+     *
+     * @param callback {@link Callback} invoked on the thread completing the request.
      */
-    AuthenticationResult acquireTokenWithRefreshToken(final String refreshToken) 
-            throws AuthenticationException {
+    void acquireTokenWithRefreshToken(final String refreshToken, final Callback<AuthenticationResult> callback) {
         Logger.v(TAG, "Try to get new access token with the found refresh token.", 
                 mAuthRequest.getLogInfo(), null);
         
         // Check if network is available, if not throw exception. 
-        HttpWebRequest.throwIfNetworkNotAvailable(mContext);
-        
-        final AuthenticationResult result;
         try {
-            final JWSBuilder jwsBuilder = new JWSBuilder();
-            final Oauth2 oauthRequest = new Oauth2(mAuthRequest, mWebRequestHandler, jwsBuilder);
-            result = oauthRequest.refreshToken(refreshToken);
-            if (result != null && StringExtensions.isNullOrBlank(result.getRefreshToken())) {
-                Logger.i(TAG, "Refresh token is not returned or empty", "");
-                result.setRefreshToken(refreshToken);
+            HttpWebRequest.throwIfNetworkNotAvailable(mContext);
+        } catch (final AuthenticationException e) {
+            callback.onError(e);
+            return;
+        }
+        
+        redeemRefreshToken(refreshToken, new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult result) {
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                if (throwable instanceof ServerRespondingWithRetryableException) {
+                    final ServerRespondingWithRetryableException exc
+                            = (ServerRespondingWithRetryableException) throwable;
+                    Logger.i(TAG, "The server is not responding after the retry with error code: " + exc.getCode(), "");
+                    final TokenCacheItem accessTokenItem;
+                    try {
+                        accessTokenItem = mTokenCacheAccessor == null ? null
+                                : mTokenCacheAccessor.getStaleToken(mAuthRequest);
+                    } catch (final AuthenticationException e) {
+                        callback.onError(e);
+                        return;
+                    }
+
+                    if (accessTokenItem != null) {
+                        final AuthenticationResult retryResult =  AuthenticationResult.createExtendedLifeTimeResult(accessTokenItem);
+                        Logger.i(TAG, "The result with stale access token is returned.", "");
+                        callback.onSuccess(retryResult);
+                        return;
+                    }
+                } else if (!(throwable instanceof IOException || throwable instanceof AuthenticationException)) {
+                    callback.onError(throwable);
+                    return;
+                }
+
+                // Server side error or similar
+                final Exception exc = (Exception) throwable;
+                Logger.e(TAG, "Error in refresh token for request:" + mAuthRequest.getLogInfo(),
+                        ExceptionExtensions.getExceptionMessage(exc), OIDCError.AUTH_FAILED_NO_TOKEN,
+                        new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage()));
+
+                callback.onError(new AuthenticationException(
+                        OIDCError.AUTH_FAILED_NO_TOKEN, ExceptionExtensions.getExceptionMessage(exc),
+                        new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage())));
+            }
+        });
+    }
+    
+    /**
+     * Redeem the refresh token, or join the redemption of the same refresh token already
+     * in flight for the same authority, client id, resource and user and share its result or
+     * error. Every caller receives its own copy of the result.
+     */
+    private void redeemRefreshToken(final String refreshToken, final Callback<AuthenticationResult> callback) {
+        final String key = getRedemptionKey() + "|" + getTokenHash(refreshToken);
+        REDEMPTIONS.executeAsync(key, new SingleFlight.AsyncCall<AuthenticationResult>() {
+            @Override
+            public void start(final Callback<AuthenticationResult> redemption) {
+                final JWSBuilder jwsBuilder = new JWSBuilder();
+                final Oauth2 oauthRequest = new Oauth2(mAuthRequest, mWebRequestHandler, jwsBuilder);
+                oauthRequest.refreshTokenAsync(refreshToken, new Callback<AuthenticationResult>() {
+                    @Override
+                    public void onSuccess(final AuthenticationResult result) {
+                        if (result != null && StringExtensions.isNullOrBlank(result.getRefreshToken())) {
+                            Logger.i(TAG, "Refresh token is not returned or empty", "");
+                            result.setRefreshToken(refreshToken);
+                        }
+
+                        redemption.onSuccess(result);
+                    }
+
+                    @Override
+                    public void onError(final Throwable throwable) {
+                        redemption.onError(throwable);
+                    }
+                });
             }
-        } catch (final ServerRespondingWithRetryableException exc) {
-            Logger.i(TAG, "The server is not responding after the retry with error code: " + exc.getCode(), "");
-            final TokenCacheItem accessTokenItem = mTokenCacheAccessor.getStaleToken(mAuthRequest);
-            if (accessTokenItem != null) {
-                final AuthenticationResult retryResult =  AuthenticationResult.createExtendedLifeTimeResult(accessTokenItem);
-                Logger.i(TAG, "The result with stale access token is returned.", "");
-                return retryResult;
+        }, mAuthRequest.getDeadlineMillis(), new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult sharedResult) {
+                callback.onSuccess(sharedResult == null ? null : AuthenticationResult.createCopy(sharedResult));
             }
-            
-            Logger.e(TAG, "Error in refresh token for request:" + mAuthRequest.getLogInfo(),
-                    ExceptionExtensions.getExceptionMessage(exc), OIDCError.AUTH_FAILED_NO_TOKEN,
-                    new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage()));
-
-            throw new AuthenticationException(
-				OIDCError.AUTH_FAILED_NO_TOKEN, ExceptionExtensions.getExceptionMessage(exc),
-                    new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage()));
-        } catch (final IOException | AuthenticationException exc) {
-            // Server side error or similar
-            Logger.e(TAG, "Error in refresh token for request:" + mAuthRequest.getLogInfo(),
-                    ExceptionExtensions.getExceptionMessage(exc), OIDCError.AUTH_FAILED_NO_TOKEN,
-                    new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage()));
-
-            throw new AuthenticationException(
-                    OIDCError.AUTH_FAILED_NO_TOKEN, ExceptionExtensions.getExceptionMessage(exc),
-                    new AuthenticationException(OIDCError.SERVER_ERROR, exc.getMessage()));
+
+            @Override
+            public void onError(final Throwable throwable) {
+                if (!(throwable instanceof TimeoutException)) {
+                    callback.onError(throwable);
+                    return;
+                }
+
+                final String message = "Request deadline has passed while waiting for the refresh token request "
+                        + "in flight.";
+                if (mAuthRequest.getIsExtendedLifetimeEnabled()) {
+                    callback.onError(new ServerRespondingWithRetryableException(message, throwable));
+                } else {
+                    callback.onError(new SocketTimeoutException(message));
+                }
+            }
+        });
+    }
+
+    private String getRedemptionKey() {
+        final String user = mAuthRequest.getUserFromRequest();
+        return mAuthRequest.getAuthority().toLowerCase(Locale.US) + "|" + mAuthRequest.getClientId()
+                + "|" + mAuthRequest.getResource() + "|" + (user == null ? "" : user.toLowerCase(Locale.US));
+    }
+
+    private String getTokenHash(final String token) {
+        try {
+            return StringExtensions.createHash(token);
+        } catch (final NoSuchAlgorithmException e) {
+            Logger.e(TAG, "Digest error", "", OIDCError.DEVICE_NO_SUCH_ALGORITHM, e);
+        } catch (final UnsupportedEncodingException e) {
+            Logger.e(TAG, "Digest error", "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
         }
 
-        return result;
+        // The key is only held in memory
+        return token;
     }
-    
+
     /**
      * For testing purpose, inject the dependency. 
      */
@@ -168,13 +431,14 @@ class AcquireTokenSilentHandler {
     /**
      * Attempt to get new access token with regular RT. 
      */
-    private AuthenticationResult tryRT() throws AuthenticationException {
+    private void tryRT(final Callback<AuthenticationResult> callback) {
         final TokenCacheItem regularRTItem = mTokenCacheAccessor.getRegularRefreshTokenCacheItem(mAuthRequest.getResource(), 
                 mAuthRequest.getClientId(), mAuthRequest.getUserFromRequest());
 
         if (regularRTItem == null) {
             Logger.v(TAG, "Regular token cache entry does not exist, try with MRRT.");
-            return tryMRRT(); 
+            tryMRRT(callback);
+            return;
         }
         
         // When MRRT is returned, we store separate entries for both regular RT entry and MRRT entry, 
@@ -187,16 +451,18 @@ class AcquireTokenSilentHandler {
                     ? "Found RT and it's also a MRRT, retry with MRRT"
                     : "RT is found and there is a MRRT entry existed, try with MRRT";
             Logger.v(TAG, statusMessage);
-            return tryMRRT();
+            tryMRRT(callback);
+            return;
         }
 
         if (StringExtensions.isNullOrBlank(mAuthRequest.getUserFromRequest()) && mTokenCacheAccessor.isMultipleRTsMatchingGivenAppAndResource(
                 mAuthRequest.getClientId(), mAuthRequest.getResource())) {
-            throw new AuthenticationException(OIDCError.AUTH_FAILED_USER_MISMATCH, "Multiple refresh tokens exists for the given client id and resource");
+            callback.onError(new AuthenticationException(OIDCError.AUTH_FAILED_USER_MISMATCH, "Multiple refresh tokens exists for the given client id and resource"));
+            return;
         }
         
         Logger.v(TAG, "Send request to use regular RT for new AT.");
-        return acquireTokenWithCachedItem(regularRTItem);
+        acquireTokenWithCachedItem(regularRTItem, callback);
     }
     
     /**
@@ -205,7 +471,7 @@ class AcquireTokenSilentHandler {
      * 2) If MRRT is also a FRT, try FRT first.
      * 3) If MRRT request fails, fall back to FRT.  
      */
-    private AuthenticationResult tryMRRT() throws AuthenticationException {
+    private void tryMRRT(final Callback<AuthenticationResult> callback) {
         // Try to get it from cache
         mMrrtTokenCacheItem = mTokenCacheAccessor.getMRRTItem(mAuthRequest.getClientId(), 
                 mAuthRequest.getUserFromRequest());
@@ -213,31 +479,57 @@ class AcquireTokenSilentHandler {
         // MRRT does not exist, try with FRT.
         if (mMrrtTokenCacheItem == null) {
             Logger.v(TAG, "MRRT token does not exist, try with FRT");
-            return tryFRT(AuthenticationConstants.MS_FAMILY_ID, null);
+            tryFRT(AuthenticationConstants.MS_FAMILY_ID, null, callback);
+            return;
         } 
         
         // If MRRT is also a FRT, we try FRT first. 
         if (mMrrtTokenCacheItem.isFamilyToken()) {
             Logger.v(TAG, "MRRT item exists but it's also a FRT, try with FRT.");
-            return tryFRT(mMrrtTokenCacheItem.getFamilyClientId(), null);
+            tryFRT(mMrrtTokenCacheItem.getFamilyClientId(), null, callback);
+            return;
         }
 
-        AuthenticationResult mrrtResult = useMRRT();
-        if (isTokenRequestFailed(mrrtResult)) {
-            // If MRRT fails, we still want to retry on FRT in case there is one there. 
-            // MRRT may not be marked as FRT, hard-code it as "1" in this case. 
-            final String familyClientId = StringExtensions.isNullOrBlank(mMrrtTokenCacheItem.getFamilyClientId())
-                    ? AuthenticationConstants.MS_FAMILY_ID : mMrrtTokenCacheItem.getFamilyClientId();
+        final Callback<AuthenticationResult> mrrtCallback = new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult mrrtResult) {
+                if (StringExtensions.isNullOrBlank(mAuthRequest.getUserFromRequest())
+                        && mTokenCacheAccessor.isMultipleMRRTsMatchingGivenApp(mAuthRequest.getClientId())) {
+                    callback.onError(new AuthenticationException(OIDCError.AUTH_FAILED_USER_MISMATCH, "No User provided and multiple MRRTs exist for the given client id"));
+                    return;
+                }
 
-            // Pass the failed MRRT result to tryFRT, if FRT does not exist, return the MRRT result. 
-            mrrtResult = tryFRT(familyClientId, mrrtResult);
-        }
+                callback.onSuccess(mrrtResult);
+            }
 
-        if (StringExtensions.isNullOrBlank(mAuthRequest.getUserFromRequest()) && mTokenCacheAccessor.isMultipleMRRTsMatchingGivenApp(mAuthRequest.getClientId())) {
-            throw new AuthenticationException(OIDCError.AUTH_FAILED_USER_MISMATCH, "No User provided and multiple MRRTs exist for the given client id");
-        }
-        
-        return mrrtResult;
+            @Override
+            public void onError(final Throwable throwable) {
+                callback.onError(throwable);
+            }
+        };
+
+        useMRRT(new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult mrrtResult) {
+                if (!isTokenRequestFailed(mrrtResult)) {
+                    mrrtCallback.onSuccess(mrrtResult);
+                    return;
+                }
+
+                // If MRRT fails, we still want to retry on FRT in case there is one there. 
+                // MRRT may not be marked as FRT, hard-code it as "1" in this case. 
+                final String familyClientId = StringExtensions.isNullOrBlank(mMrrtTokenCacheItem.getFamilyClientId())
+                        ? AuthenticationConstants.MS_FAMILY_ID : mMrrtTokenCacheItem.getFamilyClientId();
+
+                // Pass the failed MRRT result to tryFRT, if FRT does not exist, return the MRRT result. 
+                tryFRT(familyClientId, mrrtResult, mrrtCallback);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                callback.onError(throwable);
+            }
+        });
     }
     
     /**
@@ -246,8 +538,8 @@ class AcquireTokenSilentHandler {
      * then we either already have a MRRT or MRRT does not exist)
      * 2) If FRT request fails, and we haven't tried with MRRT yet, use it. 
      */
-    private AuthenticationResult tryFRT(final String familyClientId, final AuthenticationResult mrrtResult) 
-            throws AuthenticationException {
+    private void tryFRT(final String familyClientId, final AuthenticationResult mrrtResult,
+            final Callback<AuthenticationResult> callback) {
         final TokenCacheItem frtTokenCacheItem = mTokenCacheAccessor.getFRTItem(familyClientId, 
                 mAuthRequest.getUserFromRequest());
         
@@ -257,56 +549,91 @@ class AcquireTokenSilentHandler {
             // If we have already tried an MRRT and no FRT found, we return the MRRT result passed in. 
             if (!mAttemptedWithMRRT) {
                 Logger.v(TAG, "FRT cache item does not exist, fall back to try MRRT.");
-                return useMRRT();
+                useMRRT(callback);
             } else {
-                return mrrtResult;
+                callback.onSuccess(mrrtResult);
             }
+            return;
         }
         
         Logger.v(TAG, "Send request to use FRT for new AT.");
-        AuthenticationResult frtResult = acquireTokenWithCachedItem(frtTokenCacheItem);
-        if (isTokenRequestFailed(frtResult) && !mAttemptedWithMRRT) {
-            // FRT request fails, fallback to MRRT if we haven't tried with MRRT. 
-            final AuthenticationResult retryMrrtResult = useMRRT();
-            frtResult = retryMrrtResult == null ? frtResult : retryMrrtResult;
-        }
-        
-        return frtResult;
+        acquireTokenWithCachedItem(frtTokenCacheItem, new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult frtResult) {
+                if (!isTokenRequestFailed(frtResult) || mAttemptedWithMRRT) {
+                    callback.onSuccess(frtResult);
+                    return;
+                }
+
+                // FRT request fails, fallback to MRRT if we haven't tried with MRRT. 
+                useMRRT(new Callback<AuthenticationResult>() {
+                    @Override
+                    public void onSuccess(final AuthenticationResult retryMrrtResult) {
+                        callback.onSuccess(retryMrrtResult == null ? frtResult : retryMrrtResult);
+                    }
+
+                    @Override
+                    public void onError(final Throwable throwable) {
+                        callback.onError(throwable);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                callback.onError(throwable);
+            }
+        });
     }
 
     /**
      * Attempt to use MRRT. 
      */
-    private AuthenticationResult useMRRT() throws AuthenticationException {
+    private void useMRRT(final Callback<AuthenticationResult> callback) {
         Logger.v(TAG, "Send request to use MRRT for new AT.");
         mAttemptedWithMRRT = true;
         if (mMrrtTokenCacheItem == null) {
             Logger.v(TAG, "MRRT does not exist, cannot proceed with MRRT for new AT.");
-            return null;
+            callback.onSuccess(null);
+            return;
         }
         
-        return acquireTokenWithCachedItem(mMrrtTokenCacheItem);
+        acquireTokenWithCachedItem(mMrrtTokenCacheItem, callback);
     }
     
     /**
      * Acquire token with retrieved token cache item and update cache. 
      */
-    private AuthenticationResult acquireTokenWithCachedItem(final TokenCacheItem cachedItem)
-            throws AuthenticationException {
+    private void acquireTokenWithCachedItem(final TokenCacheItem cachedItem,
+            final Callback<AuthenticationResult> callback) {
         if (StringExtensions.isNullOrBlank(cachedItem.getRefreshToken())) {
             Logger.v(TAG, "Token cache item contains empty refresh token, cannot continue refresh "
                    + "token request", mAuthRequest.getLogInfo(), null);
-            return null;
+            callback.onSuccess(null);
+            return;
         }
 
-        final AuthenticationResult result = acquireTokenWithRefreshToken(cachedItem.getRefreshToken());
-        
-        if (result != null && !result.isExtendedLifeTimeToken()) {
-            mTokenCacheAccessor.updateCachedItemWithResult(mAuthRequest.getResource(), mAuthRequest.getClientId(), 
-                    result, cachedItem);
-        }
+        acquireTokenWithRefreshToken(cachedItem.getRefreshToken(), new Callback<AuthenticationResult>() {
+            @Override
+            public void onSuccess(final AuthenticationResult result) {
+                if (result != null && !result.isExtendedLifeTimeToken()) {
+                    try {
+                        mTokenCacheAccessor.updateCachedItemWithResult(mAuthRequest.getResource(),
+                                mAuthRequest.getClientId(), result, cachedItem);
+                    } catch (final AuthenticationException e) {
+                        callback.onError(e);
+                        return;
+                    }
+                }
 
-        return result;
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                callback.onError(throwable);
+            }
+        });
     }
     
     /**
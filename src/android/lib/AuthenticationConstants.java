@@ -517,6 +517,11 @@ public final class AuthenticationConstants {
          * Oauth2 error code invalid_grant.
          */       
         static final String INVALID_GRANT = "invalid_grant";
+
+        /**
+         * Oauth2 error code interaction_required.
+         */
+        static final String INTERACTION_REQUIRED = "interaction_required";
     }
 
     /**
@@ -125,6 +125,9 @@ public class AuthenticationContext {
             throw new IllegalArgumentException("authority");
         }
         mBrokerProxy = new BrokerProxy(appContext);
+        OpenIdConfigurationCache.initialize(appContext);
+        JwksCache.initialize(appContext);
+        PkcePool.prefill();
         if (!defaultCache && !mBrokerProxy.canUseLocalCache(authority)) {
             throw new UnsupportedOperationException("Local cache is not supported for broker usage");
         }
@@ -136,6 +139,26 @@ public class AuthenticationContext {
         mTokenCacheStore = tokenCacheStore;
     }
 
+    /**
+     * Resolves and opens connections to the token endpoint and authority hosts in
+     * background, so that the first token or discovery request finds them warm. Only one
+     * pre-warm per host is in flight at a time. Enable
+     * {@link AuthenticationSettings#setReuseConnections(boolean)} to keep the opened
+     * connections in the pool.
+     */
+    public void preWarmConnections() {
+        final Oauth2 oauth = new Oauth2(new AuthenticationRequest(mAuthority, null, null,
+                getExtendedLifetimeEnabled(), mEndpointFragment, mResponseType));
+        final URL tokenEndpoint = StringExtensions.getUrl(oauth.getTokenEndpoint());
+        final URL authorityUrl = StringExtensions.getUrl(mAuthority);
+
+        ConnectionPreWarmer.preWarm(tokenEndpoint);
+        if (authorityUrl != null && (tokenEndpoint == null
+                || !authorityUrl.getAuthority().equalsIgnoreCase(tokenEndpoint.getAuthority()))) {
+            ConnectionPreWarmer.preWarm(authorityUrl);
+        }
+    }
+
     /**
      * Returns referenced cache. You can use default cache, which uses
      * SharedPreferences and handles synchronization by itself.
@@ -753,7 +776,7 @@ public class AuthenticationContext {
                     public void onSuccess(AuthenticationResult result) {
                         apiEvent.setWasApiCallSuccessful(true, null);
                         apiEvent.setCorrelationId(request.getCorrelationId().toString());
-                        apiEvent.setIdToken(result.getIdToken());
+                        apiEvent.setAuthenticationResult(result);
                         apiEvent.stopTelemetryAndFlush();
 
                         if (callback != null) {
@@ -798,6 +821,33 @@ public class AuthenticationContext {
                                         String clientId,
                                         String userId,
                                         AuthenticationCallback<AuthenticationResult> callback) {
+        acquireTokenSilentAsync(resource, clientId, userId, 0, callback);
+    }
+
+    /**
+     * Same as {@link #acquireTokenSilentAsync(String, String, String, AuthenticationCallback)}
+     * with an overall time budget. Authority validation, the token request, the device
+     * challenge and the retries share the budget, each network call uses the time left.
+     * Once the budget is spent the callback receives the error, or the expired access
+     * token if extended lifetime is enabled and one is cached.
+     *
+     * @param resource required resource identifier.
+     * @param clientId required client identifier.
+     * @param userId   UserId obtained from {@link UserInfo} inside
+     *                 {@link AuthenticationResult}
+     * @param timeOutMillis Time budget of the call in milliseconds, 0 for no budget.
+     * @param callback required {@link AuthenticationCallback} object for async
+     *                 call.
+     */
+    public void acquireTokenSilentAsync(String resource,
+                                        String clientId,
+                                        String userId,
+                                        long timeOutMillis,
+                                        AuthenticationCallback<AuthenticationResult> callback) {
+        if (timeOutMillis < 0) {
+            throw new IllegalArgumentException("Invalid timeOutMillis");
+        }
+
         if (!checkPreRequirements(resource, clientId, callback)) {
             // AD FS validation cannot be perfomed, stop executing
             return;
@@ -813,12 +863,66 @@ public class AuthenticationContext {
         request.setSilent(true);
         request.setPrompt(PromptBehavior.Auto);
         request.setUserIdentifierType(UserIdentifierType.UniqueId);
+        if (timeOutMillis > 0) {
+            request.setDeadlineMillis(System.currentTimeMillis() + timeOutMillis);
+        }
 
         request.setTelemetryRequestId(requestId);
 
         createAcquireTokenRequest(apiEvent).acquireToken(null, false, request, callback);
     }
 
+    /**
+     * Batch version of {@link #acquireTokenSilentAsync(String, String, String, AuthenticationCallback)}.
+     * Access tokens found in the cache are returned without network calls, the missing ones are
+     * acquired concurrently with the multi resource refresh token of the user, at most
+     * {@link AuthenticationSettings#getBatchTokenParallelism()} at a time, and written back to the
+     * cache together. This method will not show UI for the user.
+     *
+     * @param resources required resource identifiers.
+     * @param clientId  required client identifier.
+     * @param userId    UserId obtained from {@link UserInfo} inside
+     *                  {@link AuthenticationResult}
+     * @param callback  required {@link AuthenticationCallback} object for async
+     *                  call. Results are in the order of the resources, a resource
+     *                  whose token could not be acquired has a failed {@link AuthenticationResult}.
+     */
+    public void acquireTokensSilentAsync(String[] resources,
+                                         String clientId,
+                                         String userId,
+                                         AuthenticationCallback<AuthenticationResult[]> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback");
+        }
+
+        if (resources == null || resources.length == 0) {
+            throw new IllegalArgumentException("resources");
+        }
+
+        try {
+            for (final String resource : resources) {
+                checkPreRequirements(resource, clientId);
+            }
+        } catch (final AuthenticationException exception) {
+            callback.onError(exception);
+            return;
+        }
+
+        final String requestId = Telemetry.registerNewRequest();
+        final APIEvent apiEvent = createApiEvent(mContext, clientId, requestId,
+                EventStrings.ACQUIRE_TOKENS_SILENT_ASYNC);
+        apiEvent.setPromptBehavior(PromptBehavior.Auto.toString());
+
+        final AuthenticationRequest request = new AuthenticationRequest(mAuthority, resources[0],
+                clientId, userId, getRequestCorrelationId(), getExtendedLifetimeEnabled(), mEndpointFragment, mResponseType);
+        request.setSilent(true);
+        request.setPrompt(PromptBehavior.Auto);
+        request.setUserIdentifierType(UserIdentifierType.UniqueId);
+        request.setTelemetryRequestId(requestId);
+
+        createAcquireTokenRequest(apiEvent).acquireTokensSilent(resources, request, callback);
+    }
+
     /**
      * acquire token using refresh token if cache is not used. Otherwise, use
      * acquireToken to let the ADAL handle the cache lookup and refresh token
@@ -23,15 +23,9 @@
 
 package com.cordova.plugin.oidc;
 
-import android.util.Base64;
-
 import androidx.annotation.Nullable;
 
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.util.UUID;
 
 /**
@@ -83,9 +77,11 @@ class AuthenticationRequest implements Serializable {
 
     private String mClaimsChallenge;
 
+    private long mDeadlineMillis = 0;
+
     private String codeVerifier = null;
 
-    private static final String TAG = "AuthenticationRequest";
+    private String codeChallenge = null;
 
     /**
      * Developer can use acquireToken(with loginhint) or acquireTokenSilent(with
@@ -321,6 +317,23 @@ class AuthenticationRequest implements Serializable {
         return mClaimsChallenge;
     }
 
+    /**
+     * @return Time in milliseconds since epoch by which the network calls of the request
+     * have to complete, 0 if the request has no deadline.
+     */
+    long getDeadlineMillis() {
+        return mDeadlineMillis;
+    }
+
+    /**
+     * Set the deadline for the network calls of the request.
+     *
+     * @param deadlineMillis Time in milliseconds since epoch, 0 to remove the deadline.
+     */
+    void setDeadlineMillis(final long deadlineMillis) {
+        mDeadlineMillis = deadlineMillis;
+    }
+
     /**
      * Get either loginhint or user id based what's passed in the request.
      */
@@ -360,12 +373,9 @@ class AuthenticationRequest implements Serializable {
 
     private void CreateCodeVerifier() {
         if (this.mResponseType.startsWith("code")) {
-            SecureRandom sr = new SecureRandom();
-            byte[] code = new byte[32];
-            sr.nextBytes(code);
-            String verifier = Base64.encodeToString(code, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
-
-            this.codeVerifier = verifier;
+            final PkcePool.PkcePair pair = PkcePool.takePair();
+            this.codeVerifier = pair.getCodeVerifier();
+            this.codeChallenge = pair.getCodeChallenge();
         }
     }
 
@@ -374,25 +384,14 @@ class AuthenticationRequest implements Serializable {
     }
 
     public String GetCodeChallenge() {
-        if (this.codeVerifier != null) {
-            try {
-                byte[] bytes = this.codeVerifier.getBytes("US-ASCII");
-
-                MessageDigest md = MessageDigest.getInstance("SHA-256");
-                md.update(bytes, 0, bytes.length);
-                byte[] digest = md.digest();
-                String challenge = Base64.encodeToString(digest, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
-                return challenge;
-            } catch (final UnsupportedEncodingException e) {
-                ClientMetrics.INSTANCE.setLastError(null);
-                Logger.e(TAG, e.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
-                return null;
-            } catch (final NoSuchAlgorithmException e) {
-                ClientMetrics.INSTANCE.setLastError(null);
-                Logger.e(TAG, e.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
-                return null;
-            }
-        }
-        return null;
+        return this.codeChallenge;
+    }
+
+    /**
+     * Drop the code verifier and challenge once the authorization code is redeemed, they are single-use.
+     */
+    void clearCodeVerifier() {
+        this.codeVerifier = null;
+        this.codeChallenge = null;
     }
 }
@@ -79,6 +79,11 @@ public class AuthenticationResult implements Serializable {
 
     private String mIdToken;
 
+    /**
+     * True once the user info and tenant id were read from the id token, reset by deserialization.
+     */
+    private transient boolean mIdTokenClaimsParsed;
+
     private AuthenticationStatus mStatus = AuthenticationStatus.Failed;
 
     private boolean mInitialRequest;
@@ -153,6 +158,40 @@ public class AuthenticationResult implements Serializable {
         return result;
     }
 
+    /**
+     * Creates a copy of the result, so that callers sharing one token response can each
+     * update their own.
+     *
+     * @param result AuthenticationResult to be copied.
+     * @return AuthenticationResult
+     */
+    static AuthenticationResult createCopy(final AuthenticationResult result) {
+        final AuthenticationResult copy = new AuthenticationResult();
+        synchronized (result) {
+            copy.mCode = result.mCode;
+            copy.mAccessToken = result.mAccessToken;
+            copy.mRefreshToken = result.mRefreshToken;
+            copy.mTokenType = result.mTokenType;
+            copy.mExpiresOn = result.mExpiresOn == null ? null : new Date(result.mExpiresOn.getTime());
+            copy.mErrorCode = result.mErrorCode;
+            copy.mErrorDescription = result.mErrorDescription;
+            copy.mErrorCodes = result.mErrorCodes;
+            copy.mIsMultiResourceRefreshToken = result.mIsMultiResourceRefreshToken;
+            copy.mUserInfo = result.mUserInfo;
+            copy.mTenantId = result.mTenantId;
+            copy.mIdToken = result.mIdToken;
+            copy.mIdTokenClaimsParsed = result.mIdTokenClaimsParsed;
+            copy.mStatus = result.mStatus;
+            copy.mInitialRequest = result.mInitialRequest;
+            copy.mFamilyClientId = result.mFamilyClientId;
+            copy.mIsExtendedLifeTimeToken = result.mIsExtendedLifeTimeToken;
+            copy.mExtendedExpiresOn = result.mExtendedExpiresOn == null
+                    ? null : new Date(result.mExtendedExpiresOn.getTime());
+        }
+
+        return copy;
+    }
+
     static AuthenticationResult createResultForInitialRequest() {
         AuthenticationResult result = new AuthenticationResult();
         result.mInitialRequest = true;
@@ -227,6 +266,7 @@ public class AuthenticationResult implements Serializable {
      * @return {@link UserInfo}
      */
     public UserInfo getUserInfo() {
+        parseIdTokenClaims();
         return mUserInfo;
     }
 
@@ -245,9 +285,34 @@ public class AuthenticationResult implements Serializable {
      * @return TenantId
      */
     public String getTenantId() {
+        parseIdTokenClaims();
         return mTenantId;
     }
 
+    /**
+     * Read the user info and tenant id from the id token on first access, so that results that
+     * are only read for their access token never decode it. Claims are only read if the result
+     * was created without user info.
+     */
+    private synchronized void parseIdTokenClaims() {
+        if (mIdTokenClaimsParsed) {
+            return;
+        }
+
+        mIdTokenClaimsParsed = true;
+        if (mUserInfo != null) {
+            return;
+        }
+
+        final IdToken idToken = IdToken.tryParse(mIdToken);
+        if (idToken != null) {
+            mUserInfo = new UserInfo(idToken);
+            if (mTenantId == null) {
+                mTenantId = idToken.getTenantId();
+            }
+        }
+    }
+
     /**
      * Gets status.
      * 
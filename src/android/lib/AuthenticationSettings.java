@@ -40,6 +40,26 @@ public enum AuthenticationSettings {
 
     private static final int DEFAULT_READ_CONNECT_TIMEOUT = 30000;
 
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+
+    private static final int DEFAULT_MAX_RESPONSE_SIZE = 1024 * 1024;
+
+    private static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    private static final long DEFAULT_CIRCUIT_BREAKER_COOL_DOWN = 30000;
+
+    private static final int DEFAULT_BATCH_TOKEN_PARALLELISM = 4;
+
+    private static final long DEFAULT_NEGATIVE_RESULT_CACHE_MILLIS = 30000;
+
+    private static final long DEFAULT_AUTHORITY_VALIDATION_CACHE_MILLIS = 24 * 60 * 60 * 1000;
+
+    private static final int DEFAULT_TOKEN_REQUESTS_PER_MINUTE_PER_AUTHORITY = 60;
+
+    private static final int DEFAULT_TOKEN_REQUESTS_PER_MINUTE_PER_KEY = 10;
+
+    private static final long DEFAULT_TOKEN_REQUEST_MAX_QUEUE_MILLIS = 5000;
+
     private AtomicReference<byte[]> mSecretKeyData = new AtomicReference<>();
 
     private String mBrokerPackageName = AuthenticationConstants.Broker.COMPANY_PORTAL_APP_PACKAGE_NAME;
@@ -73,6 +93,92 @@ public enum AuthenticationSettings {
 
     private int mReadTimeOut = DEFAULT_READ_CONNECT_TIMEOUT;
 
+    /**
+     * set to be false in default.
+     * If true, {@link DefaultTokenCacheStore} loads the encryption keys in background when constructed.
+     */
+    private boolean mWarmUpKeysOnInit = false;
+
+    /**
+     * set to be false in default.
+     * If true, token and discovery requests keep their connections alive instead of
+     * sending "Connection: close".
+     */
+    private boolean mReuseConnections = false;
+
+    private int mMaxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+
+    private int mMaxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+
+    /**
+     * Transport used for all HTTP requests, {@link java.net.HttpURLConnection} in default.
+     */
+    private volatile IHttpTransport mHttpTransport = new HttpUrlConnectionTransport();
+
+    /**
+     * Retry policy for timed out and 5xx requests, one retry in default.
+     */
+    private volatile IRetryPolicy mRetryPolicy = new DefaultRetryPolicy();
+
+    private int mCircuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+    private long mCircuitBreakerCoolDownMillis = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN;
+
+    /**
+     * set to be 0 in default, refresh-ahead is disabled.
+     */
+    private float mRefreshAheadFraction = 0;
+
+    /**
+     * Maximum number of refresh token redemptions run at the same time by a batch request.
+     */
+    private int mBatchTokenParallelism = DEFAULT_BATCH_TOKEN_PARALLELISM;
+
+    /**
+     * Time in milliseconds terminal OAuth errors of silent requests are remembered, 0 to disable.
+     */
+    private long mNegativeResultCacheMillis = DEFAULT_NEGATIVE_RESULT_CACHE_MILLIS;
+
+    /**
+     * set to be true in default, endpoints come from the OpenID configuration once it is cached.
+     */
+    private boolean mUseOpenIdDiscovery = true;
+
+    /**
+     * set to be false in default, id_token signatures are verified with the keys of the issuer once enabled.
+     */
+    private boolean mVerifyIdTokenSignature = false;
+
+    /**
+     * set to be false in default, id_tokens are rejected if the signing keys cannot be fetched.
+     */
+    private boolean mAcceptIdTokenWhenKeysUnavailable = false;
+
+    /**
+     * Time in milliseconds a validated authority is trusted across process restarts, 0 to keep it in memory only.
+     */
+    private long mAuthorityValidationCacheMillis = DEFAULT_AUTHORITY_VALIDATION_CACHE_MILLIS;
+
+    /**
+     * Token endpoint requests allowed per minute and authority, 0 to disable the limit.
+     */
+    private int mTokenRequestsPerMinutePerAuthority = DEFAULT_TOKEN_REQUESTS_PER_MINUTE_PER_AUTHORITY;
+
+    /**
+     * Token endpoint requests allowed per minute and cache key, 0 to disable the limit.
+     */
+    private int mTokenRequestsPerMinutePerKey = DEFAULT_TOKEN_REQUESTS_PER_MINUTE_PER_KEY;
+
+    /**
+     * Longest time in milliseconds a rate limited token request is queued before it fails.
+     */
+    private long mTokenRequestMaxQueueMillis = DEFAULT_TOKEN_REQUEST_MAX_QUEUE_MILLIS;
+
+    /**
+     * set to be false in default, expired access tokens are renewed before they are returned.
+     */
+    private boolean mServeStaleWhileRevalidate = false;
+
     /**
      * Get bytes to derive secretKey to use in encrypt/decrypt.
      * 
@@ -310,6 +416,454 @@ public enum AuthenticationSettings {
         this.mReadTimeOut = timeOutMillis;
     }
 
+    /**
+     * Get key warm-up usage.
+     *
+     * @return true if encryption keys are loaded in background when the default cache is created.
+     */
+    public boolean getWarmUpKeysOnInit() {
+        return mWarmUpKeysOnInit;
+    }
+
+    /**
+     * Set flag to load or unwrap the encryption keys on a background thread when
+     * {@link AuthenticationContext} or {@link DefaultTokenCacheStore} is constructed.
+     * By default, the flag value is false and keys are loaded on the first encrypt/decrypt.
+     *
+     * @param warmUpKeysOnInit True to warm up the keys in background
+     */
+    public void setWarmUpKeysOnInit(boolean warmUpKeysOnInit) {
+        mWarmUpKeysOnInit = warmUpKeysOnInit;
+    }
+
+    /**
+     * Get connection reuse usage.
+     *
+     * @return true if HTTP connections are kept alive between requests to the same host.
+     */
+    public boolean getReuseConnections() {
+        return mReuseConnections;
+    }
+
+    /**
+     * Set flag to keep HTTP connections alive per host so that token refresh and
+     * discovery requests can skip the TCP and TLS handshake. By default, the flag
+     * value is false and every request is sent with "Connection: close".
+     *
+     * @param reuseConnections True to keep connections alive
+     */
+    public void setReuseConnections(boolean reuseConnections) {
+        mReuseConnections = reuseConnections;
+    }
+
+    /**
+     * Get the maximum number of idle connections kept alive per host.
+     *
+     * @return max idle connections
+     */
+    public int getMaxIdleConnections() {
+        return mMaxIdleConnections;
+    }
+
+    /**
+     * Sets the maximum number of idle connections the library keeps alive per host when
+     * connection reuse is enabled. Connections over the limit are closed by the default
+     * transport once their response is read, the platform wide connection pool settings
+     * are not changed. Default value is 5.
+     *
+     * @param maxIdleConnections the positive number of idle connections.
+     */
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        if (maxIdleConnections <= 0) {
+            throw new IllegalArgumentException("Invalid maxIdleConnections");
+        }
+
+        mMaxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * Get the maximum response body size.
+     *
+     * @return max response size in bytes
+     */
+    public int getMaxResponseSize() {
+        return mMaxResponseSize;
+    }
+
+    /**
+     * Sets the maximum size in bytes of a response body after decompression.
+     * Reading a larger body fails with an IOException. Default value is 1 MB.
+     *
+     * @param maxResponseSize the positive max response size in bytes.
+     */
+    public void setMaxResponseSize(int maxResponseSize) {
+        if (maxResponseSize <= 0) {
+            throw new IllegalArgumentException("Invalid maxResponseSize");
+        }
+
+        mMaxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Get the HTTP transport.
+     *
+     * @return {@link IHttpTransport} used to send token, discovery, DRS and WebFinger requests.
+     */
+    public IHttpTransport getHttpTransport() {
+        return mHttpTransport;
+    }
+
+    /**
+     * Sets the HTTP transport used by {@link WebRequestHandler} for token, discovery,
+     * DRS and WebFinger requests. Pass null to restore the default transport backed by
+     * {@link java.net.HttpURLConnection}.
+     *
+     * @param httpTransport {@link IHttpTransport} to use.
+     */
+    public void setHttpTransport(IHttpTransport httpTransport) {
+        mHttpTransport = httpTransport == null ? new HttpUrlConnectionTransport() : httpTransport;
+    }
+
+    /**
+     * Get the retry policy.
+     *
+     * @return {@link IRetryPolicy} used for token, discovery, DRS and WebFinger requests.
+     */
+    public IRetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * Sets the policy deciding whether and when token, discovery, DRS and WebFinger
+     * requests are retried after a timeout or a 5xx response. Pass null to restore
+     * the {@link DefaultRetryPolicy}.
+     *
+     * @param retryPolicy {@link IRetryPolicy} to use.
+     */
+    public void setRetryPolicy(IRetryPolicy retryPolicy) {
+        mRetryPolicy = retryPolicy == null ? new DefaultRetryPolicy() : retryPolicy;
+    }
+
+    /**
+     * Get the number of consecutive failures opening the circuit breaker of an endpoint host.
+     *
+     * @return failure threshold, 0 if the circuit breaker is disabled
+     */
+    public int getCircuitBreakerFailureThreshold() {
+        return mCircuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive timeouts, I/O errors or 5xx responses from an
+     * endpoint host after which token and discovery requests to it fail fast for the
+     * cool-down period. If extended lifetime is enabled, the stale access token is
+     * returned right away. Default value is 5, 0 disables the circuit breaker.
+     *
+     * @param failureThreshold the non-negative failure threshold.
+     */
+    public void setCircuitBreakerFailureThreshold(int failureThreshold) {
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("Invalid failureThreshold");
+        }
+
+        mCircuitBreakerFailureThreshold = failureThreshold;
+    }
+
+    /**
+     * Get the circuit breaker cool-down.
+     *
+     * @return cool-down in milliseconds
+     */
+    public long getCircuitBreakerCoolDownMillis() {
+        return mCircuitBreakerCoolDownMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds an open circuit breaker fails requests fast before
+     * letting a single probe request through. Default value is 30000 milliseconds.
+     *
+     * @param coolDownMillis the non-negative cool-down in milliseconds.
+     */
+    public void setCircuitBreakerCoolDownMillis(long coolDownMillis) {
+        if (coolDownMillis < 0) {
+            throw new IllegalArgumentException("Invalid coolDownMillis");
+        }
+
+        mCircuitBreakerCoolDownMillis = coolDownMillis;
+    }
+
+    /**
+     * Get the fraction of the access token lifetime in which silent requests renew it ahead of expiry.
+     *
+     * @return refresh-ahead fraction, 0 if refresh-ahead is disabled
+     */
+    public float getRefreshAheadFraction() {
+        return mRefreshAheadFraction;
+    }
+
+    /**
+     * Sets the fraction of the access token lifetime, counted back from its expiry, in
+     * which a silent request still returns the cached access token but also renews it in
+     * background with the refresh token. For example 0.2 renews a one hour token once
+     * less than 12 minutes are left. Renewal is skipped while the circuit breaker of the
+     * token endpoint is not closed. Default value is 0, which disables refresh-ahead.
+     *
+     * @param refreshAheadFraction fraction between 0 inclusive and 1 exclusive.
+     */
+    public void setRefreshAheadFraction(float refreshAheadFraction) {
+        if (refreshAheadFraction < 0 || refreshAheadFraction >= 1) {
+            throw new IllegalArgumentException("Invalid refreshAheadFraction");
+        }
+
+        mRefreshAheadFraction = refreshAheadFraction;
+    }
+
+    /**
+     * Get the maximum number of refresh token redemptions run at the same time by
+     * {@link AuthenticationContext#acquireTokensSilentAsync}.
+     *
+     * @return batch parallelism
+     */
+    public int getBatchTokenParallelism() {
+        return mBatchTokenParallelism;
+    }
+
+    /**
+     * Sets the maximum number of refresh token redemptions run at the same time by
+     * {@link AuthenticationContext#acquireTokensSilentAsync}. Default value is 4.
+     *
+     * @param parallelism number of concurrent redemptions, at least 1.
+     */
+    public void setBatchTokenParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism");
+        }
+
+        mBatchTokenParallelism = parallelism;
+    }
+
+    /**
+     * Get the time in milliseconds a terminal OAuth error of a silent request is remembered.
+     *
+     * @return negative result cache time in milliseconds, 0 if disabled
+     */
+    public long getNegativeResultCacheMillis() {
+        return mNegativeResultCacheMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds an invalid_grant or interaction_required error returned
+     * to a silent request is remembered. Until it expires, or the token cache changes, silent
+     * requests for the same authority, client id, resource and user fail with the same error
+     * without sending the refresh tokens again. Default value is 30 seconds.
+     *
+     * @param negativeResultCacheMillis time in milliseconds, 0 to disable.
+     */
+    public void setNegativeResultCacheMillis(long negativeResultCacheMillis) {
+        if (negativeResultCacheMillis < 0) {
+            throw new IllegalArgumentException("Invalid negativeResultCacheMillis");
+        }
+
+        mNegativeResultCacheMillis = negativeResultCacheMillis;
+        if (negativeResultCacheMillis == 0) {
+            NegativeResultCache.INSTANCE.clear();
+        }
+    }
+
+    /**
+     * Get if the authorization and token endpoints are read from the OpenID configuration.
+     *
+     * @return true if OpenID Connect discovery is enabled
+     */
+    public boolean getUseOpenIdDiscovery() {
+        return mUseOpenIdDiscovery;
+    }
+
+    /**
+     * Sets if the authorization and token endpoints are read from the
+     * /.well-known/openid-configuration document of the authority. The document is fetched
+     * in background, cached in memory and on disk following its Cache-Control and revalidated
+     * with its ETag. Until it is cached, or if the authority does not publish it, the endpoints
+     * are built from the endpoint fragment. An endpoint fragment given as an https url always
+     * takes precedence. Default value is true.
+     *
+     * @param useOpenIdDiscovery true to use OpenID Connect discovery.
+     */
+    public void setUseOpenIdDiscovery(boolean useOpenIdDiscovery) {
+        mUseOpenIdDiscovery = useOpenIdDiscovery;
+    }
+
+    /**
+     * Get if the signature of id_tokens returned by the token endpoint is verified.
+     *
+     * @return true if id_token signatures are verified
+     */
+    public boolean getVerifyIdTokenSignature() {
+        return mVerifyIdTokenSignature;
+    }
+
+    /**
+     * Sets if the signature of id_tokens returned by the token endpoint is verified with the
+     * JSON Web Key Set published at the jwks_uri of the OpenID configuration. The key set is
+     * cached in memory and on disk following its Cache-Control and fetched again when a token
+     * is signed with an unknown key id. Unsigned tokens and algorithms other than RS256, RS384
+     * and RS512 are rejected. The OpenID configuration is fetched first if it is not cached yet.
+     * Without discovery, a jwks_uri or a reachable key set the token is rejected, unless
+     * {@link #setAcceptIdTokenWhenKeysUnavailable(boolean)} is set. Authorities that sign with
+     * HMAC or do not sign their id_tokens fail every token request once this is enabled.
+     * Default value is false.
+     *
+     * @param verifyIdTokenSignature true to verify id_token signatures.
+     */
+    public void setVerifyIdTokenSignature(boolean verifyIdTokenSignature) {
+        mVerifyIdTokenSignature = verifyIdTokenSignature;
+    }
+
+    /**
+     * Get if id_tokens are accepted unverified when the signing keys cannot be fetched.
+     *
+     * @return true if id_tokens are accepted without verification when the keys are unavailable
+     */
+    public boolean getAcceptIdTokenWhenKeysUnavailable() {
+        return mAcceptIdTokenWhenKeysUnavailable;
+    }
+
+    /**
+     * Sets if an id_token is accepted without signature verification when the OpenID configuration
+     * or the JSON Web Key Set of the issuer cannot be fetched, or discovery is not used, so that an
+     * unreachable key endpoint does not break sign in. Only applies with {@link #setVerifyIdTokenSignature(boolean)}.
+     * Tokens with an invalid signature are always rejected. Default value is false.
+     *
+     * @param acceptIdTokenWhenKeysUnavailable true to accept unverified id_tokens when the keys are unavailable.
+     */
+    public void setAcceptIdTokenWhenKeysUnavailable(boolean acceptIdTokenWhenKeysUnavailable) {
+        mAcceptIdTokenWhenKeysUnavailable = acceptIdTokenWhenKeysUnavailable;
+    }
+
+    /**
+     * Get the time in milliseconds a validated authority is trusted.
+     *
+     * @return authority validation cache time in milliseconds, 0 if validations are kept in memory only
+     */
+    public long getAuthorityValidationCacheMillis() {
+        return mAuthorityValidationCacheMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a validated authority or AD FS authority is trusted. Validations
+     * are persisted so that a cold start does not repeat the instance discovery, DRS and WebFinger
+     * requests, and are revalidated in background when close to expiry. With 0, validations are
+     * not persisted and are kept in memory for the life of the process. Has no effect until
+     * authority validation (Discovery) is part of the plugin sources. Default value is 24 hours.
+     *
+     * @param authorityValidationCacheMillis time in milliseconds, 0 to keep validations in memory only.
+     */
+    public void setAuthorityValidationCacheMillis(long authorityValidationCacheMillis) {
+        if (authorityValidationCacheMillis < 0) {
+            throw new IllegalArgumentException("Invalid authorityValidationCacheMillis");
+        }
+
+        mAuthorityValidationCacheMillis = authorityValidationCacheMillis;
+    }
+
+    /**
+     * Get the number of token endpoint requests allowed per minute for one authority.
+     *
+     * @return requests per minute, 0 if the limit is disabled
+     */
+    public int getTokenRequestsPerMinutePerAuthority() {
+        return mTokenRequestsPerMinutePerAuthority;
+    }
+
+    /**
+     * Sets the number of refresh token redemptions allowed per minute for one authority,
+     * across all clients, resources and users. The limit is a token bucket, the full number
+     * of requests can be sent in a burst. Requests over the limit are queued for up to
+     * {@link #getTokenRequestMaxQueueMillis()}, then fail with
+     * {@link OIDCError#TOKEN_REQUEST_RATE_LIMITED}. Authorization code redemptions are never
+     * limited. Default value is 60, 0 disables the limit.
+     *
+     * @param requestsPerMinute the non-negative number of requests per minute.
+     */
+    public void setTokenRequestsPerMinutePerAuthority(int requestsPerMinute) {
+        if (requestsPerMinute < 0) {
+            throw new IllegalArgumentException("Invalid requestsPerMinute");
+        }
+
+        mTokenRequestsPerMinutePerAuthority = requestsPerMinute;
+    }
+
+    /**
+     * Get the number of token endpoint requests allowed per minute for one cache key.
+     *
+     * @return requests per minute, 0 if the limit is disabled
+     */
+    public int getTokenRequestsPerMinutePerKey() {
+        return mTokenRequestsPerMinutePerKey;
+    }
+
+    /**
+     * Sets the number of refresh token redemptions allowed per minute for one authority,
+     * resource, client id and user. Requests over the limit are queued or
+     * fail as for {@link #setTokenRequestsPerMinutePerAuthority(int)}. Default value is 10,
+     * 0 disables the limit.
+     *
+     * @param requestsPerMinute the non-negative number of requests per minute.
+     */
+    public void setTokenRequestsPerMinutePerKey(int requestsPerMinute) {
+        if (requestsPerMinute < 0) {
+            throw new IllegalArgumentException("Invalid requestsPerMinute");
+        }
+
+        mTokenRequestsPerMinutePerKey = requestsPerMinute;
+    }
+
+    /**
+     * Get the longest time a rate limited token request is queued.
+     *
+     * @return queue time in milliseconds
+     */
+    public long getTokenRequestMaxQueueMillis() {
+        return mTokenRequestMaxQueueMillis;
+    }
+
+    /**
+     * Sets the longest time in milliseconds a token request over the rate limit waits for
+     * its turn. Requests that would wait longer, or past their deadline, fail right away.
+     * Default value is 5000 milliseconds, 0 fails every request over the limit.
+     *
+     * @param maxQueueMillis the non-negative queue time in milliseconds.
+     */
+    public void setTokenRequestMaxQueueMillis(long maxQueueMillis) {
+        if (maxQueueMillis < 0) {
+            throw new IllegalArgumentException("Invalid maxQueueMillis");
+        }
+
+        mTokenRequestMaxQueueMillis = maxQueueMillis;
+    }
+
+    /**
+     * Get if silent requests with extended lifetime return an expired access token while it is renewed.
+     *
+     * @return true if stale-while-revalidate is enabled
+     */
+    public boolean getServeStaleWhileRevalidate() {
+        return mServeStaleWhileRevalidate;
+    }
+
+    /**
+     * Sets if silent requests with extended lifetime enabled return an expired access token
+     * right away while it is within its extended expiry, and renew it in background. The
+     * result is flagged as an extended lifetime token. Otherwise the stale token is only
+     * returned after the token request failed with a timeout or 5xx response. Default value
+     * is false.
+     *
+     * @param serveStaleWhileRevalidate true to return stale access tokens while renewing them.
+     */
+    public void setServeStaleWhileRevalidate(boolean serveStaleWhileRevalidate) {
+        mServeStaleWhileRevalidate = serveStaleWhileRevalidate;
+    }
+
     /**
      * Method to enable/disable WebView hardware acceleration used in
      * {@link AuthenticationActivity} and {@link AuthenticationDialog}. 
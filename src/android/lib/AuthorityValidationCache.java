@@ -0,0 +1,223 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Memory and disk cache of the validated authority hosts and AD FS authorities, with the time
+ * each validation expires. Persisted validations are loaded on first use. A validation close to
+ * expiry is still trusted while it is revalidated in background.
+ */
+final class AuthorityValidationCache {
+
+    private static final String TAG = "AuthorityValidationCache";
+
+    private static final String SHARED_PREFERENCE_NAME = "com.cordova.plugin.oidc.authority_validation";
+
+    /**
+     * Fraction of the lifetime left under which a validation is revalidated in background.
+     */
+    private static final int REVALIDATION_FRACTION = 4;
+
+    private static final ExecutorService REVALIDATION_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Keys with a revalidation queued or in flight.
+     */
+    private static final Set<String> IN_FLIGHT_REVALIDATIONS =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private static volatile Context sAppContext = null;
+
+    /**
+     * Expiry time in milliseconds since epoch per key.
+     */
+    private static final ConcurrentMap<String, Long> ENTRIES = new ConcurrentHashMap<>();
+
+    private static volatile boolean sLoaded = false;
+
+    private static SharedPreferences sPrefs = null;
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private AuthorityValidationCache() { }
+
+    /**
+     * Keep the application context used to open the shared preferences on first use.
+     *
+     * @param context {@link Context} used to open the shared preferences.
+     */
+    static void initialize(final Context context) {
+        if (context != null && sAppContext == null) {
+            sAppContext = context.getApplicationContext() == null ? context : context.getApplicationContext();
+        }
+    }
+
+    /**
+     * @param host host of an authority validated by instance discovery
+     * @return the cache key of the host
+     */
+    static String hostKey(final String host) {
+        return "host|" + host;
+    }
+
+    /**
+     * @param domain domain of the user the AD FS authority was validated for
+     * @param authority AD FS authority
+     * @return the cache key of the AD FS authority
+     */
+    static String adfsKey(final String domain, final String authority) {
+        return "adfs|" + domain + "|" + authority;
+    }
+
+    /**
+     * Check if the validation is cached and not expired. If less than a quarter of its lifetime
+     * is left, the revalidation is run once in background and the validation is still trusted.
+     *
+     * @param key cache key of the validation
+     * @param revalidation validation run in background, it records or removes the key
+     * @return true if the validation is cached and not expired
+     */
+    static boolean isValidated(final String key, final Runnable revalidation) {
+        final Long expiresOnMillis = getEntries().get(key);
+        if (expiresOnMillis == null) {
+            return false;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now >= expiresOnMillis) {
+            remove(key);
+            return false;
+        }
+
+        final long cacheMillis = AuthenticationSettings.INSTANCE.getAuthorityValidationCacheMillis();
+        if (cacheMillis > 0 && expiresOnMillis - now < cacheMillis / REVALIDATION_FRACTION
+                && IN_FLIGHT_REVALIDATIONS.add(key)) {
+            Logger.v(TAG, "Authority validation is close to expiry, revalidating in background.");
+            REVALIDATION_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        revalidation.run();
+                    } catch (final RuntimeException e) {
+                        Logger.w(TAG, "Authority revalidation failed, the validation is kept until it expires.",
+                                e.getMessage(), OIDCError.DEVELOPER_AUTHORITY_IS_NOT_VALID_INSTANCE);
+                    } finally {
+                        IN_FLIGHT_REVALIDATIONS.remove(key);
+                    }
+                }
+            });
+        }
+
+        return true;
+    }
+
+    /**
+     * Record a successful validation for the configured lifetime.
+     *
+     * @param key cache key of the validation
+     */
+    static void put(final String key) {
+        final long cacheMillis = AuthenticationSettings.INSTANCE.getAuthorityValidationCacheMillis();
+        if (cacheMillis == 0) {
+            // Kept for the life of the process only
+            getEntries().put(key, Long.MAX_VALUE);
+            return;
+        }
+
+        final long expiresOnMillis = System.currentTimeMillis() + cacheMillis;
+        getEntries().put(key, expiresOnMillis);
+        final SharedPreferences prefs = getPrefs();
+        if (prefs != null) {
+            prefs.edit().putLong(key, expiresOnMillis).apply();
+        }
+    }
+
+    /**
+     * Remove a validation that expired or that the server no longer confirms.
+     *
+     * @param key cache key of the validation
+     */
+    static void remove(final String key) {
+        getEntries().remove(key);
+        final SharedPreferences prefs = getPrefs();
+        if (prefs != null) {
+            prefs.edit().remove(key).apply();
+        }
+    }
+
+    private static synchronized SharedPreferences getPrefs() {
+        if (sPrefs == null && sAppContext != null) {
+            sPrefs = sAppContext.getSharedPreferences(SHARED_PREFERENCE_NAME, Activity.MODE_PRIVATE);
+        }
+
+        return sPrefs;
+    }
+
+    /**
+     * @return the validations, with the persisted ones loaded on first use once initialized
+     */
+    private static ConcurrentMap<String, Long> getEntries() {
+        if (!sLoaded) {
+            load();
+        }
+
+        return ENTRIES;
+    }
+
+    private static synchronized void load() {
+        final SharedPreferences prefs = getPrefs();
+        if (sLoaded || prefs == null) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final SharedPreferences.Editor editor = prefs.edit();
+        for (final Map.Entry<String, ?> persisted : prefs.getAll().entrySet()) {
+            final Object expiresOnMillis = persisted.getValue();
+            if (expiresOnMillis instanceof Long && (Long) expiresOnMillis > now) {
+                ENTRIES.putIfAbsent(persisted.getKey(), (Long) expiresOnMillis);
+            } else {
+                editor.remove(persisted.getKey());
+            }
+        }
+
+        editor.apply();
+        sLoaded = true;
+        Logger.v(TAG, "Loaded " + ENTRIES.size() + " authority validations from disk.");
+    }
+}
@@ -52,6 +52,14 @@ final class CacheEvent extends DefaultEvent {
         setProperty(EventStrings.TOKEN_TYPE_IS_FRT, String.valueOf(tokenTypeFRT));
     }
 
+    /**
+     * Record that the request failed from the negative result cache with the OAuth error code.
+     */
+    void setNegativeResultHit(final String errorCode) {
+        setProperty(EventStrings.NEGATIVE_RESULT_CACHE_HIT, Boolean.TRUE.toString());
+        setProperty(EventStrings.OAUTH_ERROR_CODE, errorCode);
+    }
+
     /**
      * Each event chooses which of its members get picked on aggregation.
      * Cache event adds an event count field
@@ -60,6 +68,16 @@ final class CacheEvent extends DefaultEvent {
     @Override
     public void processEvent(final Map<String, String> dispatchMap) {
 
+        if (EventStrings.NEGATIVE_RESULT_CACHE_LOOKUP.equals(mEventName)) {
+            for (final Pair<String, String> eventPair : getEventList()) {
+                if (eventPair.first.equals(EventStrings.NEGATIVE_RESULT_CACHE_HIT)
+                        || eventPair.first.equals(EventStrings.OAUTH_ERROR_CODE)) {
+                    dispatchMap.put(eventPair.first, eventPair.second);
+                }
+            }
+            return;
+        }
+
         if (mEventName != EventStrings.TOKEN_CACHE_LOOKUP) {
             return;
         }
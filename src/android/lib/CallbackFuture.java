@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OIDC internal future for asynchronous requests. Notifies the optional {@link Callback}
+ * once completed and forwards cancellation to the step currently in flight, so that
+ * multi step operations can be chained without holding a thread between steps.
+ *
+ * @param <V> The result type.
+ */
+final class CallbackFuture<V> extends FutureTask<V> {
+    private static final String TAG = CallbackFuture.class.getSimpleName();
+
+    private final Callback<V> mCallback;
+    private final AtomicReference<Future<?>> mPendingStep = new AtomicReference<>(null);
+
+    /**
+     * Creates a future completed through {@link #set(Object)} or {@link #setException(Throwable)}.
+     *
+     * @param callback {@link Callback} to notify on completion, could be null.
+     */
+    CallbackFuture(final Callback<V> callback) {
+        this(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Creates a future completed by running the callable.
+     *
+     * @param callable The task to run.
+     * @param callback {@link Callback} to notify on completion, could be null.
+     */
+    CallbackFuture(final Callable<V> callable, final Callback<V> callback) {
+        super(callable);
+        mCallback = callback;
+    }
+
+    @SuppressWarnings("PMD.UselessOverridingMethod")
+    @Override
+    public void set(V v) {
+        super.set(v);
+    }
+
+    @SuppressWarnings("PMD.UselessOverridingMethod")
+    @Override
+    public void setException(Throwable t) {
+        super.setException(t);
+    }
+
+    /**
+     * Set the step in flight, it is cancelled when this future is cancelled. A step
+     * that already completed is ignored since its completion may have started the next one.
+     *
+     * @param step The {@link Future} of the current step.
+     */
+    void setPendingStep(final Future<?> step) {
+        if (step.isDone()) {
+            return;
+        }
+
+        mPendingStep.set(step);
+        if (isCancelled()) {
+            step.cancel(true);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            final Future<?> step = mPendingStep.getAndSet(null);
+            if (step != null) {
+                step.cancel(mayInterruptIfRunning);
+            }
+        }
+
+        return cancelled;
+    }
+
+    @Override
+    protected void done() {
+        mPendingStep.set(null);
+        if (mCallback == null) {
+            return;
+        }
+
+        if (isCancelled()) {
+            mCallback.onError(new CancellationException("Request is cancelled."));
+            return;
+        }
+
+        final V result;
+        try {
+            result = get();
+        } catch (final ExecutionException e) {
+            mCallback.onError(e.getCause());
+            return;
+        } catch (final InterruptedException e) {
+            // Not reachable since the future is done
+            Logger.v(TAG, "Interrupted while reading a completed result. " + e);
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        mCallback.onSuccess(result);
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Circuit breaker for one endpoint host. It opens after the configured number of
+ * consecutive failures, fails requests fast during the cool-down period, then lets a
+ * single probe request through (half open). The probe result closes or reopens it.
+ * Failures are timeouts, I/O errors and 5xx responses.
+ */
+final class CircuitBreaker {
+
+    private static final String TAG = "CircuitBreaker";
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    /**
+     * Circuit breaker state, reported in telemetry.
+     */
+    enum State {
+        CLOSED("closed"),
+        OPEN("open"),
+        HALF_OPEN("half_open");
+
+        private final String mTelemetryValue;
+
+        State(final String telemetryValue) {
+            mTelemetryValue = telemetryValue;
+        }
+
+        String getTelemetryValue() {
+            return mTelemetryValue;
+        }
+    }
+
+    private final String mHost;
+
+    private State mState = State.CLOSED;
+
+    private int mConsecutiveFailures = 0;
+
+    private long mOpenedAtMillis = 0;
+
+    private CircuitBreaker(final String host) {
+        mHost = host;
+    }
+
+    /**
+     * Get the circuit breaker of the host, creating it if needed.
+     *
+     * @param host The endpoint host.
+     * @return {@link CircuitBreaker} of the host.
+     */
+    static CircuitBreaker forHost(final String host) {
+        CircuitBreaker breaker = BREAKERS.get(host);
+        if (breaker == null) {
+            final CircuitBreaker newBreaker = new CircuitBreaker(host);
+            breaker = BREAKERS.putIfAbsent(host, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+
+        return breaker;
+    }
+
+    /**
+     * Check if a request can be sent. Once the cool-down has passed, the first caller
+     * gets the half open probe and the others keep failing fast until it completes.
+     *
+     * @return true if the request can be sent.
+     */
+    synchronized boolean allowRequest() {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        switch (mState) {
+        case CLOSED:
+            return true;
+        case OPEN:
+            if (System.currentTimeMillis() - mOpenedAtMillis >= AuthenticationSettings.INSTANCE
+                    .getCircuitBreakerCoolDownMillis()) {
+                Logger.v(TAG, "Cool-down passed for " + mHost + ", sending probe request.");
+                mState = State.HALF_OPEN;
+                return true;
+            }
+            return false;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Record a request that reached the server and got a non 5xx response.
+     */
+    synchronized void recordSuccess() {
+        if (mState != State.CLOSED) {
+            Logger.v(TAG, "Circuit closed for " + mHost);
+        }
+
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+    }
+
+    /**
+     * Record the response status of a request.
+     *
+     * @param statusCode The response status code.
+     */
+    void recordResponse(final int statusCode) {
+        if (RetryingWebRequest.isRetryableStatus(statusCode)) {
+            recordFailure();
+        } else {
+            recordSuccess();
+        }
+    }
+
+    /**
+     * Record the error of a request. A cancelled request did not fail on the server side, so
+     * it is not counted as a failure and only gives the half open probe back.
+     *
+     * @param throwable The error the request completed with.
+     */
+    void recordError(final Throwable throwable) {
+        if (throwable instanceof CancellationException) {
+            recordCancelled();
+        } else {
+            recordFailure();
+        }
+    }
+
+    /**
+     * Record a request that was cancelled before completing. If it was the half open probe,
+     * the circuit goes back to open with its cool-down passed, so the next request probes.
+     */
+    synchronized void recordCancelled() {
+        if (mState == State.HALF_OPEN) {
+            mState = State.OPEN;
+        }
+    }
+
+    /**
+     * Record a request that timed out, failed on I/O or got a 5xx response.
+     */
+    synchronized void recordFailure() {
+        mConsecutiveFailures++;
+        if (!isEnabled()) {
+            return;
+        }
+
+        if (mState == State.HALF_OPEN
+                || mConsecutiveFailures >= AuthenticationSettings.INSTANCE.getCircuitBreakerFailureThreshold()) {
+            if (mState != State.OPEN) {
+                Logger.w(TAG, "Circuit opened for " + mHost + " after " + mConsecutiveFailures
+                        + " consecutive failures.", "", OIDCError.SERVER_UNAVAILABLE);
+            }
+
+            mState = State.OPEN;
+            mOpenedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return The current {@link State}.
+     */
+    synchronized State getState() {
+        return mState;
+    }
+
+    private static boolean isEnabled() {
+        return AuthenticationSettings.INSTANCE.getCircuitBreakerFailureThreshold() > 0;
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves endpoint hosts and opens connections to them in background, so that the
+ * first token request skips DNS resolution and the TLS handshake. Connections are only
+ * kept in the pool when {@link AuthenticationSettings#getReuseConnections()} is set,
+ * otherwise the DNS cache and TLS session cache are warmed.
+ */
+final class ConnectionPreWarmer {
+
+    private static final String TAG = "ConnectionPreWarmer";
+
+    private static final ExecutorService PRE_WARM_EXECUTOR = Executors.newCachedThreadPool();
+
+    /**
+     * Hosts with a pre-warm in flight.
+     */
+    private static final Set<String> IN_FLIGHT_HOSTS =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private ConnectionPreWarmer() { }
+
+    /**
+     * Pre-warm the connection to the host of the url. Ignored if a pre-warm for the
+     * same host is already in flight.
+     *
+     * @param url The endpoint {@link URL}.
+     */
+    static void preWarm(final URL url) {
+        if (url == null) {
+            return;
+        }
+
+        final String hostKey = url.getProtocol() + "://" + url.getAuthority();
+        if (!IN_FLIGHT_HOSTS.add(hostKey)) {
+            Logger.v(TAG, "Pre-warm already in flight for " + url.getHost());
+            return;
+        }
+
+        PRE_WARM_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InetAddress.getAllByName(url.getHost());
+
+                    final Map<String, String> headers = new HashMap<>();
+                    headers.put("Host", url.getAuthority());
+                    if (!AuthenticationSettings.INSTANCE.getReuseConnections()) {
+                        headers.put("Connection", "close");
+                    }
+
+                    final HttpTransportResponse response = AuthenticationSettings.INSTANCE.getHttpTransport()
+                            .execute(new HttpTransportRequest(url, HttpWebRequest.REQUEST_METHOD_HEAD, headers,
+                                    null, null,
+                                    AuthenticationSettings.INSTANCE.getConnectTimeOut(),
+                                    AuthenticationSettings.INSTANCE.getReadTimeOut(), 0, null));
+                    // Closing the body returns the connection into the pool
+                    response.close();
+                    Logger.v(TAG, "Pre-warmed connection to " + url.getHost());
+                } catch (final IOException e) {
+                    Logger.v(TAG, "Pre-warm failed for " + url.getHost() + ": " + e.getMessage());
+                } finally {
+                    IN_FLIGHT_HOSTS.remove(hostKey);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per host counters for HTTP connection reuse. Enabled with
+ * {@link AuthenticationSettings#setReuseConnections(boolean)}.
+ * {@link java.net.HttpURLConnection} does not report whether a pooled socket was used, so
+ * a request is counted as reused when the previous response from the same host
+ * kept its connection alive within the platform keep-alive window.
+ */
+public enum ConnectionReuseMetrics {
+
+    /**
+     * Singleton instance.
+     */
+    INSTANCE;
+
+    /**
+     * Idle connections are evicted from the platform pool after 5 minutes.
+     */
+    private static final long KEEP_ALIVE_WINDOW_MILLIS = 5 * 60 * 1000;
+
+    private final ConcurrentMap<String, HostRecord> mHostRecords = new ConcurrentHashMap<>();
+
+    /**
+     * @param host The authority host.
+     * @return Number of requests sent to the host with keep-alive.
+     */
+    public int getRequestCount(final String host) {
+        final HostRecord record = mHostRecords.get(host);
+        return record == null ? 0 : record.mRequests.get();
+    }
+
+    /**
+     * @param host The authority host.
+     * @return Number of requests sent while a kept-alive connection to the host was idle.
+     */
+    public int getReusedCount(final String host) {
+        final HostRecord record = mHostRecords.get(host);
+        return record == null ? 0 : record.mReused.get();
+    }
+
+    /**
+     * @param host The authority host.
+     * @return Number of requests retried on a fresh connection after a stale pooled connection failed.
+     */
+    public int getStaleRetryCount(final String host) {
+        final HostRecord record = mHostRecords.get(host);
+        return record == null ? 0 : record.mStaleRetries.get();
+    }
+
+    /**
+     * Clear all recorded hosts.
+     */
+    public void clear() {
+        mHostRecords.clear();
+    }
+
+    /**
+     * @return true if the request is counted as sent on a reused connection.
+     */
+    boolean recordRequest(final String host) {
+        final HostRecord record = getOrCreateRecord(host);
+        record.mRequests.incrementAndGet();
+
+        final long idleSince = record.mIdleSinceMillis.getAndSet(0);
+        if (idleSince != 0 && System.currentTimeMillis() - idleSince < KEEP_ALIVE_WINDOW_MILLIS) {
+            record.mReused.incrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    void recordResponse(final String host, final boolean keptAlive) {
+        getOrCreateRecord(host).mIdleSinceMillis.set(keptAlive ? System.currentTimeMillis() : 0);
+    }
+
+    void recordStaleRetry(final String host) {
+        final HostRecord record = getOrCreateRecord(host);
+        record.mStaleRetries.incrementAndGet();
+        record.mIdleSinceMillis.set(0);
+    }
+
+    private HostRecord getOrCreateRecord(final String host) {
+        HostRecord record = mHostRecords.get(host);
+        if (record == null) {
+            final HostRecord newRecord = new HostRecord();
+            record = mHostRecords.putIfAbsent(host, newRecord);
+            if (record == null) {
+                record = newRecord;
+            }
+        }
+
+        return record;
+    }
+
+    private static final class HostRecord {
+        private final AtomicInteger mRequests = new AtomicInteger();
+        private final AtomicInteger mReused = new AtomicInteger();
+        private final AtomicInteger mStaleRetries = new AtomicInteger();
+        private final AtomicLong mIdleSinceMillis = new AtomicLong();
+    }
+}
@@ -28,10 +28,16 @@ import com.google.gson.JsonSyntaxException;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.cordova.plugin.oidc.DRSMetadataRequestor.Type.CLOUD;
 import static com.cordova.plugin.oidc.DRSMetadataRequestor.Type.ON_PREM;
@@ -54,6 +60,12 @@ final class DRSMetadataRequestor extends AbstractMetadataRequestor<DRSMetadata,
     private static final String DRS_URL_PREFIX = "https://enterpriseregistration.";
     private static final String CLOUD_RESOLVER_DOMAIN = "windows.net/";
 
+    /**
+     * Runs the cloud probe concurrently with the on-prem probe. Threads are only created once
+     * Discovery, the caller of this requestor, is part of the plugin sources.
+     */
+    private static final ExecutorService DRS_EXECUTOR = Executors.newCachedThreadPool();
+
     /**
      * The DRS configuration.
      */
@@ -71,10 +83,42 @@ final class DRSMetadataRequestor extends AbstractMetadataRequestor<DRSMetadata,
      */
     @Override
     DRSMetadata requestMetadata(final String domain) throws AuthenticationException {
+        // The cloud probe runs while the on-prem one resolves, most domains have no on-prem DRS
+        final Future<DRSMetadata> cloudRequest = DRS_EXECUTOR.submit(new Callable<DRSMetadata>() {
+            @Override
+            public DRSMetadata call() throws AuthenticationException {
+                return requestCloud(domain);
+            }
+        });
+
         try {
-            return requestOnPrem(domain);
-        } catch (UnknownHostException e) {
-            return requestCloud(domain);
+            final DRSMetadata metadata = requestOnPrem(domain);
+            cloudRequest.cancel(true);
+            return metadata;
+        } catch (final UnknownHostException e) {
+            return waitForCloud(cloudRequest);
+        } catch (final AuthenticationException | RuntimeException e) {
+            // The on-prem answer takes precedence, the cloud answer is only used if it does not exist
+            cloudRequest.cancel(true);
+            throw e;
+        }
+    }
+
+    private DRSMetadata waitForCloud(final Future<DRSMetadata> cloudRequest) throws AuthenticationException {
+        try {
+            return RetryingWebRequest.waitUntilDeadline(cloudRequest, getDeadline());
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException) {
+                throw (AuthenticationException) e.getCause();
+            }
+
+            throw new AuthenticationException(OIDCError.DRS_FAILED_SERVER_ERROR, e.getMessage(), e.getCause());
+        } catch (final InterruptedException e) {
+            cloudRequest.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, "DRS discovery is interrupted.", e);
+        } catch (final SocketTimeoutException e) {
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, e.getMessage(), e);
         }
     }
 
@@ -132,7 +176,8 @@ final class DRSMetadataRequestor extends AbstractMetadataRequestor<DRSMetadata,
 
         // make the request
         try {
-            webResponse = getWebrequestHandler().sendGet(requestURL, headers);
+            webResponse = RetryingWebRequest.sendGet(getWebrequestHandler(), requestURL, headers,
+                    getDeadline());
             final int statusCode = webResponse.getStatusCode();
             if (HttpURLConnection.HTTP_OK == statusCode) {
                 metadata = parseMetadata(webResponse);
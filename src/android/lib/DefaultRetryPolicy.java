@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.util.Random;
+
+/**
+ * {@link IRetryPolicy} with exponential backoff and full jitter: the delay before
+ * attempt n+1 is random between 0 and min(maxDelay, baseDelay * 2^(n-1)), so that
+ * clients failing at the same time do not retry in lockstep. A Retry-After sent by
+ * the server is used as the minimum delay. No attempt is scheduled past the deadline.
+ */
+public class DefaultRetryPolicy implements IRetryPolicy {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 2;
+
+    private static final long DEFAULT_BASE_DELAY_MILLIS = 1000;
+
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 8000;
+
+    private static final long DEFAULT_DEADLINE_MILLIS = 30000;
+
+    private final int mMaxAttempts;
+
+    private final long mBaseDelayMillis;
+
+    private final long mMaxDelayMillis;
+
+    private final long mDeadlineMillis;
+
+    private final Random mRandom = new Random();
+
+    /**
+     * Constructs the default policy, one retry within 30 seconds.
+     */
+    public DefaultRetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_DEADLINE_MILLIS);
+    }
+
+    /**
+     * Constructs the policy.
+     *
+     * @param maxAttempts Maximum number of attempts including the first one.
+     * @param baseDelayMillis Upper bound of the delay before the first retry.
+     * @param maxDelayMillis Upper bound of any computed delay.
+     * @param deadlineMillis Time after the first attempt past which no retry is scheduled.
+     */
+    public DefaultRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long deadlineMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts");
+        }
+
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("delay");
+        }
+
+        if (deadlineMillis < 0) {
+            throw new IllegalArgumentException("deadlineMillis");
+        }
+
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mDeadlineMillis = deadlineMillis;
+    }
+
+    @Override
+    public long getRetryDelayMillis(int attempt, long elapsedMillis, long retryAfterMillis) {
+        if (attempt >= mMaxAttempts) {
+            return NO_RETRY;
+        }
+
+        // Cap the shift so that the backoff does not overflow
+        final long backoff = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt - 1, 30));
+        final long jitter = (long) (mRandom.nextDouble() * (backoff + 1));
+        final long delay = Math.max(jitter, retryAfterMillis);
+        if (elapsedMillis + delay > mDeadlineMillis) {
+            return NO_RETRY;
+        }
+
+        return delay;
+    }
+}
@@ -104,6 +104,10 @@ public class DefaultTokenCacheStore implements ITokenCacheStore, ITokenStoreQuer
         // If it's under API 18 and secretkey is not provided, we should fail upfront to inform 
         // notify developers. 
         validateSecretKeySetting();
+
+        if (AuthenticationSettings.INSTANCE.getWarmUpKeysOnInit()) {
+            getStorageHelper().warmUpAsync();
+        }
     }
 
     /**
@@ -174,6 +178,7 @@ public class DefaultTokenCacheStore implements ITokenCacheStore, ITokenStoreQuer
             prefsEditor.remove(key);
             // apply will do Async disk write operation.
             prefsEditor.apply();
+            NegativeResultCache.INSTANCE.clearForCacheKey(key);
         }
     }
 
@@ -195,17 +200,42 @@ public class DefaultTokenCacheStore implements ITokenCacheStore, ITokenStoreQuer
 
             // apply will do Async disk write operation.
             prefsEditor.apply();
+            NegativeResultCache.INSTANCE.clear(item);
         } else {
             Logger.e(TAG, "Encrypted output is null", "", OIDCError.ENCRYPTION_FAILED);
         }
     }
 
+    /**
+     * Set the items with a single {@link SharedPreferences} write.
+     *
+     * @param items Cache items keyed by their {@link CacheKey}.
+     */
+    void setItems(final Map<String, TokenCacheItem> items) {
+        final Editor prefsEditor = mPrefs.edit();
+        for (final Entry<String, TokenCacheItem> entry : items.entrySet()) {
+            final String encrypted = encrypt(mGson.toJson(entry.getValue()));
+            if (encrypted != null) {
+                prefsEditor.putString(entry.getKey(), encrypted);
+            } else {
+                Logger.e(TAG, "Encrypted output is null", "", OIDCError.ENCRYPTION_FAILED);
+            }
+        }
+
+        // apply will do Async disk write operation.
+        prefsEditor.apply();
+        for (final TokenCacheItem item : items.values()) {
+            NegativeResultCache.INSTANCE.clear(item);
+        }
+    }
+
     @Override
     public void removeAll() {
         Editor prefsEditor = mPrefs.edit();
         prefsEditor.clear();
         // apply will do Async disk write operation.
         prefsEditor.apply();
+        NegativeResultCache.INSTANCE.clear();
     }
 
     // Extra helper methods can be implemented here for queries
@@ -34,11 +34,14 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Instance and Tenant discovery. It takes authorization endpoint and sends
@@ -65,18 +68,17 @@ final class Discovery {
     private static final String TENANT_DISCOVERY_ENDPOINT = "tenant_discovery_endpoint";
 
     /**
-     * Sync set of valid hosts to skip query to server if host was verified
-     * before.
+     * Sync set of the well-known hosts. Hosts and AD FS authorities validated
+     * by a query are kept in {@link AuthorityValidationCache}.
      */
-    private static final Set<String> VALID_HOSTS = Collections
-            .synchronizedSet(new HashSet<String>());
+    private static final Set<String> VALID_HOSTS =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
     /**
-     * Sync map of validated AD FS authorities and domains. Skips query to server
-     * if already verified
+     * Validations in flight, keyed by their {@link AuthorityValidationCache} key, so that
+     * concurrent first requests for the same authority share one validation.
      */
-    private static final Map<String, Set<URI>> ADFS_VALIDATED_AUTHORITIES =
-            Collections.synchronizedMap(new HashMap<String, Set<URI>>());
+    private static final SingleFlight<String, Boolean> VALIDATIONS = new SingleFlight<>();
 
     /**
      * Discovery query will go to the prod only for now.
@@ -85,6 +87,8 @@ final class Discovery {
 
     private UUID mCorrelationId;
 
+    private long mDeadlineMillis = 0;
+
     /**
      * interface to use in testing.
      */
@@ -100,23 +104,97 @@ final class Discovery {
         if (StringExtensions.isNullOrBlank(domain)) {
             throw new IllegalArgumentException("Cannot validate AD FS Authority with domain [null]");
         }
-        validateADFS(authorizationEndpoint, domain);
+        validateADFS(authorizationEndpoint, domain, mDeadlineMillis);
         validateAuthority(authorizationEndpoint);
     }
 
     void validateAuthority(final URL authorizationEndpoint) throws AuthenticationException {
         verifyAuthorityValidInstance(authorizationEndpoint);
 
-        if (!VALID_HOSTS.contains(authorizationEndpoint.getHost().toLowerCase(Locale.US))) {
+        final String host = authorizationEndpoint.getHost().toLowerCase(Locale.US);
+        if (!VALID_HOSTS.contains(host) && !AuthorityValidationCache.isValidated(
+                AuthorityValidationCache.hostKey(host), createHostRevalidation(authorizationEndpoint))) {
             // host can be the instance or inside the validated list.
             // Valid hosts will help to skip validation if validated before
             // call Callback and skip the look up
             // Only query from Prod instance for now, not all of the instances in the list
-            queryInstance(authorizationEndpoint);
+            validateOnce(AuthorityValidationCache.hostKey(host), new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws AuthenticationException {
+                    queryInstance(authorizationEndpoint);
+                    return Boolean.TRUE;
+                }
+            }, mDeadlineMillis);
+        }
+    }
+
+    /**
+     * Run the validation, or wait for the same validation already in flight.
+     */
+    private static void validateOnce(final String key, final Callable<Boolean> validation,
+                                     final long deadlineMillis) throws AuthenticationException {
+        try {
+            VALIDATIONS.execute(key, validation, deadlineMillis);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException) {
+                throw (AuthenticationException) e.getCause();
+            }
+
+            throw new AuthenticationException(OIDCError.DEVELOPER_AUTHORITY_IS_NOT_VALID_INSTANCE,
+                    e.getMessage(), e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, "Authority validation is interrupted.", e);
+        } catch (final TimeoutException e) {
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION,
+                    "Request deadline has passed while waiting for the authority validation in flight.", e);
+        }
+    }
+
+    private static Runnable createHostRevalidation(final URL authorizationEndpoint) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new Discovery().queryInstance(authorizationEndpoint);
+                } catch (final AuthenticationException e) {
+                    removeIfRejected(AuthorityValidationCache.hostKey(
+                            authorizationEndpoint.getHost().toLowerCase(Locale.US)), e);
+                }
+            }
+        };
+    }
+
+    private static Runnable createADFSRevalidation(final URL authorizationEndpoint, final URI authorityUri,
+                                                   final String domain) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    establishADFSTrust(authorizationEndpoint, authorityUri, domain, 0);
+                } catch (final AuthenticationException e) {
+                    removeIfRejected(AuthorityValidationCache.adfsKey(domain, authorityUri.toString()), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Forget a validation the server no longer confirms. Network errors keep it until it expires.
+     */
+    private static void removeIfRejected(final String key, final AuthenticationException e) {
+        if (e.getCode() == OIDCError.DEVELOPER_AUTHORITY_IS_NOT_VALID_INSTANCE && e.getCause() == null) {
+            Logger.w(TAG, "Authority is no longer valid, removing it from the validation cache.", "",
+                    e.getCode());
+            AuthorityValidationCache.remove(key);
+        } else {
+            Logger.w(TAG, "Authority revalidation failed, the validation is kept until it expires.",
+                    e.getMessage(), e.getCode());
         }
     }
 
-    private static void validateADFS(final URL authorizationEndpoint, final String domain)
+    private static void validateADFS(final URL authorizationEndpoint, final String domain,
+                                     final long deadlineMillis)
             throws AuthenticationException {
         // Maps & Sets of URLs perform domain name resolution for equals() & hashCode()
         // To prevent this from happening, store/consult the cache using the URI value
@@ -131,18 +209,34 @@ final class Discovery {
         }
 
         // First, consult the cache
-        if (ADFS_VALIDATED_AUTHORITIES.get(domain) != null
-                && ADFS_VALIDATED_AUTHORITIES.get(domain).contains(authorityUri)) {
+        if (AuthorityValidationCache.isValidated(AuthorityValidationCache.adfsKey(domain, authorityUri.toString()),
+                createADFSRevalidation(authorizationEndpoint, authorityUri, domain))) {
             // Trust has already been established, do not requery
             return;
         }
 
+        validateOnce(AuthorityValidationCache.adfsKey(domain, authorityUri.toString()), new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws AuthenticationException {
+                establishADFSTrust(authorizationEndpoint, authorityUri, domain, deadlineMillis);
+                return Boolean.TRUE;
+            }
+        }, deadlineMillis);
+    }
+
+    private static void establishADFSTrust(final URL authorizationEndpoint, final URI authorityUri,
+                                           final String domain, final long deadlineMillis)
+            throws AuthenticationException {
         // Get the DRS metadata
-        final DRSMetadata drsMetadata = new DRSMetadataRequestor().requestMetadata(domain);
+        final DRSMetadataRequestor drsMetadataRequestor = new DRSMetadataRequestor();
+        drsMetadataRequestor.setDeadline(deadlineMillis);
+        final DRSMetadata drsMetadata = drsMetadataRequestor.requestMetadata(domain);
 
         // Get the WebFinger metadata
+        final WebFingerMetadataRequestor webFingerMetadataRequestor = new WebFingerMetadataRequestor();
+        webFingerMetadataRequestor.setDeadline(deadlineMillis);
         final WebFingerMetadata webFingerMetadata =
-                new WebFingerMetadataRequestor() // create the requestor
+                webFingerMetadataRequestor
                         .requestMetadata(// request the data
                                 new WebFingerMetadataRequestParameters(// using these params
                                         authorizationEndpoint,
@@ -156,14 +250,7 @@ final class Discovery {
         }
 
         // Trust established, add it to the cache
-
-        // If this authorization endpoint doesn't already have a Set, create it
-        if (ADFS_VALIDATED_AUTHORITIES.get(domain) == null) {
-            ADFS_VALIDATED_AUTHORITIES.put(domain, new HashSet<URI>());
-        }
-
-        // Add the entry
-        ADFS_VALIDATED_AUTHORITIES.get(domain).add(authorityUri);
+        AuthorityValidationCache.put(AuthorityValidationCache.adfsKey(domain, authorityUri.toString()));
     }
 
     /**
@@ -175,6 +262,15 @@ final class Discovery {
         mCorrelationId = requestCorrelationId;
     }
 
+    /**
+     * Set the deadline for the discovery calls, taken from the {@link AuthenticationRequest}.
+     *
+     * @param deadlineMillis Time in milliseconds since epoch, 0 if there is no deadline.
+     */
+    void setDeadline(final long deadlineMillis) {
+        mDeadlineMillis = deadlineMillis;
+    }
+
     /**
      * initialize initial valid host list with known instances.
      */
@@ -227,7 +323,7 @@ final class Discovery {
         final HttpWebResponse webResponse;
         try {
             ClientMetrics.INSTANCE.beginClientMetricsRecord(queryUrl, mCorrelationId, headers);
-            webResponse = mWebrequestHandler.sendGet(queryUrl, headers);
+            webResponse = RetryingWebRequest.sendGet(mWebrequestHandler, queryUrl, headers, mDeadlineMillis);
             ClientMetrics.INSTANCE.setLastError(null);
 
             // parse discovery response to find tenant info
@@ -271,7 +367,7 @@ final class Discovery {
         if (!StringExtensions.isNullOrBlank(validHost)) {
             // for comparisons it uses Locale.US, so it needs to be same
             // here
-            VALID_HOSTS.add(validHost.toLowerCase(Locale.US));
+            AuthorityValidationCache.put(AuthorityValidationCache.hostKey(validHost.toLowerCase(Locale.US)));
         }
     }
 
@@ -43,6 +43,8 @@ final class EventStrings {
 
     static final String TOKEN_CACHE_DELETE = "Microsoft.ADAL.token_cache_delete";
 
+    static final String NEGATIVE_RESULT_CACHE_LOOKUP = "Microsoft.ADAL.negative_result_cache_lookup";
+
     // Event Parameter names
     static final String APPLICATION_NAME = "Microsoft.ADAL.application_name";
 
@@ -116,6 +118,8 @@ final class EventStrings {
 
     static final String CACHE_EVENT_COUNT = "Microsoft.ADAL.cache_event_count";
 
+    static final String NEGATIVE_RESULT_CACHE_HIT = "Microsoft.ADAL.negative_result_cache_hit";
+
     static final String UI_EVENT_COUNT = "Microsoft.ADAL.ui_event_count";
 
     static final String HTTP_EVENT_COUNT = "Microsoft.ADAL.http_event_count";
@@ -134,6 +138,32 @@ final class EventStrings {
 
     static final String HTTP_API_VERSION = "Microsoft.ADAL.api_version";
 
+    static final String HTTP_ATTEMPT = "Microsoft.ADAL.http_attempt";
+
+    static final String HTTP_RETRY_DELAY = "Microsoft.ADAL.http_retry_delay";
+
+    static final String HTTP_CIRCUIT_STATE = "Microsoft.ADAL.http_circuit_state";
+
+    static final String HTTP_RATE_LIMIT = "Microsoft.ADAL.http_rate_limit";
+
+    static final String HTTP_RATE_LIMIT_WAIT = "Microsoft.ADAL.http_rate_limit_wait";
+
+    static final String HTTP_CONNECTION_REUSED = "Microsoft.ADAL.http_connection_reused";
+
+    static final String HTTP_CONNECTION_REUSED_COUNT = "Microsoft.ADAL.http_connection_reused_count";
+
+    static final String HTTP_BYTES_SENT = "Microsoft.ADAL.http_bytes_sent";
+
+    static final String HTTP_BYTES_RECEIVED = "Microsoft.ADAL.http_bytes_received";
+
+    static final String HTTP_CONNECT_TIME = "Microsoft.ADAL.http_connect_time";
+
+    static final String HTTP_SEND_TIME = "Microsoft.ADAL.http_send_time";
+
+    static final String HTTP_WAIT_TIME = "Microsoft.ADAL.http_wait_time";
+
+    static final String HTTP_DOWNLOAD_TIME = "Microsoft.ADAL.http_download_time";
+
     static final String REQUEST_ID_HEADER = "Microsoft.ADAL.x_ms_request_id";
 
     // Parameter values
@@ -157,6 +187,8 @@ final class EventStrings {
 
     static final String ACQUIRE_TOKEN_WITH_REFRESH_TOKEN_2 = "5";
 
+    static final String ACQUIRE_TOKENS_SILENT_ASYNC = "6";
+
     static final String ACQUIRE_TOKEN_1 = "100";
 
     static final String ACQUIRE_TOKEN_2 = "104";
@@ -75,6 +75,55 @@ final class HttpEvent extends DefaultEvent {
         setProperty(EventStrings.HTTP_PATH, logPath.toString());
     }
 
+    void setAttempt(final int attempt) {
+        setProperty(EventStrings.HTTP_ATTEMPT, String.valueOf(attempt));
+    }
+
+    void setRetryDelay(final long retryDelayMillis) {
+        setProperty(EventStrings.HTTP_RETRY_DELAY, String.valueOf(retryDelayMillis));
+    }
+
+    void setCircuitState(final String circuitState) {
+        setProperty(EventStrings.HTTP_CIRCUIT_STATE, circuitState);
+    }
+
+    /**
+     * Record a token request over the client side rate limit.
+     *
+     * @param outcome "queued" or "rejected"
+     * @param waitMillis time until the rate limit lets the request through
+     */
+    void setRateLimit(final String outcome, final long waitMillis) {
+        setProperty(EventStrings.HTTP_RATE_LIMIT, outcome);
+        setProperty(EventStrings.HTTP_RATE_LIMIT_WAIT, String.valueOf(waitMillis));
+    }
+
+    /**
+     * Record the connection reuse, the byte counts and the phase durations of the request.
+     * Phases the transport did not report are left out.
+     *
+     * @param timing {@link HttpRequestTiming} of the request, could be null.
+     */
+    void setTiming(final HttpRequestTiming timing) {
+        if (timing == null) {
+            return;
+        }
+
+        setProperty(EventStrings.HTTP_CONNECTION_REUSED, String.valueOf(timing.isConnectionReused()));
+        setKnownValue(EventStrings.HTTP_BYTES_SENT, timing.getBytesSent());
+        setKnownValue(EventStrings.HTTP_BYTES_RECEIVED, timing.getBytesReceived());
+        setKnownValue(EventStrings.HTTP_CONNECT_TIME, timing.getConnectMillis());
+        setKnownValue(EventStrings.HTTP_SEND_TIME, timing.getSendMillis());
+        setKnownValue(EventStrings.HTTP_WAIT_TIME, timing.getWaitMillis());
+        setKnownValue(EventStrings.HTTP_DOWNLOAD_TIME, timing.getDownloadMillis());
+    }
+
+    private void setKnownValue(final String name, final long value) {
+        if (value != HttpRequestTiming.UNKNOWN) {
+            setProperty(name, String.valueOf(value));
+        }
+    }
+
     void setOauthErrorCode(final String errorCode) {
         setProperty(EventStrings.OAUTH_ERROR_CODE, errorCode);
     }
@@ -85,7 +134,8 @@ final class HttpEvent extends DefaultEvent {
 
     /**
      * Each event chooses which of its members get picked on aggregation.
-     * Http event adds an event count field
+     * Http event adds an event count field, and sums the byte counts, phase
+     * durations and reused connections over all http events of the request.
      * @param dispatchMap the Map that is filled with the aggregated event properties
      */
     @Override
@@ -116,14 +166,46 @@ final class HttpEvent extends DefaultEvent {
             dispatchMap.put(EventStrings.REQUEST_ID_HEADER, "");
         }
 
+        if (dispatchMap.containsKey(EventStrings.HTTP_ATTEMPT)) {
+            dispatchMap.put(EventStrings.HTTP_ATTEMPT, "");
+        }
+
+        if (dispatchMap.containsKey(EventStrings.HTTP_RETRY_DELAY)) {
+            dispatchMap.put(EventStrings.HTTP_RETRY_DELAY, "");
+        }
+
+        if (dispatchMap.containsKey(EventStrings.HTTP_CIRCUIT_STATE)) {
+            dispatchMap.put(EventStrings.HTTP_CIRCUIT_STATE, "");
+        }
+
+        if (dispatchMap.containsKey(EventStrings.HTTP_RATE_LIMIT)) {
+            dispatchMap.put(EventStrings.HTTP_RATE_LIMIT, "");
+            dispatchMap.put(EventStrings.HTTP_RATE_LIMIT_WAIT, "");
+        }
+
         final List<Pair<String, String>> eventList = getEventList();
         for (Pair<String, String> eventPair : eventList) {
             final String name = eventPair.first;
 
             if (name.equals(EventStrings.HTTP_RESPONSE_CODE) || name.equals(EventStrings.REQUEST_ID_HEADER)
-                    || name.equals(EventStrings.OAUTH_ERROR_CODE) || name.equals(EventStrings.HTTP_PATH)) {
+                    || name.equals(EventStrings.OAUTH_ERROR_CODE) || name.equals(EventStrings.HTTP_PATH)
+                    || name.equals(EventStrings.HTTP_ATTEMPT) || name.equals(EventStrings.HTTP_RETRY_DELAY)
+                    || name.equals(EventStrings.HTTP_CIRCUIT_STATE)
+                    || name.equals(EventStrings.HTTP_RATE_LIMIT) || name.equals(EventStrings.HTTP_RATE_LIMIT_WAIT)) {
                 dispatchMap.put(name, eventPair.second);
+            } else if (name.equals(EventStrings.HTTP_BYTES_SENT) || name.equals(EventStrings.HTTP_BYTES_RECEIVED)
+                    || name.equals(EventStrings.HTTP_CONNECT_TIME) || name.equals(EventStrings.HTTP_SEND_TIME)
+                    || name.equals(EventStrings.HTTP_WAIT_TIME) || name.equals(EventStrings.HTTP_DOWNLOAD_TIME)) {
+                addToTotal(dispatchMap, name, Long.parseLong(eventPair.second));
+            } else if (name.equals(EventStrings.HTTP_CONNECTION_REUSED)) {
+                addToTotal(dispatchMap, EventStrings.HTTP_CONNECTION_REUSED_COUNT,
+                        Boolean.parseBoolean(eventPair.second) ? 1 : 0);
             }
         }
     }
+
+    private static void addToTotal(final Map<String, String> dispatchMap, final String name, final long value) {
+        final String total = dispatchMap.get(name);
+        dispatchMap.put(name, Long.toString(total == null ? value : Long.parseLong(total) + value));
+    }
 }
@@ -0,0 +1,144 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.net.URL;
+
+/**
+ * Captures the phases of one HTTP request as reported by the {@link IHttpTransport}.
+ * Times are measured with {@link System#nanoTime()} and a phase the transport did
+ * not report is returned as {@link #UNKNOWN}. {@link java.net.HttpURLConnection} resolves
+ * DNS and negotiates TLS inside connect, so these are part of the connect phase.
+ */
+final class HttpRequestTiming implements IHttpTransportListener {
+
+    static final long UNKNOWN = -1;
+
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private final boolean mConnectionReused;
+    private long mConnectStartNanos;
+    private long mConnectEndNanos;
+    private long mRequestSentNanos;
+    private long mResponseHeadersNanos;
+    private long mResponseBodyEndNanos;
+    private long mBytesSent = UNKNOWN;
+    private long mBytesReceived = UNKNOWN;
+
+    /**
+     * @param connectionReused True if the request is expected to go on a pooled connection.
+     */
+    HttpRequestTiming(final boolean connectionReused) {
+        mConnectionReused = connectionReused;
+    }
+
+    @Override
+    public void onConnectStart(final URL url) {
+        mConnectStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onConnectEnd(final URL url) {
+        mConnectEndNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onRequestSent(final URL url, final long bytesSent) {
+        mRequestSentNanos = System.nanoTime();
+        mBytesSent = bytesSent;
+    }
+
+    @Override
+    public void onResponseHeaders(final URL url, final int statusCode) {
+        mResponseHeadersNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onResponseBodyEnd(final URL url, final long bytesReceived) {
+        mResponseBodyEndNanos = System.nanoTime();
+        mBytesReceived = bytesReceived;
+    }
+
+    boolean isConnectionReused() {
+        return mConnectionReused;
+    }
+
+    /**
+     * @return True if the transport reported the request headers and body as fully written.
+     */
+    boolean isRequestSent() {
+        return mRequestSentNanos != 0;
+    }
+
+    /**
+     * @return True if the transport reported the status line and headers of the response.
+     */
+    boolean hasResponseHeaders() {
+        return mResponseHeadersNanos != 0;
+    }
+
+    long getBytesSent() {
+        return mBytesSent;
+    }
+
+    long getBytesReceived() {
+        return mBytesReceived;
+    }
+
+    /**
+     * @return Time to open the connection, including DNS and TLS, in milliseconds.
+     */
+    long getConnectMillis() {
+        return elapsedMillis(mConnectStartNanos, mConnectEndNanos);
+    }
+
+    /**
+     * @return Time to write the request headers and body in milliseconds.
+     */
+    long getSendMillis() {
+        return elapsedMillis(mConnectEndNanos, mRequestSentNanos);
+    }
+
+    /**
+     * @return Time from the request sent to the response headers in milliseconds.
+     */
+    long getWaitMillis() {
+        return elapsedMillis(mRequestSentNanos, mResponseHeadersNanos);
+    }
+
+    /**
+     * @return Time to read the response body in milliseconds.
+     */
+    long getDownloadMillis() {
+        return elapsedMillis(mResponseHeadersNanos, mResponseBodyEndNanos);
+    }
+
+    private static long elapsedMillis(final long startNanos, final long endNanos) {
+        if (startNanos == 0 || endNanos == 0) {
+            return UNKNOWN;
+        }
+
+        return (endNanos - startNanos) / NANOS_PER_MILLI;
+    }
+}
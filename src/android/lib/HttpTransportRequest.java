@@ -0,0 +1,213 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable HTTP request handed to an {@link IHttpTransport}.
+ */
+public final class HttpTransportRequest {
+
+    private static final IHttpTransportListener NO_OP_LISTENER = new IHttpTransportListener() {
+        @Override
+        public void onConnectStart(URL url) {
+            // Intentionally left blank
+        }
+
+        @Override
+        public void onConnectEnd(URL url) {
+            // Intentionally left blank
+        }
+
+        @Override
+        public void onRequestSent(URL url, long bytesSent) {
+            // Intentionally left blank
+        }
+
+        @Override
+        public void onResponseHeaders(URL url, int statusCode) {
+            // Intentionally left blank
+        }
+
+        @Override
+        public void onResponseBodyEnd(URL url, long bytesReceived) {
+            // Intentionally left blank
+        }
+    };
+
+    private final URL mUrl;
+    private final String mRequestMethod;
+    private final Map<String, String> mHeaders;
+    private final byte[] mContent;
+    private final String mContentType;
+    private final int mConnectTimeOut;
+    private final int mReadTimeOut;
+    private final long mDeadlineMillis;
+    private final IHttpTransportListener mListener;
+
+    /**
+     * The headers map is owned by the request from here on and is not copied.
+     */
+    HttpTransportRequest(
+            URL url,
+            String requestMethod,
+            Map<String, String> headers,
+            byte[] content,
+            String contentType,
+            int connectTimeOut,
+            int readTimeOut,
+            long deadlineMillis,
+            IHttpTransportListener listener) {
+        mUrl = url;
+        mRequestMethod = requestMethod;
+        mHeaders = Collections.unmodifiableMap(headers);
+        mContent = content;
+        mContentType = contentType;
+        mConnectTimeOut = connectTimeOut;
+        mReadTimeOut = readTimeOut;
+        mDeadlineMillis = deadlineMillis;
+        mListener = listener == null ? NO_OP_LISTENER : listener;
+    }
+
+    /**
+     * @return {@link URL} of the request.
+     */
+    public URL getUrl() {
+        return mUrl;
+    }
+
+    /**
+     * @return Request method, GET or POST.
+     */
+    public String getRequestMethod() {
+        return mRequestMethod;
+    }
+
+    /**
+     * @return Unmodifiable map of the request headers, including Host.
+     */
+    public Map<String, String> getHeaders() {
+        return mHeaders;
+    }
+
+    /**
+     * @return True if the request has a body.
+     */
+    public boolean hasContent() {
+        return mContent != null;
+    }
+
+    /**
+     * @return Length of the request body in bytes, 0 if there is no body.
+     */
+    public int getContentLength() {
+        return mContent == null ? 0 : mContent.length;
+    }
+
+    /**
+     * @return Content type of the request body, could be null.
+     */
+    public String getContentType() {
+        return mContentType;
+    }
+
+    /**
+     * Write the request body to the stream.
+     *
+     * @param outputStream {@link OutputStream} to write the body to.
+     * @throws IOException when the body cannot be written.
+     */
+    public void writeContent(final OutputStream outputStream) throws IOException {
+        if (mContent != null) {
+            outputStream.write(mContent);
+        }
+    }
+
+    /**
+     * @return Connect timeout in milliseconds.
+     */
+    public int getConnectTimeOut() {
+        return mConnectTimeOut;
+    }
+
+    /**
+     * @return Read timeout in milliseconds.
+     */
+    public int getReadTimeOut() {
+        return mReadTimeOut;
+    }
+
+    /**
+     * @return Deadline of the request in milliseconds since epoch, 0 if there is none.
+     */
+    public long getDeadlineMillis() {
+        return mDeadlineMillis;
+    }
+
+    /**
+     * Get the read timeout capped to the time left before the deadline, so that the connect
+     * and read phases share the budget of the request. Transports call it again once connected
+     * and before reading the response.
+     *
+     * @return Read timeout in milliseconds.
+     * @throws SocketTimeoutException if the deadline has passed.
+     */
+    public int getRemainingReadTimeOut() throws SocketTimeoutException {
+        if (mDeadlineMillis <= 0) {
+            return mReadTimeOut;
+        }
+
+        final long remainingMillis = mDeadlineMillis - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            throw new SocketTimeoutException("Request deadline has passed before reading from " + mUrl.getHost());
+        }
+
+        return capTimeOut(mReadTimeOut, remainingMillis);
+    }
+
+    /**
+     * @param timeOut Configured timeout, 0 means no timeout.
+     * @param remainingMillis Time left before the deadline, greater than 0.
+     */
+    static int capTimeOut(final int timeOut, final long remainingMillis) {
+        if (timeOut > 0 && timeOut <= remainingMillis) {
+            return timeOut;
+        }
+
+        return (int) Math.min(remainingMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return Non-null {@link IHttpTransportListener} to report timing to.
+     */
+    public IHttpTransportListener getListener() {
+        return mListener;
+    }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP response returned by an {@link IHttpTransport}. The body is streamed and
+ * must be closed by the caller, closing it releases the underlying connection.
+ */
+public class HttpTransportResponse implements Closeable {
+
+    private final int mStatusCode;
+    private final Map<String, List<String>> mHeaders;
+    private final InputStream mBody;
+
+    /**
+     * @param statusCode Response status code.
+     * @param headers Response headers.
+     * @param body Response body stream, could be null if the response has no body.
+     */
+    public HttpTransportResponse(int statusCode, Map<String, List<String>> headers, InputStream body) {
+        mStatusCode = statusCode;
+        mHeaders = headers;
+        mBody = body;
+    }
+
+    /**
+     * @return Response status code.
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * @return Response headers.
+     */
+    public Map<String, List<String>> getHeaders() {
+        return mHeaders;
+    }
+
+    /**
+     * @return Response body stream, could be null.
+     */
+    public InputStream getBody() {
+        return mBody;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mBody != null) {
+            mBody.close();
+        }
+    }
+}
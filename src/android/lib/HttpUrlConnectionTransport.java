@@ -0,0 +1,287 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link IHttpTransport} backed by {@link HttpURLConnection}. Connections
+ * are created through {@link HttpUrlConnectionFactory} so that tests can inject
+ * a mocked connection. Kept-alive connections are capped per host with
+ * {@link AuthenticationSettings#getMaxIdleConnections()}, a connection over the cap is
+ * closed instead of being returned into the platform pool.
+ */
+final class HttpUrlConnectionTransport implements IHttpTransport {
+
+    private static final String TAG = "HttpUrlConnectionTransport";
+
+    private static final String HEADER_CONNECTION = "Connection";
+
+    /**
+     * Connections this transport returned into the platform pool, per scheme, host and port.
+     */
+    private static final ConcurrentMap<String, AtomicInteger> IDLE_CONNECTIONS = new ConcurrentHashMap<>();
+
+    @Override
+    public HttpTransportResponse execute(final HttpTransportRequest request) throws IOException {
+        final IHttpTransportListener listener = request.getListener();
+        final AtomicInteger idleConnections = isKeepAlive(request.getHeaders().get(HEADER_CONNECTION))
+                ? getIdleConnections(request.getUrl()) : null;
+        if (idleConnections != null) {
+            // The request takes a pooled connection if there is one
+            decrementIfPositive(idleConnections);
+        }
+
+        listener.onConnectStart(request.getUrl());
+
+        final HttpURLConnection connection = setupConnection(request);
+        // Connect explicitly so that the connect phase is timed apart from the request body
+        connection.connect();
+        listener.onConnectEnd(request.getUrl());
+        // Connect and read share the deadline, the read gets the time the connect left
+        connection.setReadTimeout(request.getRemainingReadTimeOut());
+        writeRequestBody(connection, request);
+        connection.setReadTimeout(request.getRemainingReadTimeOut());
+
+        InputStream responseStream;
+        try {
+            responseStream = connection.getInputStream();
+        } catch (IOException ex) {
+            Logger.e(TAG, "IOException:" + ex.getMessage(), "", OIDCError.SERVER_ERROR);
+            // If it does not get the error stream, it will return
+            // exception in the httpresponse
+            responseStream = connection.getErrorStream();
+            if (responseStream == null) {
+                throw ex;
+            }
+        }
+
+        // GET request should read status after getInputStream to make
+        // this work for different SDKs
+        final int statusCode = connection.getResponseCode();
+        listener.onResponseHeaders(request.getUrl(), statusCode);
+
+        // We are not disconnecting from network to allow connection to be returned into the
+        // connection pool once the body is closed.
+        final Map<String, List<String>> headers = connection.getHeaderFields();
+        return new HttpTransportResponse(statusCode, headers,
+                new CountingInputStream(responseStream, request.getUrl(), listener, connection,
+                        idleConnections != null && isKeptAlive(headers) ? idleConnections : null));
+    }
+
+    private static AtomicInteger getIdleConnections(final URL url) {
+        final String key = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+        AtomicInteger idleConnections = IDLE_CONNECTIONS.get(key);
+        if (idleConnections == null) {
+            final AtomicInteger newIdleConnections = new AtomicInteger();
+            idleConnections = IDLE_CONNECTIONS.putIfAbsent(key, newIdleConnections);
+            if (idleConnections == null) {
+                idleConnections = newIdleConnections;
+            }
+        }
+
+        return idleConnections;
+    }
+
+    private static void decrementIfPositive(final AtomicInteger counter) {
+        int current;
+        do {
+            current = counter.get();
+            if (current <= 0) {
+                return;
+            }
+        } while (!counter.compareAndSet(current, current - 1));
+    }
+
+    /**
+     * @return true if a slot below the idle connection cap is taken.
+     */
+    private static boolean incrementIfBelowCap(final AtomicInteger counter) {
+        final int cap = AuthenticationSettings.INSTANCE.getMaxIdleConnections();
+        int current;
+        do {
+            current = counter.get();
+            if (current >= cap) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    private static boolean isKeepAlive(final String connectionHeader) {
+        return connectionHeader == null || !"close".equalsIgnoreCase(connectionHeader.trim());
+    }
+
+    private static boolean isKeptAlive(final Map<String, List<String>> headers) {
+        if (headers == null) {
+            return true;
+        }
+
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (HEADER_CONNECTION.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
+                for (final String value : entry.getValue()) {
+                    if (!isKeepAlive(value)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static HttpURLConnection setupConnection(final HttpTransportRequest request) throws IOException {
+        HttpURLConnection.setFollowRedirects(true);
+        final HttpURLConnection connection = HttpUrlConnectionFactory.createHttpUrlConnection(request.getUrl());
+        connection.setConnectTimeout(request.getConnectTimeOut());
+
+        // Apply the request headers
+        for (final Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        }
+
+        connection.setReadTimeout(request.getReadTimeOut());
+        connection.setInstanceFollowRedirects(true);
+        connection.setUseCaches(false);
+        connection.setRequestMethod(request.getRequestMethod());
+        connection.setDoInput(true); // it will at least read status
+                                     // code. Default is true.
+        if (request.hasContent()) {
+            connection.setDoOutput(true);
+
+            final String requestContentType = request.getContentType();
+            if (null != requestContentType && !requestContentType.isEmpty()) {
+                connection.setRequestProperty("Content-Type", requestContentType);
+            }
+
+            connection.setRequestProperty("Content-Length",
+                    Integer.toString(request.getContentLength()));
+            connection.setFixedLengthStreamingMode(request.getContentLength());
+        }
+
+        return connection;
+    }
+
+    private static void writeRequestBody(final HttpURLConnection connection, final HttpTransportRequest request)
+            throws IOException {
+        if (request.hasContent()) {
+            OutputStream out = null;
+            try {
+                out = connection.getOutputStream();
+                request.writeContent(out);
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        request.getListener().onRequestSent(request.getUrl(), request.getContentLength());
+    }
+
+    /**
+     * Counts the body bytes and reports them once the body is fully read or closed. On close,
+     * the connection is returned into the pool if the host is below the idle connection cap,
+     * otherwise it is disconnected.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final URL mUrl;
+        private final IHttpTransportListener mListener;
+        private final HttpURLConnection mConnection;
+        private final AtomicInteger mIdleConnections;
+        private long mBytesRead = 0;
+        private boolean mReported = false;
+        private boolean mClosed = false;
+
+        /**
+         * @param idleConnections Idle connection counter of the host, null if the connection is not kept alive.
+         */
+        CountingInputStream(final InputStream in, final URL url, final IHttpTransportListener listener,
+                            final HttpURLConnection connection, final AtomicInteger idleConnections) {
+            super(in);
+            mUrl = url;
+            mListener = listener;
+            mConnection = connection;
+            mIdleConnections = idleConnections;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int value = super.read();
+            if (value == -1) {
+                reportEnd();
+            } else {
+                mBytesRead++;
+            }
+
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+            final int read = super.read(buffer, offset, count);
+            if (read == -1) {
+                reportEnd();
+            } else {
+                mBytesRead += read;
+            }
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reportEnd();
+            if (mClosed) {
+                return;
+            }
+
+            mClosed = true;
+            if (mIdleConnections != null && !incrementIfBelowCap(mIdleConnections)) {
+                Logger.v(TAG, "Idle connection limit of the host is reached, closing the connection.");
+                mConnection.disconnect();
+            }
+
+            super.close();
+        }
+
+        private void reportEnd() {
+            if (!mReported) {
+                mReported = true;
+                mListener.onResponseBodyEnd(mUrl, mBytesRead);
+            }
+        }
+    }
+}
@@ -28,17 +28,17 @@ import android.os.Build;
 import android.os.Debug;
 import android.os.Process;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Webrequest are called in background thread from API level. HttpWebRequest
@@ -47,16 +47,18 @@ import java.util.Set;
 class HttpWebRequest {
     static final String REQUEST_METHOD_POST = "POST";
     static final String REQUEST_METHOD_GET = "GET";
+    static final String REQUEST_METHOD_HEAD = "HEAD";
 
     private static final String TAG = "HttpWebRequest";
     private static final int DEBUG_SIMULATE_DELAY = 0;
-    private static final int CONNECT_TIME_OUT = AuthenticationSettings.INSTANCE.getConnectTimeOut();
-    private static final int READ_TIME_OUT = AuthenticationSettings.INSTANCE.getReadTimeOut();
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
     private final String mRequestMethod;
     private final URL mUrl;
     private final byte[] mRequestContent;
     private final String mRequestContentType;
     private final Map<String, String> mRequestHeaders;
+    private Map<String, String> mDefaultHeaders = Collections.emptyMap();
+    private long mDeadlineMillis = 0;
 
     public HttpWebRequest(URL requestURL, String requestMethod, Map<String, String> headers) {
         this(requestURL, requestMethod, headers, null, null);
@@ -70,20 +72,41 @@ class HttpWebRequest {
             String requestContentType) {
         mUrl = requestURL;
         mRequestMethod = requestMethod;
-        mRequestHeaders = new HashMap<>();
-        if (mUrl != null) {
-            mRequestHeaders.put("Host", mUrl.getAuthority());
-        }
-        mRequestHeaders.putAll(headers);
+        // Merged with the default headers once, when the request is sent
+        mRequestHeaders = headers;
         mRequestContent = requestContent;
         mRequestContentType = requestContentType;
     }
 
     /**
-     * setupConnection before sending the request.
+     * Set the headers sent with every request, the request headers take precedence.
+     *
+     * @param defaultHeaders Immutable headers shared by all requests.
+     */
+    void setDefaultHeaders(final Map<String, String> defaultHeaders) {
+        mDefaultHeaders = defaultHeaders;
+    }
+
+    /**
+     * Set the deadline of the request, connect and read timeouts are capped to the time left.
+     *
+     * @param deadlineMillis Time in milliseconds since epoch, 0 if the request has no deadline.
+     */
+    void setDeadline(final long deadlineMillis) {
+        mDeadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Build the transport request. Timeouts are read from {@link AuthenticationSettings}
+     * for every request so that changes made after class load are honored.
+     *
+     * @param keepAlive True to leave the connection in the pool after the response is read.
+     * @param timing {@link HttpRequestTiming} the transport reports the request phases to.
+     * @throws SocketTimeoutException if the deadline of the request has passed.
      */
-    private HttpURLConnection setupConnection() throws IOException {
-        Logger.v(TAG, "HttpWebRequest setupConnection thread:" + android.os.Process.myTid());
+    private HttpTransportRequest buildTransportRequest(final boolean keepAlive, final HttpRequestTiming timing)
+            throws SocketTimeoutException {
+        Logger.v(TAG, "HttpWebRequest buildTransportRequest thread:" + android.os.Process.myTid());
         if (mUrl == null) {
             throw new IllegalArgumentException("requestURL");
         }
@@ -91,56 +114,109 @@ class HttpWebRequest {
                 && !mUrl.getProtocol().equalsIgnoreCase("https")) {
             throw new IllegalArgumentException("requestURL");
         }
-        HttpURLConnection.setFollowRedirects(true);
-        final HttpURLConnection connection = HttpUrlConnectionFactory.createHttpUrlConnection(mUrl);
-        connection.setConnectTimeout(CONNECT_TIME_OUT);
+
+        // Sized for the merged headers plus Host, Accept-Encoding and Connection
+        final Map<String, String> headers = new HashMap<>(
+                (mDefaultHeaders.size() + mRequestHeaders.size() + 3) * 4 / 3 + 1);
+        headers.putAll(mDefaultHeaders);
+        headers.put("Host", mUrl.getAuthority());
+        headers.putAll(mRequestHeaders);
+        if (!headers.containsKey(HEADER_ACCEPT_ENCODING)) {
+            // Decompressed by ResponseBodyReader
+            headers.put(HEADER_ACCEPT_ENCODING, "gzip");
+        }
+
         // To prevent EOF exception.
-        if (Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB_MR2) {
-            connection.setRequestProperty("Connection", "close");
+        if (!keepAlive && Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB_MR2) {
+            headers.put("Connection", "close");
         }
 
-        // Apply the request headers
-        final Set<Map.Entry<String, String>> headerEntries = mRequestHeaders.entrySet();
-        for (final Map.Entry<String, String> entry : headerEntries) {
-            Logger.v(TAG, "Setting header: " + entry.getKey());
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        if (Logger.isVerboseEnabled()) {
+            for (final String header : headers.keySet()) {
+                Logger.v(TAG, "Setting header: " + header);
+            }
         }
 
-        connection.setReadTimeout(READ_TIME_OUT);
-        connection.setInstanceFollowRedirects(true);
-        connection.setUseCaches(false);
-        connection.setRequestMethod(mRequestMethod);
-        connection.setDoInput(true); // it will at least read status
-                                     // code. Default is true.
-        setRequestBody(connection, mRequestContent, mRequestContentType);
+        int connectTimeOut = AuthenticationSettings.INSTANCE.getConnectTimeOut();
+        int readTimeOut = AuthenticationSettings.INSTANCE.getReadTimeOut();
+        if (mDeadlineMillis > 0) {
+            final long remainingMillis = RetryingWebRequest.getRemainingMillis(mDeadlineMillis);
+            if (remainingMillis <= 0) {
+                throw new SocketTimeoutException("Request deadline has passed before sending to " + mUrl.getHost());
+            }
+
+            // The read timeout is capped again by the transport with the time left once connected
+            connectTimeOut = HttpTransportRequest.capTimeOut(connectTimeOut, remainingMillis);
+            readTimeOut = HttpTransportRequest.capTimeOut(readTimeOut, remainingMillis);
+        }
 
-        return connection;
+        return new HttpTransportRequest(mUrl, mRequestMethod, headers, mRequestContent, mRequestContentType,
+                connectTimeOut, readTimeOut, mDeadlineMillis, timing);
     }
 
     /**
-     * send the request.
+     * send the request. If connection reuse is enabled and the pooled connection
+     * turns out to be stale before the server could have processed the request,
+     * the request is sent once more on a new connection.
      */
     public HttpWebResponse send() throws IOException {
+        if (!AuthenticationSettings.INSTANCE.getReuseConnections() || mUrl == null) {
+            return send(false, new HttpRequestTiming(false));
+        }
+
+        final String host = mUrl.getHost();
+        final boolean isReused = ConnectionReuseMetrics.INSTANCE.recordRequest(host);
+        final HttpRequestTiming timing = new HttpRequestTiming(isReused);
+        try {
+            final HttpWebResponse response = send(true, timing);
+            ConnectionReuseMetrics.INSTANCE.recordResponse(host, isKeptAlive(response));
+            return response;
+        } catch (final EOFException | SocketException ex) {
+            if (!isStaleConnection(timing)) {
+                throw ex;
+            }
+
+            // Server closed the pooled connection while it was idle, no response was read.
+            Logger.w(TAG, "Pooled connection is stale, retrying on a new connection.",
+                    ex.getMessage(), OIDCError.IO_EXCEPTION);
+            ConnectionReuseMetrics.INSTANCE.recordStaleRetry(host);
+            return send(false, new HttpRequestTiming(false));
+        }
+    }
+
+    /**
+     * A failure is only treated as a stale pooled connection if the connection was reused and
+     * the server cannot have processed the request: a GET that failed before the status line
+     * was read, or a request with a body that failed before the body was fully written. A body
+     * sent with a fixed Content-Length is not processed by the server until it is complete.
+     * Transports may skip the phases they cannot observe, so the body is only known to be unsent
+     * with the default transport, which always reports it. POSTs on other transports are never
+     * retried, a refresh token or code redemption must not be replayed.
+     */
+    private boolean isStaleConnection(final HttpRequestTiming timing) {
+        if (!timing.isConnectionReused() || timing.hasResponseHeaders()) {
+            return false;
+        }
+
+        if (REQUEST_METHOD_GET.equals(mRequestMethod)) {
+            return true;
+        }
+
+        return AuthenticationSettings.INSTANCE.getHttpTransport() instanceof HttpUrlConnectionTransport
+                && !timing.isRequestSent();
+    }
+
+    private HttpWebResponse send(final boolean keepAlive, final HttpRequestTiming timing) throws IOException {
         Logger.v(TAG, "HttpWebRequest send thread:" + Process.myTid());
-        final HttpURLConnection connection = setupConnection();
+        final HttpTransportRequest request = buildTransportRequest(keepAlive, timing);
+        final HttpTransportResponse transportResponse =
+                AuthenticationSettings.INSTANCE.getHttpTransport().execute(request);
         final HttpWebResponse response;
-        InputStream responseStream = null;
         try {
-            try {
-                responseStream = connection.getInputStream();
-            } catch (IOException ex) {
-                Logger.e(TAG, "IOException:" + ex.getMessage(), "", OIDCError.SERVER_ERROR);
-                // If it does not get the error stream, it will return
-                // exception in the httpresponse
-                responseStream = connection.getErrorStream();
-                if (responseStream == null) {
-                    throw ex;
-                }
-            }
-            // GET request should read status after getInputStream to make
-            // this work for different SDKs
-            final int statusCode = connection.getResponseCode();
-            final String responseBody = convertStreamToString(responseStream);
+            final String responseBody = transportResponse.getBody() == null
+                    || !hasResponseBody(transportResponse.getStatusCode())
+                    ? "" : ResponseBodyReader.read(transportResponse.getBody(), transportResponse.getHeaders(),
+                    AuthenticationSettings.INSTANCE.getMaxResponseSize());
 
             // It will only run in debugger and set from outside for testing
             if (Debug.isDebuggerConnected() && DEBUG_SIMULATE_DELAY > 0) {
@@ -154,20 +230,43 @@ class HttpWebRequest {
             }
 
             Logger.v(TAG, "Response is received");
-            response = new HttpWebResponse(statusCode, responseBody, connection.getHeaderFields());
+            response = new HttpWebResponse(transportResponse.getStatusCode(), responseBody,
+                    transportResponse.getHeaders());
         } finally {
-            safeCloseStream(responseStream);
-            // We are not disconnecting from network to allow connection to be returned into the
-            // connection pool. If we call disconnect due to buggy implementation we are not reusing
-            // connections.
-            //if (connection != null) {
-            //	connection.disconnect();
-            //}
+            // Closing the body returns the connection into the connection pool.
+            safeCloseStream(transportResponse);
         }
 
+        // Set after the body is closed so that the download phase is complete
+        response.setTiming(timing);
+
         return response;
     }
     
+    /**
+     * HEAD requests and 204 and 304 responses have no body, whatever their headers say.
+     */
+    private boolean hasResponseBody(final int statusCode) {
+        return !REQUEST_METHOD_HEAD.equals(mRequestMethod) && statusCode != HttpURLConnection.HTTP_NO_CONTENT
+                && statusCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    private static boolean isKeptAlive(final HttpWebResponse response) {
+        final Map<String, List<String>> headers = response.getResponseHeaders();
+        if (headers == null) {
+            return true;
+        }
+
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if ("Connection".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null
+                    && entry.getValue().contains("close")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     static void throwIfNetworkNotAvailable(final Context context) throws AuthenticationException {
         final DefaultConnectionService connectionService = new DefaultConnectionService(context);
         if (!connectionService.isConnectionAvailable()) {
@@ -181,56 +280,6 @@ class HttpWebRequest {
         }
     } 
 
-    /**
-     * Convert stream into the string.
-     *
-     * @param inputStream {@link InputStream} to be converted to be a string.
-     * @return The converted string
-     * @throws IOException Thrown when failing to access inputStream stream.
-     */
-    private static String convertStreamToString(InputStream inputStream) throws IOException {
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (sb.length() > 0) {
-                    sb.append('\n');
-                }
-                sb.append(line);
-            }
-
-            return sb.toString();
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
-        }
-    }
-
-    private static void setRequestBody(HttpURLConnection connection, byte[] contentRequest, String requestContentType) throws IOException {
-        if (null != contentRequest) {
-            connection.setDoOutput(true);
-
-            if (null != requestContentType && !requestContentType.isEmpty()) {
-                connection.setRequestProperty("Content-Type", requestContentType);
-            }
-
-            connection.setRequestProperty("Content-Length",
-                    Integer.toString(contentRequest.length));
-            connection.setFixedLengthStreamingMode(contentRequest.length);
-
-            OutputStream out = null;
-            try {
-                out = connection.getOutputStream();
-                out.write(contentRequest);
-            } finally {
-                safeCloseStream(out);
-            }
-        }
-    }
-
     /**
      * Close the stream safely.
      *
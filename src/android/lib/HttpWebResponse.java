@@ -23,16 +23,29 @@
 
 package com.cordova.plugin.oidc;
 
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Web response to keep status, response body, headers and related exceptions.
  */
 public class HttpWebResponse {
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String MAX_AGE = "max-age=";
+    private static final String NO_CACHE = "no-cache";
+    private static final String NO_STORE = "no-store";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final int MILLIS_PER_SECOND = 1000;
+
     private final int mStatusCode;
     private final String mResponseBody;
     private final Map<String, List<String>> mResponseHeaders;
+    private HttpRequestTiming mTiming;
 
     /**
      * Constructor for {@link HttpWebResponse}.
@@ -66,4 +79,93 @@ public class HttpWebResponse {
     public String getBody() {
         return mResponseBody;
     }
+
+    /**
+     * @return {@link HttpRequestTiming} of the network call, null if it was not captured.
+     */
+    HttpRequestTiming getTiming() {
+        return mTiming;
+    }
+
+    void setTiming(final HttpRequestTiming timing) {
+        mTiming = timing;
+    }
+
+    /**
+     * @param name Header name, compared ignoring case.
+     * @return The first value of the response header, or null if the header is missing.
+     */
+    public String getResponseHeader(final String name) {
+        if (mResponseHeaders == null) {
+            return null;
+        }
+
+        for (final Map.Entry<String, List<String>> entry : mResponseHeaders.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null
+                    && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The freshness lifetime in milliseconds given by the Cache-Control header,
+     * 0 for no-cache, or -1 if the header has neither max-age nor no-cache.
+     */
+    public long getCacheMaxAgeMillis() {
+        final String cacheControl = getResponseHeader(HEADER_CACHE_CONTROL);
+        if (StringExtensions.isNullOrBlank(cacheControl)) {
+            return -1;
+        }
+
+        long maxAgeMillis = -1;
+        for (final String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+            final String trimmed = directive.trim();
+            if (trimmed.equals(NO_CACHE)) {
+                return 0;
+            } else if (trimmed.startsWith(MAX_AGE)) {
+                try {
+                    maxAgeMillis = Math.max(0, Long.parseLong(trimmed.substring(MAX_AGE.length())))
+                            * MILLIS_PER_SECOND;
+                } catch (final NumberFormatException e) {
+                    // Invalid max-age is ignored
+                    maxAgeMillis = -1;
+                }
+            }
+        }
+
+        return maxAgeMillis;
+    }
+
+    /**
+     * @return true if the Cache-Control header forbids storing the response.
+     */
+    public boolean isNoStore() {
+        final String cacheControl = getResponseHeader(HEADER_CACHE_CONTROL);
+        return cacheControl != null && cacheControl.toLowerCase(Locale.US).contains(NO_STORE);
+    }
+
+    /**
+     * @return The delay in milliseconds requested by the Retry-After header, given
+     * either in seconds or as an HTTP date, or 0 if the header is missing or invalid.
+     */
+    public long getRetryAfterMillis() {
+        final String retryAfter = getResponseHeader(HEADER_RETRY_AFTER);
+        if (StringExtensions.isNullOrBlank(retryAfter)) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * MILLIS_PER_SECOND);
+        } catch (final NumberFormatException e) {
+            try {
+                final Date retryDate = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US).parse(retryAfter.trim());
+                return Math.max(0, retryDate.getTime() - System.currentTimeMillis());
+            } catch (final ParseException parseException) {
+                return 0;
+            }
+        }
+    }
 }
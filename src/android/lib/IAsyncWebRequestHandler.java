@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Webrequest interface to send web requests without blocking the calling thread.
+ */
+interface IAsyncWebRequestHandler extends IWebRequestHandler {
+    /**
+     * Send the http GET request asynchronously.
+     * @param url {@link URL} for the GET request.
+     * @param headers Non-null, and mutable Map of headers sent in the GET request.
+     * @param callback {@link Callback} invoked on a background thread once the response is read, could be null.
+     * @return {@link Future} of the {@link HttpWebResponse}, cancel it to abandon the request.
+     */
+    Future<HttpWebResponse> sendGetAsync(URL url, Map<String, String> headers, Callback<HttpWebResponse> callback);
+
+    /**
+     * Send the HTTP POST request asynchronously.
+     * @param url {@link URL} for the POST request.
+     * @param headers Non-null, and mutable Map of headers sent int the POST request.
+     * @param content The content sent as POST message.
+     * @param contentType Content type of the POST request.
+     * @param callback {@link Callback} invoked on a background thread once the response is read, could be null.
+     * @return {@link Future} of the {@link HttpWebResponse}, cancel it to abandon the request.
+     */
+    Future<HttpWebResponse> sendPostAsync(URL url, Map<String, String> headers, byte[] content,
+            String contentType, Callback<HttpWebResponse> callback);
+
+    /**
+     * Set the deadline for the requests sent after this call, connect and read
+     * timeouts are capped to the time left.
+     * @param deadlineMillis Time in milliseconds since epoch, 0 to remove the deadline.
+     */
+    void setRequestDeadline(long deadlineMillis);
+}
@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.IOException;
+
+/**
+ * Transport used to send every HTTP request of the library, including token,
+ * discovery, DRS and WebFinger requests. Set a custom implementation with
+ * {@link AuthenticationSettings#setHttpTransport(IHttpTransport)} to share a
+ * connection pool, HTTP/2 or DNS resolution with the rest of the app. The
+ * default implementation is backed by {@link java.net.HttpURLConnection}. Requests
+ * with a body that fail on a stale pooled connection are only sent again on the default
+ * implementation, which reports whether the body was written.
+ */
+public interface IHttpTransport {
+    /**
+     * Send the request and return once the response status and headers are available.
+     * Implementations are called on background threads and must be thread safe.
+     *
+     * @param request {@link HttpTransportRequest} to send.
+     * @return {@link HttpTransportResponse} with the response body not yet consumed.
+     * @throws IOException when the request cannot be sent or no response is received.
+     */
+    HttpTransportResponse execute(HttpTransportRequest request) throws IOException;
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.net.URL;
+
+/**
+ * Timing hooks reported by an {@link IHttpTransport} while it sends a request.
+ * Transports report the phases they can observe, any of them may be skipped.
+ */
+public interface IHttpTransportListener {
+    /**
+     * Called before the transport connects or acquires a pooled connection.
+     *
+     * @param url {@link URL} of the request.
+     */
+    void onConnectStart(URL url);
+
+    /**
+     * Called once the connection is open, including DNS resolution and the TLS handshake.
+     *
+     * @param url {@link URL} of the request.
+     */
+    void onConnectEnd(URL url);
+
+    /**
+     * Called once the request headers and body are written.
+     *
+     * @param url {@link URL} of the request.
+     * @param bytesSent Number of request body bytes sent.
+     */
+    void onRequestSent(URL url, long bytesSent);
+
+    /**
+     * Called once the response status and headers are received.
+     *
+     * @param url {@link URL} of the request.
+     * @param statusCode Response status code.
+     */
+    void onResponseHeaders(URL url, int statusCode);
+
+    /**
+     * Called once the response body is read to the end or closed.
+     *
+     * @param url {@link URL} of the request.
+     * @param bytesReceived Number of response body bytes read.
+     */
+    void onResponseBodyEnd(URL url, long bytesReceived);
+}
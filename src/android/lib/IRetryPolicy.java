@@ -0,0 +1,47 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+/**
+ * Decides whether and when a failed HTTP request is sent again. Used for token,
+ * discovery, DRS and WebFinger requests that time out or get a 5xx response.
+ * Set a custom policy with {@link AuthenticationSettings#setRetryPolicy(IRetryPolicy)}.
+ */
+public interface IRetryPolicy {
+    /**
+     * Returned from {@link #getRetryDelayMillis(int, long, long)} to stop retrying.
+     */
+    long NO_RETRY = -1;
+
+    /**
+     * Get the delay before the next attempt.
+     *
+     * @param attempt Number of attempts sent so far, starting at 1.
+     * @param elapsedMillis Time in milliseconds since the first attempt was sent.
+     * @param retryAfterMillis Delay in milliseconds requested by the server through
+     *                         Retry-After, or 0 if the server did not send it.
+     * @return The delay in milliseconds, or {@link #NO_RETRY} to give up.
+     */
+    long getRetryDelayMillis(int attempt, long elapsedMillis, long retryAfterMillis);
+}
@@ -24,13 +24,13 @@
 package com.cordova.plugin.oidc;
 
 import android.util.Base64;
+import android.util.JsonReader;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -91,6 +91,54 @@ class IdToken {
         }
     }
 
+    /**
+     * Check that the raw id token is a JWT whose body decodes to a JSON object, without
+     * reading its claims, so that a malformed token is rejected before it is cached.
+     *
+     * @param rawIdToken the raw id token
+     * @throws AuthenticationException with {@link OIDCError#IDTOKEN_PARSING_FAILURE} if it is malformed
+     */
+    static void validateStructure(final String rawIdToken) throws AuthenticationException {
+        final byte[] data;
+        try {
+            data = Base64.decode(extractJWTBody(rawIdToken), Base64.URL_SAFE);
+        } catch (final IllegalArgumentException exception) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_PARSING_FAILURE,
+                    "IdToken body is not base64url encoded", exception);
+        }
+
+        for (final byte value : data) {
+            if (!Character.isWhitespace(value)) {
+                if (value == '{') {
+                    return;
+                }
+
+                break;
+            }
+        }
+
+        throw new AuthenticationException(OIDCError.IDTOKEN_PARSING_FAILURE, "IdToken body is not a JSON object");
+    }
+
+    /**
+     * Parse the claims of a raw id token, logging instead of throwing if it is malformed.
+     *
+     * @param rawIdToken the raw id token, may be null
+     * @return the {@link IdToken}, null if the raw id token is blank or cannot be parsed
+     */
+    static IdToken tryParse(final String rawIdToken) {
+        if (StringExtensions.isNullOrBlank(rawIdToken)) {
+            return null;
+        }
+
+        try {
+            return new IdToken(rawIdToken);
+        } catch (final AuthenticationException e) {
+            Logger.w(TAG, "Failed to parse the id token claims.", e.getMessage(), e.getCode());
+            return null;
+        }
+    }
+
     public String getSubject() {
         return mSubject;
     }
@@ -144,19 +192,18 @@ class IdToken {
         final byte[] data = Base64.decode(idbody, Base64.URL_SAFE);
 
         try {
-            final String decodedBody = new String(data, "UTF-8");
-            return extractJsonObjects(decodedBody);
+            return extractClaims(data);
         } catch (UnsupportedEncodingException exception) {
             Logger.e(TAG, "The encoding is not supported.", "", OIDCError.ENCODING_IS_NOT_SUPPORTED, exception);
             throw new AuthenticationException(OIDCError.ENCODING_IS_NOT_SUPPORTED, exception.getMessage(), exception);
-        } catch (JSONException exception) {
+        } catch (IOException | IllegalStateException exception) {
             Logger.e(TAG, "Failed to parse the decoded body into JsonObject.", "", OIDCError.JSON_PARSE_ERROR,
                     exception);
             throw new AuthenticationException(OIDCError.JSON_PARSE_ERROR, exception.getMessage(), exception);
         }
     }
 
-    private String extractJWTBody(final String idToken) throws AuthenticationException {
+    private static String extractJWTBody(final String idToken) throws AuthenticationException {
         final int firstDot = idToken.indexOf('.');
         final int secondDot = idToken.indexOf('.', firstDot + 1);
         final int invalidDot = idToken.indexOf('.', secondDot + 1);
@@ -168,14 +215,42 @@ class IdToken {
         }
     }
 
-    private static Map<String, String> extractJsonObjects(final String jsonStr) throws JSONException {
-        final JSONObject jsonObject = new JSONObject(jsonStr);
-        final Map<String, String> responseItems = new HashMap<>();
-        final Iterator<?> i = jsonObject.keys();
-        while (i.hasNext()) {
-            final String key = (String) i.next();
-            responseItems.put(key, jsonObject.getString(key));
+    /**
+     * Stream the decoded claims, keeping only the members read by this class.
+     */
+    private static Map<String, String> extractClaims(final byte[] decodedBody) throws IOException {
+        final Map<String, String> claims = new HashMap<>();
+        final JsonReader reader = new JsonReader(
+                new InputStreamReader(new ByteArrayInputStream(decodedBody), AuthenticationConstants.ENCODING_UTF8));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (isKnownClaim(name)) {
+                    claims.put(name, TokenResponse.readString(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
         }
-        return responseItems;
+
+        return claims;
+    }
+
+    private static boolean isKnownClaim(final String name) {
+        return AuthenticationConstants.OAuth2.ID_TOKEN_SUBJECT.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_TENANTID.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_UPN.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_EMAIL.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_GIVEN_NAME.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_FAMILY_NAME.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_IDENTITY_PROVIDER.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_OBJECT_ID.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_PASSWORD_EXPIRATION.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_EXPIRATION.equals(name)
+                || AuthenticationConstants.OAuth2.ID_TOKEN_PASSWORD_CHANGE_URL.equals(name);
     }
 }
@@ -0,0 +1,254 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.util.Base64;
+import android.util.JsonReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Verifies the signature of an id_token with the signing keys of the issuer, fetched through
+ * {@link JwksCache}. Only the RSA algorithms RS256, RS384 and RS512 are accepted, tokens
+ * that are unsigned or use any other algorithm are rejected. Token responses complete on
+ * network threads, so a verification that has to fetch the key set runs on its own thread.
+ */
+final class IdTokenVerifier {
+
+    private static final String TAG = "IdTokenVerifier";
+
+    private static final String HEADER_ALGORITHM = "alg";
+
+    private static final String HEADER_KEY_ID = "kid";
+
+    private static final Map<String, String> SIGNATURE_ALGORITHMS = createSignatureAlgorithms();
+
+    /**
+     * Runs the verifications waiting for a discovery or key set fetch, each fetch is bounded by its deadline.
+     */
+    private static final ExecutorService KEY_FETCH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * {@link Signature} instances per JWS algorithm, reused by each thread. Looking up the
+     * provider is the most expensive part of a verification after the key is built.
+     */
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = new ThreadLocal<Map<String, Signature>>() {
+        @Override
+        protected Map<String, Signature> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private IdTokenVerifier() { }
+
+    /**
+     * Verify the signature of the id_token without blocking the calling thread on the network.
+     * A token signed with a cached key is verified on the calling thread.
+     *
+     * @param rawIdToken the id_token as returned by the token endpoint
+     * @param authority the authority url, used to discover the jwks_uri if it is not known
+     * @param jwksUri the jwks_uri of the issuer, null to discover it first
+     * @param deadlineMillis deadline of the fetches in milliseconds since epoch, 0 to use the default
+     * @param callback {@link Callback} invoked once the token is verified, or with the
+     * {@link AuthenticationException} of {@link #verify}
+     */
+    static void verifyAsync(final String rawIdToken, final String authority, final String jwksUri,
+                            final long deadlineMillis, final Callback<Void> callback) {
+        final Map<String, String> header;
+        try {
+            header = parseSignedHeader(rawIdToken);
+        } catch (final AuthenticationException e) {
+            callback.onError(e);
+            return;
+        }
+
+        if (jwksUri != null && !JwksCache.isFetchNeeded(jwksUri, header.get(HEADER_KEY_ID))) {
+            completeVerification(rawIdToken, authority, jwksUri, deadlineMillis, callback);
+            return;
+        }
+
+        KEY_FETCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                completeVerification(rawIdToken, authority, jwksUri, deadlineMillis, callback);
+            }
+        });
+    }
+
+    private static void completeVerification(final String rawIdToken, final String authority, final String jwksUri,
+                                             final long deadlineMillis, final Callback<Void> callback) {
+        try {
+            verify(rawIdToken, jwksUri == null ? discoverJwksUri(authority, deadlineMillis) : jwksUri,
+                    deadlineMillis);
+        } catch (final AuthenticationException | RuntimeException e) {
+            callback.onError(e);
+            return;
+        }
+
+        callback.onSuccess(null);
+    }
+
+    private static String discoverJwksUri(final String authority, final long deadlineMillis)
+            throws AuthenticationException {
+        final OpenIdConfiguration configuration = OpenIdConfigurationCache.getOrFetch(authority,
+                JwksCache.getFetchDeadline(deadlineMillis));
+        if (configuration == null || StringExtensions.isNullOrBlank(configuration.getJwksUri())) {
+            throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                    "jwks_uri of the authority is not available");
+        }
+
+        return configuration.getJwksUri();
+    }
+
+    /**
+     * Verify the signature of the id_token, fetching the key set if needed.
+     *
+     * @param rawIdToken the id_token as returned by the token endpoint
+     * @param jwksUri the jwks_uri of the issuer
+     * @param deadlineMillis deadline of a key set fetch in milliseconds since epoch, 0 to use the default
+     * @throws AuthenticationException with {@link OIDCError#IDTOKEN_SIGNATURE_INVALID} if the token is
+     * unsigned, uses an algorithm the issuer keys cannot verify, has an invalid signature or a key id
+     * that is not in the key set, or with the fetch error if the key set cannot be fetched
+     */
+    private static void verify(final String rawIdToken, final String jwksUri, final long deadlineMillis)
+            throws AuthenticationException {
+        final Map<String, String> header = parseSignedHeader(rawIdToken);
+        final String algorithm = SIGNATURE_ALGORITHMS.get(header.get(HEADER_ALGORITHM));
+        final int secondDot = rawIdToken.lastIndexOf('.');
+        final PublicKey key = JwksCache.getKey(jwksUri, header.get(HEADER_KEY_ID), deadlineMillis);
+        if (key == null) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID,
+                    "IdToken key id is not in the JSON Web Key Set of the issuer");
+        }
+
+        final boolean isVerified;
+        try {
+            final Signature signature = getSignature(header.get(HEADER_ALGORITHM), algorithm);
+            signature.initVerify(key);
+            signature.update(rawIdToken.substring(0, secondDot).getBytes(AuthenticationConstants.ENCODING_UTF8));
+            isVerified = signature.verify(Base64.decode(rawIdToken.substring(secondDot + 1),
+                    Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP));
+        } catch (final UnsupportedEncodingException e) {
+            throw new AuthenticationException(OIDCError.ENCODING_IS_NOT_SUPPORTED, e.getMessage(), e);
+        } catch (final GeneralSecurityException | IllegalArgumentException e) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID, e.getMessage(), e);
+        }
+
+        if (!isVerified) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID);
+        }
+    }
+
+    /**
+     * @return the header of the id_token, once it is known to be a signed JWT with an accepted algorithm
+     */
+    private static Map<String, String> parseSignedHeader(final String rawIdToken) throws AuthenticationException {
+        final int firstDot = rawIdToken.indexOf('.');
+        final int secondDot = rawIdToken.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot <= 0 || rawIdToken.indexOf('.', secondDot + 1) != -1) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_PARSING_FAILURE, "IdToken is not a signed JWT");
+        }
+
+        final Map<String, String> header = parseHeader(rawIdToken.substring(0, firstDot));
+        if (!SIGNATURE_ALGORITHMS.containsKey(header.get(HEADER_ALGORITHM))) {
+            // Covers "none" and the HMAC algorithms, which the public keys of the issuer cannot verify
+            throw new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID,
+                    "IdToken signature algorithm " + header.get(HEADER_ALGORITHM) + " is not accepted");
+        }
+
+        if (secondDot == rawIdToken.length() - 1) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID, "IdToken is not signed");
+        }
+
+        return header;
+    }
+
+    private static Signature getSignature(final String jwsAlgorithm, final String algorithm)
+            throws NoSuchAlgorithmException {
+        final Map<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(jwsAlgorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signatures.put(jwsAlgorithm, signature);
+        }
+
+        return signature;
+    }
+
+    private static Map<String, String> parseHeader(final String encodedHeader) throws AuthenticationException {
+        final byte[] data;
+        try {
+            data = Base64.decode(encodedHeader, Base64.URL_SAFE);
+        } catch (final IllegalArgumentException e) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_PARSING_FAILURE, e.getMessage(), e);
+        }
+
+        final Map<String, String> header = new HashMap<>();
+        try {
+            final JsonReader reader = new JsonReader(
+                    new InputStreamReader(new ByteArrayInputStream(data), AuthenticationConstants.ENCODING_UTF8));
+            try {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    final String name = reader.nextName();
+                    if (HEADER_ALGORITHM.equals(name) || HEADER_KEY_ID.equals(name)) {
+                        header.put(name, TokenResponse.readString(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException | IllegalStateException e) {
+            throw new AuthenticationException(OIDCError.IDTOKEN_PARSING_FAILURE, e.getMessage(), e);
+        }
+
+        return header;
+    }
+
+    private static Map<String, String> createSignatureAlgorithms() {
+        final Map<String, String> algorithms = new HashMap<>();
+        algorithms.put("RS256", "SHA256withRSA");
+        algorithms.put("RS384", "SHA384withRSA");
+        algorithms.put("RS512", "SHA512withRSA");
+        return algorithms;
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.util.Base64;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+
+/**
+ * Data container for a JSON Web Key of the issuer key set.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7517">RFC-7517</a>
+ */
+final class JsonWebKey {
+
+    private static final String KEY_TYPE_RSA = "RSA";
+
+    private static final String USE_SIGNATURE = "sig";
+
+    @SerializedName("kid")
+    private String mKeyId;
+
+    @SerializedName("kty")
+    private String mKeyType;
+
+    @SerializedName("use")
+    private String mUse;
+
+    @SerializedName("n")
+    private String mModulus;
+
+    @SerializedName("e")
+    private String mExponent;
+
+    /**
+     * No args constructor for use in serialization for Gson to prevent usage of sun.misc.Unsafe
+     */
+    @SuppressWarnings("unused")
+    JsonWebKey() {
+    }
+
+    /**
+     * @return the key id
+     */
+    String getKeyId() {
+        return mKeyId;
+    }
+
+    /**
+     * @return true if the key is an RSA key that may be used to verify signatures.
+     */
+    boolean isRsaSigningKey() {
+        return KEY_TYPE_RSA.equals(mKeyType) && (mUse == null || USE_SIGNATURE.equals(mUse))
+                && !StringExtensions.isNullOrBlank(mModulus) && !StringExtensions.isNullOrBlank(mExponent);
+    }
+
+    /**
+     * Build the {@link PublicKey} of an RSA signing key.
+     *
+     * @return the public key
+     * @throws GeneralSecurityException if the key material is invalid
+     */
+    PublicKey toPublicKey() throws GeneralSecurityException {
+        try {
+            final BigInteger modulus = new BigInteger(1, Base64.decode(mModulus, Base64.URL_SAFE));
+            final BigInteger exponent = new BigInteger(1, Base64.decode(mExponent, Base64.URL_SAFE));
+            return KeyFactory.getInstance(KEY_TYPE_RSA).generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        } catch (final IllegalArgumentException e) {
+            throw new GeneralSecurityException("Invalid key material of key " + mKeyId, e);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Memory and disk cache of the issuer signing keys, keyed by jwks_uri and key id. The
+ * {@link PublicKey} of each key is built once and reused. An expired key set keeps serving
+ * while it is refreshed in background, a key id missing from the set fetches it again, with
+ * concurrent fetches of the same set coalesced.
+ */
+final class JwksCache {
+
+    private static final String TAG = "JwksCache";
+
+    private static final String SHARED_PREFERENCE_NAME = "com.cordova.plugin.oidc.jwks";
+
+    /**
+     * Freshness lifetime of a key set served without Cache-Control max-age.
+     */
+    private static final long DEFAULT_MAX_AGE_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Lower bound of the freshness lifetime, so that no-cache does not refetch on every token.
+     */
+    private static final long MIN_MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Minimum time between two fetches caused by an unknown key id, so that tokens with
+     * made-up key ids cannot make every verification hit the network.
+     */
+    private static final long MIN_REFETCH_INTERVAL_MILLIS = 60 * 1000;
+
+    /**
+     * Time a fetch may take when the request has no deadline, so that a fetch never waits without limit.
+     */
+    private static final long DEFAULT_FETCH_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final ConcurrentMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private static final SingleFlight<String, Entry> FETCHES = new SingleFlight<>();
+
+    /**
+     * Key sets with a background refresh queued or in flight.
+     */
+    private static final Set<String> IN_FLIGHT_REFRESHES =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private static final AtomicBoolean INITIALIZED = new AtomicBoolean(false);
+
+    private static final Gson GSON = new Gson();
+
+    private static volatile SharedPreferences sPrefs = null;
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private JwksCache() { }
+
+    /**
+     * Load the persisted key sets in background. Only the first call has an effect.
+     *
+     * @param context {@link Context} used to open the shared preferences.
+     */
+    static void initialize(final Context context) {
+        if (context == null || !INITIALIZED.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext() == null ? context : context.getApplicationContext();
+        REFRESH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SharedPreferences prefs = appContext.getSharedPreferences(SHARED_PREFERENCE_NAME,
+                        Activity.MODE_PRIVATE);
+                for (final Map.Entry<String, ?> persisted : prefs.getAll().entrySet()) {
+                    try {
+                        final Entry entry = GSON.fromJson(String.valueOf(persisted.getValue()), Entry.class);
+                        if (entry != null && entry.mKeySet != null) {
+                            entry.buildPublicKeys();
+                            ENTRIES.putIfAbsent(persisted.getKey(), entry);
+                        }
+                    } catch (final JsonSyntaxException e) {
+                        Logger.w(TAG, "Dropping unreadable JSON Web Key Set", e.getMessage(),
+                                OIDCError.JSON_PARSE_ERROR);
+                    }
+                }
+
+                sPrefs = prefs;
+                Logger.v(TAG, "Loaded " + ENTRIES.size() + " JSON Web Key Sets from disk.");
+            }
+        });
+    }
+
+    /**
+     * @param jwksUri the jwks_uri of the OpenID configuration
+     * @param keyId the kid of the token header, null if the token has none
+     * @return true if {@link #getKey} has to fetch the key set, false if it answers from the cache
+     */
+    static boolean isFetchNeeded(final String jwksUri, final String keyId) {
+        final Entry entry = ENTRIES.get(jwksUri);
+        return entry == null || entry.getPublicKey(keyId) == null
+                && System.currentTimeMillis() - entry.mFetchedOnMillis >= MIN_REFETCH_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Get the signing key. The key set is fetched if it is not cached or does not have the key id,
+     * so this must not be called on a network thread.
+     *
+     * @param jwksUri the jwks_uri of the OpenID configuration
+     * @param keyId the kid of the token header, null if the token has none
+     * @param deadlineMillis deadline of a fetch in milliseconds since epoch, 0 to use the default fetch timeout
+     * @return the {@link PublicKey}, null if the key set has no RSA signing key with the key id
+     * @throws AuthenticationException if the key set cannot be fetched
+     */
+    static PublicKey getKey(final String jwksUri, final String keyId, final long deadlineMillis)
+            throws AuthenticationException {
+        Entry entry = ENTRIES.get(jwksUri);
+        if (entry != null) {
+            if (entry.isExpired()) {
+                refreshAsync(jwksUri);
+            }
+
+            final PublicKey key = entry.getPublicKey(keyId);
+            if (key != null || System.currentTimeMillis() - entry.mFetchedOnMillis < MIN_REFETCH_INTERVAL_MILLIS) {
+                return key;
+            }
+
+            Logger.v(TAG, "Key id is not in the cached JSON Web Key Set, fetching it again.");
+        }
+
+        entry = fetch(jwksUri, getFetchDeadline(deadlineMillis));
+        return entry.getPublicKey(keyId);
+    }
+
+    /**
+     * @return the deadline, or the default fetch timeout from now if the request has none
+     */
+    static long getFetchDeadline(final long deadlineMillis) {
+        return deadlineMillis > 0 ? deadlineMillis : System.currentTimeMillis() + DEFAULT_FETCH_TIMEOUT_MILLIS;
+    }
+
+    private static void refreshAsync(final String jwksUri) {
+        if (!IN_FLIGHT_REFRESHES.add(jwksUri)) {
+            return;
+        }
+
+        REFRESH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Entry cachedEntry = ENTRIES.get(jwksUri);
+                    if (cachedEntry == null || cachedEntry.isExpired()) {
+                        fetch(jwksUri, getFetchDeadline(0));
+                    }
+                } catch (final AuthenticationException | RuntimeException e) {
+                    Logger.w(TAG, "JSON Web Key Set refresh failed, the cached keys are kept.",
+                            e.getMessage(), OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR);
+                } finally {
+                    IN_FLIGHT_REFRESHES.remove(jwksUri);
+                }
+            }
+        });
+    }
+
+    private static Entry fetch(final String jwksUri, final long deadlineMillis) throws AuthenticationException {
+        try {
+            return FETCHES.execute(jwksUri, new Callable<Entry>() {
+                @Override
+                public Entry call() throws AuthenticationException {
+                    return fetchNow(jwksUri, deadlineMillis);
+                }
+            }, deadlineMillis);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException) {
+                throw (AuthenticationException) e.getCause();
+            }
+
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, e.getMessage(), e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, "JSON Web Key Set fetch is interrupted.", e);
+        } catch (final TimeoutException e) {
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION,
+                    "Request deadline has passed while waiting for the JSON Web Key Set fetch in flight.", e);
+        }
+    }
+
+    private static Entry fetchNow(final String jwksUri, final long deadlineMillis) throws AuthenticationException {
+        final Entry cachedEntry = ENTRIES.get(jwksUri);
+        final JwksRequestor requestor = new JwksRequestor();
+        requestor.setDeadline(deadlineMillis);
+        if (cachedEntry != null) {
+            requestor.setETag(cachedEntry.mETag);
+        }
+
+        JsonWebKeySet keySet = requestor.requestMetadata(jwksUri);
+        if (keySet == null) {
+            if (cachedEntry == null || cachedEntry.mKeySet == null) {
+                // A not modified response is only usable with a cached key set to keep
+                throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                        "JSON Web Key Set is not modified but no cached key set exists.");
+            }
+
+            // Not modified, keep the cached keys.
+            keySet = cachedEntry.mKeySet;
+        }
+
+        final long now = System.currentTimeMillis();
+        final long maxAgeMillis = requestor.getMaxAgeMillis() < 0
+                ? DEFAULT_MAX_AGE_MILLIS : Math.max(MIN_MAX_AGE_MILLIS, requestor.getMaxAgeMillis());
+        final Entry entry = new Entry(keySet, requestor.getETag(), now + maxAgeMillis, now);
+        entry.buildPublicKeys();
+        ENTRIES.put(jwksUri, entry);
+
+        final SharedPreferences prefs = sPrefs;
+        if (prefs != null) {
+            if (requestor.isNoStore()) {
+                prefs.edit().remove(jwksUri).apply();
+            } else {
+                prefs.edit().putString(jwksUri, GSON.toJson(entry)).apply();
+            }
+        }
+
+        return entry;
+    }
+
+    private static final class Entry {
+        @SerializedName("key_set")
+        private JsonWebKeySet mKeySet;
+
+        @SerializedName("etag")
+        private String mETag;
+
+        @SerializedName("expires_on")
+        private long mExpiresOnMillis;
+
+        @SerializedName("fetched_on")
+        private long mFetchedOnMillis;
+
+        /**
+         * Keys built from the key set, not persisted.
+         */
+        private transient Map<String, PublicKey> mPublicKeys = Collections.emptyMap();
+
+        /**
+         * No args constructor for use in serialization for Gson to prevent usage of sun.misc.Unsafe
+         */
+        @SuppressWarnings("unused")
+        Entry() {
+        }
+
+        Entry(final JsonWebKeySet keySet, final String eTag, final long expiresOnMillis,
+              final long fetchedOnMillis) {
+            mKeySet = keySet;
+            mETag = eTag;
+            mExpiresOnMillis = expiresOnMillis;
+            mFetchedOnMillis = fetchedOnMillis;
+        }
+
+        /**
+         * Build the public keys once, before the entry is shared.
+         */
+        void buildPublicKeys() {
+            final Map<String, PublicKey> publicKeys = new HashMap<>();
+            for (final JsonWebKey key : mKeySet.getKeys()) {
+                if (key == null || !key.isRsaSigningKey()) {
+                    continue;
+                }
+
+                try {
+                    publicKeys.put(key.getKeyId() == null ? "" : key.getKeyId(), key.toPublicKey());
+                } catch (final GeneralSecurityException e) {
+                    Logger.w(TAG, "Skipping invalid signing key " + key.getKeyId(), e.getMessage(),
+                            OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR);
+                }
+            }
+
+            mPublicKeys = publicKeys;
+        }
+
+        /**
+         * @return the key with the key id, or the only key of the set if the token has no key id
+         */
+        PublicKey getPublicKey(final String keyId) {
+            if (keyId == null) {
+                return mPublicKeys.size() == 1 ? mPublicKeys.values().iterator().next() : null;
+            }
+
+            return mPublicKeys.get(keyId);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= mExpiresOnMillis;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cordova.plugin.oidc.AuthenticationConstants.HeaderField.ACCEPT;
+import static com.cordova.plugin.oidc.AuthenticationConstants.MediaType.APPLICATION_JSON;
+
+/**
+ * Delegate class capable of fetching the JSON Web Key Set of an issuer, conditionally if
+ * the entity tag of a cached key set is set with {@link #setETag(String)}.
+ *
+ * @see JsonWebKeySet
+ */
+final class JwksRequestor extends AbstractMetadataRequestor<JsonWebKeySet, String> {
+
+    /**
+     * Tag used for logging.
+     */
+    private static final String TAG = JwksRequestor.class.getSimpleName();
+
+    /**
+     * Request the key set.
+     *
+     * @param jwksUri the jwks_uri of the OpenID configuration
+     * @return the key set, or null if the conditional request found the cached key set unchanged
+     * @throws AuthenticationException if the key set cannot be fetched or parsed
+     */
+    @Override
+    JsonWebKeySet requestMetadata(final String jwksUri) throws AuthenticationException {
+        final URL requestURL = StringExtensions.getUrl(jwksUri);
+        if (requestURL == null || !"https".equalsIgnoreCase(requestURL.getProtocol())) {
+            throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_URL_INVALID,
+                    "jwks_uri must be an https url");
+        }
+
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(ACCEPT, APPLICATION_JSON);
+        if (null != getCorrelationId()) {
+            headers.put(AuthenticationConstants.OIDC.CLIENT_REQUEST_ID, getCorrelationId().toString());
+        }
+
+        addConditionalHeaders(headers);
+
+        Logger.v(TAG, "Requesting JSON Web Key Set from " + requestURL.getHost());
+        final HttpWebResponse webResponse;
+        try {
+            webResponse = RetryingWebRequest.sendGet(getWebrequestHandler(), requestURL, headers, getDeadline());
+        } catch (final IOException e) {
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, e.getMessage(), e);
+        }
+
+        readCacheHeaders(webResponse);
+        final int statusCode = webResponse.getStatusCode();
+        if (HttpURLConnection.HTTP_NOT_MODIFIED == statusCode && !StringExtensions.isNullOrBlank(getETag())) {
+            Logger.v(TAG, "JSON Web Key Set is not modified");
+            return null;
+        } else if (HttpURLConnection.HTTP_OK == statusCode) {
+            return parseMetadata(webResponse);
+        }
+
+        throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                "Unexpected error code: [" + statusCode + "]");
+    }
+
+    @Override
+    JsonWebKeySet parseMetadata(final HttpWebResponse response) throws AuthenticationException {
+        Logger.v(TAG, "Parsing JSON Web Key Set response");
+        final JsonWebKeySet keySet;
+        try {
+            keySet = parser().fromJson(response.getBody(), JsonWebKeySet.class);
+        } catch (final JsonSyntaxException e) {
+            throw new AuthenticationException(OIDCError.JSON_PARSE_ERROR);
+        }
+
+        if (keySet == null || keySet.getKeys() == null) {
+            throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                    "JSON Web Key Set has no keys");
+        }
+
+        return keySet;
+    }
+}
@@ -336,6 +336,13 @@ public class Logger {
         Logger.getInstance().inform(tag, message, additionalMessage, errorCode);
     }
 
+    /**
+     * @return true if verbose messages are logged, to skip building messages that would be dropped.
+     */
+    static boolean isVerboseEnabled() {
+        return Logger.getInstance().getLogLevel().compareTo(LogLevel.Verbose) >= 0;
+    }
+
     /**
      * Logs verbose message.
      *
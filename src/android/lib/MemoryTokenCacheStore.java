@@ -78,6 +78,7 @@ public class MemoryTokenCacheStore implements ITokenCacheStore {
         synchronized (mCacheLock) {
             mCache.put(key, item);
         }
+        NegativeResultCache.INSTANCE.clear(item);
     }
 
     @Override
@@ -87,8 +88,13 @@ public class MemoryTokenCacheStore implements ITokenCacheStore {
         }
 
         Logger.v(TAG, "Remove Item from cache. Key:" + key.hashCode());
+        final TokenCacheItem item;
         synchronized (mCacheLock) {
-            mCache.remove(key);
+            item = mCache.remove(key);
+        }
+
+        if (item != null) {
+            NegativeResultCache.INSTANCE.clear(item);
         }
     }
 
@@ -98,6 +104,7 @@ public class MemoryTokenCacheStore implements ITokenCacheStore {
         synchronized (mCacheLock) {
             mCache.clear();
         }
+        NegativeResultCache.INSTANCE.clear();
     }
 
     private synchronized void writeObject(ObjectOutputStream out) throws IOException {
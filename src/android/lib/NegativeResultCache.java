@@ -0,0 +1,216 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Short-lived record of the terminal OAuth errors returned to silent requests, keyed by
+ * authority, client id, resource and user. While an entry is live the silent request fails
+ * with the recorded error instead of sending the cached refresh tokens again. Entries expire
+ * after {@link AuthenticationSettings#getNegativeResultCacheMillis()} and are dropped when a
+ * token cache item of the same authority, client id and user changes, for example after an
+ * interactive sign-in.
+ */
+enum NegativeResultCache {
+
+    /**
+     * Singleton instance.
+     */
+    INSTANCE;
+
+    private static final String TAG = "NegativeResultCache";
+
+    private static final String CACHE_KEY_DELIMITER = "\\$";
+
+    private static final int CACHE_KEY_PARTS = 5;
+
+    private final ConcurrentMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+
+    /**
+     * @return Failed {@link AuthenticationResult} recorded for the request, null if there is none
+     * or it has expired.
+     */
+    AuthenticationResult get(final String authority, final String clientId, final String resource,
+                             final String user) {
+        final String key = createKey(authority, clientId, resource, user);
+        final Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.mExpiresOnMillis) {
+            mEntries.remove(key, entry);
+            return null;
+        }
+
+        return new AuthenticationResult(entry.mErrorCode, entry.mErrorDescription, null);
+    }
+
+    /**
+     * Record the result if it is a terminal OAuth error, other results are ignored.
+     */
+    void record(final String authority, final String clientId, final String resource, final String user,
+                final AuthenticationResult result) {
+        final long ttlMillis = AuthenticationSettings.INSTANCE.getNegativeResultCacheMillis();
+        if (ttlMillis <= 0 || !isTerminalError(result)) {
+            return;
+        }
+
+        Logger.v(TAG, "Record terminal error " + result.getErrorCode() + " for " + ttlMillis + " ms.");
+        mEntries.put(createKey(authority, clientId, resource, user), new Entry(authority, clientId, user, result,
+                System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Drop all the entries.
+     */
+    void clear() {
+        if (!mEntries.isEmpty()) {
+            Logger.v(TAG, "Token cache is cleared, clear the negative results.");
+            mEntries.clear();
+        }
+    }
+
+    /**
+     * Drop the entries a changed token cache item could serve: same authority, same client id
+     * unless the item is a family token, and same user. Entries of requests without a user are
+     * dropped for any user.
+     *
+     * @param item The written or removed {@link TokenCacheItem}.
+     */
+    void clear(final TokenCacheItem item) {
+        if (item == null || item.getAuthority() == null) {
+            clear();
+            return;
+        }
+
+        final UserInfo userInfo = item.getUserInfo();
+        if (userInfo == null) {
+            clear(item.getAuthority(), item.getClientId());
+        } else {
+            clear(item.getAuthority(), item.getClientId(), userInfo.getDisplayableId(), userInfo.getUserId());
+        }
+    }
+
+    /**
+     * Drop the entries a token cache item stored under the {@link CacheKey} could serve, as
+     * {@link #clear(TokenCacheItem)}. Used when the item itself is not at hand.
+     *
+     * @param cacheKey Key of the written or removed item.
+     */
+    void clearForCacheKey(final String cacheKey) {
+        final String[] parts = cacheKey == null ? new String[0] : cacheKey.split(CACHE_KEY_DELIMITER, -1);
+        if (parts.length < CACHE_KEY_PARTS) {
+            clear();
+            return;
+        }
+
+        final String clientId = "null".equals(parts[2]) ? null : parts[2];
+        if ("null".equals(parts[4])) {
+            clear(parts[0], clientId);
+        } else {
+            clear(parts[0], clientId, parts[4]);
+        }
+    }
+
+    /**
+     * @param authority Authority of the changed item.
+     * @param clientId Client id of the changed item, null to match every client id.
+     * @param users Users of the changed item, none to match every user.
+     */
+    void clear(final String authority, final String clientId, final String... users) {
+        final String normalizedAuthority = normalizeAuthority(authority);
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.mAuthority.equals(normalizedAuthority)
+                    && (clientId == null || entry.mClientId.equalsIgnoreCase(clientId))
+                    && isUserMatched(entry.mUser, users)) {
+                Logger.v(TAG, "Token cache item changed, clear the negative result.");
+                iterator.remove();
+            }
+        }
+    }
+
+    private static boolean isUserMatched(final String entryUser, final String[] users) {
+        if (users.length == 0 || entryUser.isEmpty()) {
+            return true;
+        }
+
+        for (final String user : users) {
+            if (entryUser.equalsIgnoreCase(user)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String createKey(final String authority, final String clientId, final String resource,
+                                    final String user) {
+        return normalizeAuthority(authority) + "|" + clientId + "|" + resource + "|" + normalizeUser(user);
+    }
+
+    /**
+     * Lower case without the trailing slash, as in {@link CacheKey}.
+     */
+    private static String normalizeAuthority(final String authority) {
+        final String normalized = authority.toLowerCase(Locale.US);
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    private static String normalizeUser(final String user) {
+        return user == null ? "" : user.toLowerCase(Locale.US);
+    }
+
+    private static boolean isTerminalError(final AuthenticationResult result) {
+        return result != null && result.getStatus() == AuthenticationResult.AuthenticationStatus.Failed
+                && (AuthenticationConstants.OAuth2ErrorCode.INVALID_GRANT.equalsIgnoreCase(result.getErrorCode())
+                || AuthenticationConstants.OAuth2ErrorCode.INTERACTION_REQUIRED.equalsIgnoreCase(result.getErrorCode()));
+    }
+
+    private static final class Entry {
+        private final String mAuthority;
+        private final String mClientId;
+        private final String mUser;
+        private final String mErrorCode;
+        private final String mErrorDescription;
+        private final long mExpiresOnMillis;
+
+        Entry(final String authority, final String clientId, final String user, final AuthenticationResult result,
+              final long expiresOnMillis) {
+            mAuthority = normalizeAuthority(authority);
+            mClientId = clientId == null ? "" : clientId;
+            mUser = normalizeUser(user);
+            mErrorCode = result.getErrorCode();
+            mErrorDescription = result.getErrorDescription();
+            mExpiresOnMillis = expiresOnMillis;
+        }
+    }
+}
@@ -567,6 +567,31 @@ public enum OIDCError {
      */
     DRS_DISCOVERY_FAILED_UNKNOWN_HOST("DRS discovery failed: unknown host"),
 
+    /**
+     * Requests to the server are suspended after repeated failures.
+     */
+    SERVER_UNAVAILABLE("Requests to the server are suspended after repeated failures"),
+
+    /**
+     * Token requests exceed the client side rate limit.
+     */
+    TOKEN_REQUEST_RATE_LIMITED("Token requests exceed the client side rate limit"),
+
+    /**
+     * Malformed OpenID configuration URL.
+     */
+    OPENID_CONFIGURATION_URL_INVALID("Malformed OpenID configuration URL"),
+
+    /**
+     * Authority returned an unrecognized OpenID configuration response.
+     */
+    OPENID_CONFIGURATION_FAILED_SERVER_ERROR("Authority returned an unrecognized OpenID configuration response"),
+
+    /**
+     * IdToken signature does not verify with the signing keys of the issuer.
+     */
+    IDTOKEN_SIGNATURE_INVALID("IdToken signature is invalid"),
+
     /**
      *  Broker is not installed. The process is kicked off to to install broker but OIDC cannot wait for it to finish.
      */
@@ -30,10 +30,8 @@ import android.util.Base64;
 
 import com.cordova.plugin.oidc.ChallengeResponseBuilder.ChallengeResponse;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
@@ -42,11 +40,12 @@ import java.net.URLEncoder;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Base Oauth class.
@@ -59,11 +58,13 @@ class Oauth2 {
 
     private IJWSBuilder mJWSBuilder = new JWSBuilder();
 
-    private static final String TAG = "Oauth";
-
-    private boolean mRetryOnce = true;
+    /**
+     * Thread blocked in {@link #refreshToken(String)} or {@link #getTokenForCode(String)},
+     * null while no synchronous call is in progress.
+     */
+    private volatile Thread mWaitingThread;
 
-    private static final int DELAY_TIME_PERIOD = 1000;
+    private static final String TAG = "Oauth";
 
     private static final int MAX_RESILIENCY_ERROR_CODE = 599;
     
@@ -93,6 +94,11 @@ class Oauth2 {
     }
 
     public String getAuthorizationEndpoint() {
+        final OpenIdConfiguration configuration = getOpenIdConfiguration();
+        if (configuration != null) {
+            return configuration.getAuthorizationEndpoint();
+        }
+
         final String endpoint = mRequest.getEndpointFragment();
         if (endpoint == null || endpoint.isEmpty()) {
             return mRequest.getAuthority() + DEFAULT_FRAGMENT + DEFAULT_AUTHORIZE_ENDPOINT;
@@ -106,6 +112,11 @@ class Oauth2 {
     }
 
     public String getTokenEndpoint() {
+        final OpenIdConfiguration configuration = getOpenIdConfiguration();
+        if (configuration != null) {
+            return configuration.getTokenEndpoint();
+        }
+
         final String endpoint = mRequest.getEndpointFragment();
         if (endpoint == null || endpoint.isEmpty()) {
             return mRequest.getAuthority() + DEFAULT_FRAGMENT + DEFAULT_TOKEN_ENDPOINT;
@@ -118,6 +129,27 @@ class Oauth2 {
         }
     }
 
+    /**
+     * @return The cached OpenID configuration of the authority, null if it is not cached yet
+     * or if the endpoint fragment is an absolute url.
+     */
+    private OpenIdConfiguration getOpenIdConfiguration() {
+        if (!isOpenIdDiscoveryUsed()) {
+            return null;
+        }
+
+        return OpenIdConfigurationCache.get(mRequest.getAuthority());
+    }
+
+    /**
+     * @return false if discovery is disabled or the endpoint fragment is an absolute url.
+     */
+    private boolean isOpenIdDiscoveryUsed() {
+        final String endpoint = mRequest.getEndpointFragment();
+        return AuthenticationSettings.INSTANCE.getUseOpenIdDiscovery() && (endpoint == null
+                || !endpoint.toLowerCase(Locale.US).startsWith(AuthenticationConstants.Broker.REDIRECT_SSL_PREFIX));
+    }
+
     private String getTokenResponseType() {
 
         final String responseType = mRequest.getResponseType();
@@ -141,7 +173,7 @@ class Oauth2 {
                         URLEncoder.encode(mRequest.getRedirectUri(),
                                 AuthenticationConstants.ENCODING_UTF8))
                 .appendQueryParameter(AuthenticationConstants.OAuth2.STATE, encodeProtocolState())
-			    .appendQueryParameter(AuthenticationConstants.OAuth2.NONCE, UUID.randomUUID().toString());
+			    .appendQueryParameter(AuthenticationConstants.OAuth2.NONCE, PkcePool.takeNonce());
 
         if (tokenRespType.startsWith("code")) {
             queryParameter.appendQueryParameter(AuthenticationConstants.OAuth2.CODE_CHALLENGE, mRequest.GetCodeChallenge());
@@ -231,15 +263,20 @@ class Oauth2 {
     }
 
     public static AuthenticationResult processUIResponseParams(Map<String, String> response) throws AuthenticationException {
+        return createAuthenticationResult(TokenResponse.fromParams(response));
+    }
+
+    private static AuthenticationResult createAuthenticationResult(final TokenResponse response)
+            throws AuthenticationException {
 
         final AuthenticationResult result;
 
         // Protocol error related
-        if (response.containsKey(AuthenticationConstants.OAuth2.ERROR)) {
+        if (response.getError() != null) {
             // Error response from the server
             // CorrelationID will be same as in request headers. This is
             // retrieved in result in case it was not set.
-            String correlationInResponse = response.get(AuthenticationConstants.OIDC.CORRELATION_ID);
+            String correlationInResponse = response.getCorrelationId();
             if (!StringExtensions.isNullOrBlank(correlationInResponse)) {
                 try {
                     final UUID correlationId = UUID.fromString(correlationInResponse);
@@ -252,142 +289,117 @@ class Oauth2 {
 
             Logger.v(
                     TAG,
-                    "OAuth2 error:" + response.get(AuthenticationConstants.OAuth2.ERROR)
+                    "OAuth2 error:" + response.getError()
                             + " Description:"
-                            + response.get(AuthenticationConstants.OAuth2.ERROR_DESCRIPTION));
-
-            result = new AuthenticationResult(response.get(AuthenticationConstants.OAuth2.ERROR),
-                    response.get(AuthenticationConstants.OAuth2.ERROR_DESCRIPTION),
-                    response.get(AuthenticationConstants.OAuth2.ERROR_CODES));
-
-        } else if (response.containsKey(AuthenticationConstants.OAuth2.CODE)) {
-            result = new AuthenticationResult(response.get(AuthenticationConstants.OAuth2.CODE));
-		} else if (response.containsKey(AuthenticationConstants.OAuth2.ACCESS_TOKEN)) {
-			// Token response
-			boolean isMultiResourceToken = false;
-			String expiresIn = response.get(AuthenticationConstants.OAuth2.EXPIRES_IN);
-			Calendar expires = new GregorianCalendar();
-
-			// Compute token expiration
-			expires.add(
-				Calendar.SECOND,
-				expiresIn == null || expiresIn.isEmpty() ? AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC
-					: Integer.parseInt(expiresIn));
-
-			final String refreshToken = response.get(AuthenticationConstants.OAuth2.REFRESH_TOKEN);
-			if (response.containsKey(AuthenticationConstants.OIDC.RESOURCE)
-				&& !StringExtensions.isNullOrBlank(refreshToken)) {
-				isMultiResourceToken = true;
-			}
-
-			UserInfo userinfo = null;
-			String tenantId = null;
-			String rawIdToken = null;
-			if (response.containsKey(AuthenticationConstants.OAuth2.ID_TOKEN)) {
-				// IDtoken is related to Azure AD and returned with token
-				// response. ADFS does not return that.
-				rawIdToken = response.get(AuthenticationConstants.OAuth2.ID_TOKEN);
-				if (!StringExtensions.isNullOrBlank(rawIdToken)) {
-					Logger.v(TAG, "Id token was returned, parsing id token.");
-					IdToken tokenParsed = new IdToken(rawIdToken);
-					tenantId = tokenParsed.getTenantId();
-					userinfo = new UserInfo(tokenParsed);
-				} else {
-					Logger.v(TAG, "IdToken was not returned from token request.");
-				}
-			}
-
-			String familyClientId = null;
-
-			result = new AuthenticationResult(
-				response.get(AuthenticationConstants.OAuth2.ACCESS_TOKEN), refreshToken, expires.getTime(),
-				isMultiResourceToken, userinfo, tenantId, rawIdToken, null);
-
-			if (response.containsKey(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN)) {
-				final String extendedExpiresIn = response.get(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN);
-				final Calendar extendedExpires = new GregorianCalendar();
-				// Compute extended token expiration
-				extendedExpires.add(
-					Calendar.SECOND,
-					StringExtensions.isNullOrBlank(extendedExpiresIn) ? AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC
-						: Integer.parseInt(extendedExpiresIn));
-				result.setExtendedExpiresOn(extendedExpires.getTime());
-			}
-
-			//Set family client id on authentication result for TokenCacheItem to pick up
-			result.setFamilyClientId(familyClientId);
-		} else if (response.containsKey(AuthenticationConstants.OAuth2.ID_TOKEN)) {
-			// Token response
-
-			Calendar expires = new GregorianCalendar();
-
-			// Compute token expiration
-
-
-
-			UserInfo userinfo = null;
-			String tenantId = null;
-			String rawIdToken = null;
-			// IDtoken is related to Azure AD and returned with token
-			// response. ADFS does not return that.
-			rawIdToken = response.get(AuthenticationConstants.OAuth2.ID_TOKEN);
-			if (!StringExtensions.isNullOrBlank(rawIdToken)) {
-				Logger.v(TAG, "Id token was returned, parsing id token.");
-				IdToken tokenParsed = new IdToken(rawIdToken);
-				tenantId = tokenParsed.getTenantId();
-				userinfo = new UserInfo(tokenParsed);
-
-				int expiresIn = tokenParsed.getExpiration();
-
-				expires.add(
-					Calendar.SECOND,
-					expiresIn > 0 ? expiresIn : AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC);
-
-			} else {
-				Logger.v(TAG, "IdToken was not returned from token request.");
-			}
-
-			String familyClientId = null;
-
-			result = new AuthenticationResult(
-				response.get(AuthenticationConstants.OAuth2.ID_TOKEN), null, expires.getTime(),
-				false, userinfo, tenantId, rawIdToken, null);
-
-			if (response.containsKey(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN)) {
-				final String extendedExpiresIn = response.get(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN);
-				final Calendar extendedExpires = new GregorianCalendar();
-				// Compute extended token expiration
-				extendedExpires.add(
-					Calendar.SECOND,
-					StringExtensions.isNullOrBlank(extendedExpiresIn) ? AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC
-						: Integer.parseInt(extendedExpiresIn));
-				result.setExtendedExpiresOn(extendedExpires.getTime());
-			}
-
-			//Set family client id on authentication result for TokenCacheItem to pick up
-			result.setFamilyClientId(familyClientId);
-		}
-        else {
+                            + response.getErrorDescription());
+
+            result = new AuthenticationResult(response.getError(),
+                    response.getErrorDescription(),
+                    response.getErrorCodes());
+
+        } else if (response.getCode() != null) {
+            result = new AuthenticationResult(response.getCode());
+        } else if (response.getAccessToken() != null) {
+            // Token response
+            boolean isMultiResourceToken = false;
+            Calendar expires = new GregorianCalendar();
+
+            // Compute token expiration
+            expires.add(
+                    Calendar.SECOND,
+                    response.getExpiresIn() == TokenResponse.NOT_PRESENT
+                            ? AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC : (int) response.getExpiresIn());
+
+            final String refreshToken = response.getRefreshToken();
+            if (response.hasResource() && !StringExtensions.isNullOrBlank(refreshToken)) {
+                isMultiResourceToken = true;
+            }
+
+            // IDtoken is related to Azure AD and returned with token
+            // response. ADFS does not return that. Its claims are parsed by the result
+            // on first access to the user info or tenant id, only its structure is checked here.
+            final String rawIdToken = response.getIdToken();
+            if (StringExtensions.isNullOrBlank(rawIdToken)) {
+                Logger.v(TAG, "IdToken was not returned from token request.");
+            } else {
+                IdToken.validateStructure(rawIdToken);
+            }
+
+            result = new AuthenticationResult(
+                    response.getAccessToken(), refreshToken, expires.getTime(),
+                    isMultiResourceToken, null, null, rawIdToken, null);
+            setExtendedExpiresOn(result, response);
+
+            //Set family client id on authentication result for TokenCacheItem to pick up
+            result.setFamilyClientId(null);
+        } else if (response.getIdToken() != null) {
+            // Token response
+            Calendar expires = new GregorianCalendar();
+
+            UserInfo userinfo = null;
+            String tenantId = null;
+            // IDtoken is related to Azure AD and returned with token
+            // response. ADFS does not return that.
+            final String rawIdToken = response.getIdToken();
+            if (!StringExtensions.isNullOrBlank(rawIdToken)) {
+                Logger.v(TAG, "Id token was returned, parsing id token.");
+                IdToken tokenParsed = new IdToken(rawIdToken);
+                tenantId = tokenParsed.getTenantId();
+                userinfo = new UserInfo(tokenParsed);
+
+                // Compute token expiration
+                int expiresIn = tokenParsed.getExpiration();
+
+                expires.add(
+                        Calendar.SECOND,
+                        expiresIn > 0 ? expiresIn : AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC);
+
+            } else {
+                Logger.v(TAG, "IdToken was not returned from token request.");
+            }
+
+            result = new AuthenticationResult(
+                    rawIdToken, null, expires.getTime(),
+                    false, userinfo, tenantId, rawIdToken, null);
+            setExtendedExpiresOn(result, response);
+
+            //Set family client id on authentication result for TokenCacheItem to pick up
+            result.setFamilyClientId(null);
+        } else {
             result = null;
         }
 
         return result;
     }
 
-    private static void extractJsonObjects(Map<String, String> responseItems, String jsonStr)
-            throws JSONException {
-        final JSONObject jsonObject = new JSONObject(jsonStr);
-
-        final Iterator<?> i = jsonObject.keys();
-
-        while (i.hasNext()) {
-            final String key = (String) i.next();
-            responseItems.put(key, jsonObject.getString(key));
+    private static void setExtendedExpiresOn(final AuthenticationResult result, final TokenResponse response) {
+        if (response.getExtendedExpiresIn() != TokenResponse.NOT_PRESENT) {
+            final Calendar extendedExpires = new GregorianCalendar();
+            // Compute extended token expiration
+            extendedExpires.add(Calendar.SECOND, (int) response.getExtendedExpiresIn());
+            result.setExtendedExpiresOn(extendedExpires.getTime());
         }
     }
 
     public AuthenticationResult refreshToken(String refreshToken) throws IOException,
             AuthenticationException {
+        mWaitingThread = Thread.currentThread();
+        try {
+            return waitForResult(refreshTokenAsync(refreshToken, null));
+        } finally {
+            mWaitingThread = null;
+        }
+    }
+
+    /**
+     * Redeem the refresh token without blocking the calling thread.
+     *
+     * @param refreshToken The refresh token to redeem.
+     * @param callback {@link Callback} invoked on a background thread with the result, could be null.
+     * @return {@link Future} of the token result, cancel it to abandon the request.
+     */
+    public Future<AuthenticationResult> refreshTokenAsync(final String refreshToken,
+            final Callback<AuthenticationResult> callback) {
         final String requestMessage;
         if (mWebRequestHandler == null) {
             Logger.v(TAG, "Web request is not set correctly");
@@ -399,7 +411,7 @@ class Oauth2 {
             requestMessage = buildRefreshTokenRequestMessage(refreshToken);
         } catch (UnsupportedEncodingException encoding) {
             Logger.e(TAG, encoding.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, encoding);
-            return null;
+            return completedFuture(null, callback);
         }
 
         final Map<String, String> headers = getRequestHeaders();
@@ -409,7 +421,7 @@ class Oauth2 {
         headers.put(AuthenticationConstants.Broker.CHALLENGE_TLS_INCAPABLE,
                 AuthenticationConstants.Broker.CHALLENGE_TLS_INCAPABLE_VERSION);
         Logger.v(TAG, "Sending request to redeem token with refresh token.");
-        return postMessage(requestMessage, headers);
+        return postMessageAsync(requestMessage, headers, callback);
     }
 
     /**
@@ -425,7 +437,45 @@ class Oauth2 {
      */
     public AuthenticationResult getToken(String authorizationUrl)
             throws IOException, AuthenticationException {
+        mWaitingThread = Thread.currentThread();
+        try {
+            return waitForResult(getTokenAsync(authorizationUrl, null));
+        } finally {
+            mWaitingThread = null;
+        }
+    }
+
+    /**
+     * Parse the final url and exchange its code for token without blocking the calling thread.
+     *
+     * @param authorizationUrl browser reached to this final url and it has code
+     *            or token for next step
+     * @param callback {@link Callback} invoked on a background thread with the result, could be null.
+     * @return {@link Future} of the token result, cancel it to abandon the request.
+     */
+    public Future<AuthenticationResult> getTokenAsync(final String authorizationUrl,
+            final Callback<AuthenticationResult> callback) {
+        final AuthenticationResult result;
+        try {
+            result = parseAuthorizationResponse(authorizationUrl);
+        } catch (final IOException | AuthenticationException | RuntimeException e) {
+            final CallbackFuture<AuthenticationResult> future = new CallbackFuture<>(callback);
+            future.setException(e);
+            return future;
+        }
+
+        // Check if we have code
+        if (result != null && result.getCode() != null && !result.getCode().isEmpty()) {
+
+            //Get token and use external callback to set result
+            return getTokenForCodeAsync(result.getCode(), callback);
+        }
 
+        return completedFuture(result, callback);
+    }
+
+    private AuthenticationResult parseAuthorizationResponse(final String authorizationUrl)
+            throws IOException, AuthenticationException {
         if (StringExtensions.isNullOrBlank(authorizationUrl)) {
             throw new IllegalArgumentException("authorizationUrl");
         }
@@ -448,13 +498,6 @@ class Oauth2 {
 
                 AuthenticationResult result = processUIResponseParams(parameters);
 
-                
-                // Check if we have code
-                if (result != null && result.getCode() != null && !result.getCode().isEmpty()) {
-
-                    //Get token and use external callback to set result
-                    return getTokenForCode(result.getCode());
-                }
                 //SPIKE: end of commenting out!
 				//result.codeIsAccessToken(); // SPIKE: our new function to set the access token to the code!
                 
@@ -477,7 +520,23 @@ class Oauth2 {
      * @throws AuthenticationException
      */
     public AuthenticationResult getTokenForCode(String code) throws IOException, AuthenticationException {
+        mWaitingThread = Thread.currentThread();
+        try {
+            return waitForResult(getTokenForCodeAsync(code, null));
+        } finally {
+            mWaitingThread = null;
+        }
+    }
 
+    /**
+     * Exchange the code for token without blocking the calling thread.
+     *
+     * @param code the authorization code for which Authentication result is needed
+     * @param callback {@link Callback} invoked on a background thread with the result, could be null.
+     * @return {@link Future} of the token result, cancel it to abandon the request.
+     */
+    public Future<AuthenticationResult> getTokenForCodeAsync(final String code,
+            final Callback<AuthenticationResult> callback) {
         final String requestMessage;
         if (mWebRequestHandler == null) {
             throw new IllegalArgumentException("webRequestHandler");
@@ -486,162 +545,413 @@ class Oauth2 {
         // Token request message
         try {
             requestMessage = buildTokenRequestMessage(code, mRequest.GetCodeVerifier());
+            // The request message is reused by the retries, the verifier is not needed anymore
+            mRequest.clearCodeVerifier();
         } catch (UnsupportedEncodingException encoding) {
             Logger.e(TAG, encoding.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, encoding);
-            return null;
+            return completedFuture(null, callback);
         }
 
         final Map<String, String> headers = getRequestHeaders();
 
         Logger.v(TAG, "Sending request to redeem token with auth code.");
-        return postMessage(requestMessage, headers);
+        return postMessageAsync(requestMessage, headers, callback);
     }
 
-    private AuthenticationResult postMessage(String requestMessage, Map<String, String> headers)
-            throws IOException, AuthenticationException {
-        AuthenticationResult result = null;
+    /**
+     * Post the token request. Each step, the PKeyAuth challenge re-POST and the retries
+     * on timeout or 5xx, is chained on completion of the previous one so that no thread
+     * waits on the network between steps. Retries follow {@link AuthenticationSettings#getRetryPolicy()}.
+     */
+    private Future<AuthenticationResult> postMessageAsync(final String requestMessage,
+            final Map<String, String> headers, final Callback<AuthenticationResult> callback) {
+        final CallbackFuture<AuthenticationResult> result = new CallbackFuture<>(callback);
+        sendTokenRequest(requestMessage, headers, 1, System.currentTimeMillis(), 0, result);
+        return result;
+    }
+
+    private void sendTokenRequest(final String requestMessage, final Map<String, String> headers,
+            final int attempt, final long startMillis, final long retryDelayMillis,
+            final CallbackFuture<AuthenticationResult> result) {
         final HttpEvent httpEvent = startHttpEvent();
+        httpEvent.setAttempt(attempt);
+        if (attempt > 1) {
+            httpEvent.setRetryDelay(retryDelayMillis);
+        }
 
         final URL authority = StringExtensions.getUrl(getTokenEndpoint());
         if (authority == null) {
             stopHttpEvent(httpEvent);
-            throw new AuthenticationException(OIDCError.DEVELOPER_AUTHORITY_IS_NOT_VALID_URL);
+            result.setException(new AuthenticationException(OIDCError.DEVELOPER_AUTHORITY_IS_NOT_VALID_URL));
+            return;
         }
 
         httpEvent.setHttpPath(authority);
 
+        if (RetryingWebRequest.getRemainingMillis(mRequest.getDeadlineMillis()) <= 0) {
+            stopHttpEvent(httpEvent);
+            final String message = "Token request deadline has passed before attempt " + attempt + ".";
+            Logger.w(TAG, message, "", OIDCError.SERVER_ERROR);
+            if (mRequest.getIsExtendedLifetimeEnabled()) {
+                result.setException(new ServerRespondingWithRetryableException(message));
+            } else {
+                result.setException(new SocketTimeoutException(message));
+            }
+            return;
+        }
+
+        // Checked before the circuit breaker, so that a half open probe is never held back. Code
+        // redemptions are exempt, the code is single use and short lived and the user just signed in.
+        if (attempt == 1 && !isCodeRedemption(requestMessage)
+                && !acquireRateLimit(requestMessage, headers, startMillis, httpEvent, result)) {
+            return;
+        }
+
+        final CircuitBreaker circuitBreaker = CircuitBreaker.forHost(authority.getHost());
+        final boolean isRequestAllowed = circuitBreaker.allowRequest();
+        httpEvent.setCircuitState(circuitBreaker.getState().getTelemetryValue());
+        if (!isRequestAllowed) {
+            stopHttpEvent(httpEvent);
+            final String message = "Token requests to " + authority.getHost()
+                    + " are suspended after repeated failures.";
+            Logger.w(TAG, message, "", OIDCError.SERVER_UNAVAILABLE);
+            if (mRequest.getIsExtendedLifetimeEnabled()) {
+                // Lets the silent flow return the stale access token right away
+                result.setException(new ServerRespondingWithRetryableException(message));
+            } else {
+                result.setException(new AuthenticationException(OIDCError.SERVER_UNAVAILABLE, message));
+            }
+            return;
+        }
+
+        final byte[] content;
         try {
             mWebRequestHandler.setRequestCorrelationId(mRequest.getCorrelationId());
+            if (mWebRequestHandler instanceof IAsyncWebRequestHandler) {
+                // Connect and read timeouts of this attempt and the challenge re-POST use the remaining budget
+                ((IAsyncWebRequestHandler) mWebRequestHandler).setRequestDeadline(mRequest.getDeadlineMillis());
+            }
             ClientMetrics.INSTANCE.beginClientMetricsRecord(authority, mRequest.getCorrelationId(),
                     headers);
-            HttpWebResponse response = mWebRequestHandler.sendPost(authority, headers,
-                    requestMessage.getBytes(AuthenticationConstants.ENCODING_UTF8),
-                    "application/x-www-form-urlencoded");
-            httpEvent.setResponseCode(response.getStatusCode());
-            httpEvent.setCorrelationId(mRequest.getCorrelationId().toString());
-            stopHttpEvent(httpEvent);
+            content = requestMessage.getBytes(AuthenticationConstants.ENCODING_UTF8);
+        } catch (final UnsupportedEncodingException e) {
+            ClientMetrics.INSTANCE.setLastError(null);
+            Logger.e(TAG, e.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
+            endClientMetricsRecord();
+            result.setException(e);
+            return;
+        }
+
+        result.setPendingStep(sendPostAsync(authority, headers, content,
+                new Callback<HttpWebResponse>() {
+            @Override
+            public void onSuccess(final HttpWebResponse response) {
+                httpEvent.setResponseCode(response.getStatusCode());
+                httpEvent.setCorrelationId(mRequest.getCorrelationId().toString());
+                httpEvent.setTiming(response.getTiming());
+                stopHttpEvent(httpEvent);
+                circuitBreaker.recordResponse(response.getStatusCode());
 
-            if (response.getStatusCode() == HttpURLConnection.HTTP_UNAUTHORIZED) {
-                if (response.getResponseHeaders() != null
-                        && response.getResponseHeaders().containsKey(
-                                AuthenticationConstants.Broker.CHALLENGE_REQUEST_HEADER)) {
-
-                    // Device certificate challenge will send challenge request
-                    // in 401 header.
-                    String challengeHeader = response.getResponseHeaders()
-                            .get(AuthenticationConstants.Broker.CHALLENGE_REQUEST_HEADER).get(0);
-                    Logger.v(TAG, "Device certificate challenge request:" + challengeHeader);
-                    if (!StringExtensions.isNullOrBlank(challengeHeader)) {
-
-                        // Handle each specific challenge header
-                        if (StringExtensions.hasPrefixInHeader(challengeHeader,
-                                AuthenticationConstants.Broker.CHALLENGE_RESPONSE_TYPE)) {
-                            final HttpEvent challengeHttpEvent = startHttpEvent();
-                            challengeHttpEvent.setHttpPath(authority);
-                            Logger.v(TAG, "Received pkeyAuth device challenge.");
-                            ChallengeResponseBuilder certHandler = new ChallengeResponseBuilder(
-                                    mJWSBuilder);
-                            Logger.v(TAG, "Processing device challenge");
-                            final ChallengeResponse challengeResponse = certHandler
-                                    .getChallengeResponseFromHeader(challengeHeader,
-                                            authority.toString());
-                            headers.put(AuthenticationConstants.Broker.CHALLENGE_RESPONSE_HEADER,
-                                    challengeResponse.getAuthorizationHeaderValue());
-                            Logger.v(TAG, "Sending request with challenge response");
-                            response = mWebRequestHandler.sendPost(authority, headers,
-                                    requestMessage.getBytes(AuthenticationConstants.ENCODING_UTF8),
-                                    "application/x-www-form-urlencoded");
-                            challengeHttpEvent.setResponseCode(response.getStatusCode());
-                            challengeHttpEvent.setCorrelationId(mRequest.getCorrelationId().toString());
-                            stopHttpEvent(challengeHttpEvent);
-                        }
-                    } else {
-                        throw new AuthenticationException(
-							OIDCError.DEVICE_CERTIFICATE_REQUEST_INVALID,
-                                "Challenge header is empty");
+                try {
+                    if (!sendChallengeResponseIfRequested(response, authority, requestMessage, headers,
+                            content, attempt, startMillis, httpEvent, result)) {
+                        completeTokenRequest(response, requestMessage, headers, attempt, startMillis,
+                                httpEvent, result);
                     }
-                } else {
-                    // AAD server returns 401 response for wrong request
-                    // messages
-                    Logger.v(TAG, "401 http status code is returned without authorization header");
+                } catch (final AuthenticationException | RuntimeException e) {
+                    endClientMetricsRecord();
+                    result.setException(e);
                 }
             }
 
-            boolean isBodyEmpty = TextUtils.isEmpty(response.getBody());
-            if (!isBodyEmpty) {
-                // Protocol related errors will read the error stream and report
-                // the error and error description
-                Logger.v(TAG, "Token request does not have exception");
-                try {
-                    result = processTokenResponse(response, httpEvent);
-                } catch (final ServerRespondingWithRetryableException e) {
-                    result = retry(requestMessage, headers);
-                    if (result != null) {
-                        return result;
-                    }
+            @Override
+            public void onError(final Throwable throwable) {
+                circuitBreaker.recordError(throwable);
+                onTokenRequestFailed(throwable, requestMessage, headers, attempt, startMillis, result);
+            }
+        }));
+    }
 
-                    if (mRequest.getIsExtendedLifetimeEnabled()) {
-                        Logger.v(TAG, "WebResponse is not a success due to: " + response.getStatusCode());
-                        throw e;
-                    } else {
-                        Logger.v(TAG, "WebResponse is not a success due to: " + response.getStatusCode());
-                        throw new AuthenticationException(OIDCError.SERVER_ERROR, "WebResponse is not a success due to: " + response.getStatusCode());
-                    }
+    private static boolean isCodeRedemption(final String requestMessage) {
+        return requestMessage.startsWith(AuthenticationConstants.OAuth2.GRANT_TYPE + "="
+                + AuthenticationConstants.OAuth2.AUTHORIZATION_CODE + "&");
+    }
+
+    /**
+     * Take a token of the client side rate limit for the first attempt. A request over the
+     * limit is queued if its turn comes within the configured queue time and its deadline,
+     * and fails with {@link OIDCError#TOKEN_REQUEST_RATE_LIMITED} otherwise.
+     *
+     * @return true if the request can be sent now, false if it is queued or failed.
+     */
+    private boolean acquireRateLimit(final String requestMessage, final Map<String, String> headers,
+            final long startMillis, final HttpEvent httpEvent, final CallbackFuture<AuthenticationResult> result) {
+        final long waitMillis = TokenRequestRateLimiter.tryAcquire(mRequest.getAuthority(),
+                TokenRequestRateLimiter.createRequestKey(mRequest));
+        if (waitMillis == 0) {
+            return true;
+        }
+
+        if (waitMillis <= AuthenticationSettings.INSTANCE.getTokenRequestMaxQueueMillis()
+                && waitMillis < RetryingWebRequest.getRemainingMillis(mRequest.getDeadlineMillis())) {
+            httpEvent.setRateLimit("queued", waitMillis);
+            stopHttpEvent(httpEvent);
+            Logger.v(TAG, "Token request is over the rate limit, queued for " + waitMillis + " ms.");
+            result.setPendingStep(RetryingWebRequest.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    sendTokenRequest(requestMessage, headers, 1, startMillis, 0, result);
+                }
+            }, waitMillis));
+            return false;
+        }
+
+        httpEvent.setRateLimit("rejected", waitMillis);
+        stopHttpEvent(httpEvent);
+        final String message = "Token requests for " + mRequest.getAuthority()
+                + " exceed the client side rate limit, next request allowed in " + waitMillis + " ms.";
+        Logger.w(TAG, message, "", OIDCError.TOKEN_REQUEST_RATE_LIMITED);
+        if (mRequest.getIsExtendedLifetimeEnabled()) {
+            // Lets the silent flow return the stale access token right away
+            result.setException(new ServerRespondingWithRetryableException(message));
+        } else {
+            result.setException(new AuthenticationException(OIDCError.TOKEN_REQUEST_RATE_LIMITED, message));
+        }
+        return false;
+    }
+
+    /**
+     * Re-POST the token request with the PKeyAuth challenge response if the server
+     * sent a device certificate challenge.
+     *
+     * @return true if the challenge response is sent and will complete the result.
+     */
+    private boolean sendChallengeResponseIfRequested(final HttpWebResponse response, final URL authority,
+            final String requestMessage, final Map<String, String> headers, final byte[] content,
+            final int attempt, final long startMillis, final HttpEvent httpEvent,
+            final CallbackFuture<AuthenticationResult> result) throws AuthenticationException {
+        if (response.getStatusCode() != HttpURLConnection.HTTP_UNAUTHORIZED) {
+            return false;
+        }
+
+        if (response.getResponseHeaders() == null
+                || !response.getResponseHeaders().containsKey(
+                        AuthenticationConstants.Broker.CHALLENGE_REQUEST_HEADER)) {
+            // AAD server returns 401 response for wrong request
+            // messages
+            Logger.v(TAG, "401 http status code is returned without authorization header");
+            return false;
+        }
+
+        // Device certificate challenge will send challenge request
+        // in 401 header.
+        final String challengeHeader = response.getResponseHeaders()
+                .get(AuthenticationConstants.Broker.CHALLENGE_REQUEST_HEADER).get(0);
+        Logger.v(TAG, "Device certificate challenge request:" + challengeHeader);
+        if (StringExtensions.isNullOrBlank(challengeHeader)) {
+            throw new AuthenticationException(
+                    OIDCError.DEVICE_CERTIFICATE_REQUEST_INVALID,
+                    "Challenge header is empty");
+        }
+
+        // Handle each specific challenge header
+        if (!StringExtensions.hasPrefixInHeader(challengeHeader,
+                AuthenticationConstants.Broker.CHALLENGE_RESPONSE_TYPE)) {
+            return false;
+        }
+
+        final HttpEvent challengeHttpEvent = startHttpEvent();
+        challengeHttpEvent.setHttpPath(authority);
+        challengeHttpEvent.setAttempt(attempt);
+        Logger.v(TAG, "Received pkeyAuth device challenge.");
+        ChallengeResponseBuilder certHandler = new ChallengeResponseBuilder(
+                mJWSBuilder);
+        Logger.v(TAG, "Processing device challenge");
+        final ChallengeResponse challengeResponse = certHandler
+                .getChallengeResponseFromHeader(challengeHeader,
+                        authority.toString());
+        headers.put(AuthenticationConstants.Broker.CHALLENGE_RESPONSE_HEADER,
+                challengeResponse.getAuthorizationHeaderValue());
+        Logger.v(TAG, "Sending request with challenge response");
+        result.setPendingStep(sendPostAsync(authority, headers, content,
+                new Callback<HttpWebResponse>() {
+            @Override
+            public void onSuccess(final HttpWebResponse challengeResult) {
+                challengeHttpEvent.setResponseCode(challengeResult.getStatusCode());
+                challengeHttpEvent.setCorrelationId(mRequest.getCorrelationId().toString());
+                challengeHttpEvent.setTiming(challengeResult.getTiming());
+                stopHttpEvent(challengeHttpEvent);
+                CircuitBreaker.forHost(authority.getHost()).recordResponse(challengeResult.getStatusCode());
+
+                try {
+                    completeTokenRequest(challengeResult, requestMessage, headers, attempt, startMillis,
+                            httpEvent, result);
+                } catch (final RuntimeException e) {
+                    endClientMetricsRecord();
+                    result.setException(e);
                 }
-                ClientMetrics.INSTANCE.setLastError(null);
             }
-            if (result == null) {
-                // non-protocol related error
-                String errMessage = isBodyEmpty ? "Status code:" + response.getStatusCode() : response.getBody();
-                Logger.e(TAG, "Server error message", errMessage, OIDCError.SERVER_ERROR);
-                throw new AuthenticationException(OIDCError.SERVER_ERROR, errMessage);
-            } else {
-                ClientMetrics.INSTANCE.setLastErrorCodes(result.getErrorCodes());
+
+            @Override
+            public void onError(final Throwable throwable) {
+                CircuitBreaker.forHost(authority.getHost()).recordError(throwable);
+                onTokenRequestFailed(throwable, requestMessage, headers, attempt, startMillis, result);
+            }
+        }));
+
+        return true;
+    }
+
+    private void completeTokenRequest(final HttpWebResponse response, final String requestMessage,
+            final Map<String, String> headers, final int attempt, final long startMillis,
+            final HttpEvent httpEvent, final CallbackFuture<AuthenticationResult> result) {
+        AuthenticationResult tokenResult = null;
+        final boolean isBodyEmpty = TextUtils.isEmpty(response.getBody());
+        if (!isBodyEmpty) {
+            // Protocol related errors will read the error stream and report
+            // the error and error description
+            Logger.v(TAG, "Token request does not have exception");
+            try {
+                tokenResult = processTokenResponse(response, httpEvent);
+            } catch (final ServerRespondingWithRetryableException e) {
+                endClientMetricsRecord();
+                if (retry(requestMessage, headers, attempt, startMillis, response.getRetryAfterMillis(), result)) {
+                    return;
+                }
+
+                Logger.v(TAG, "WebResponse is not a success due to: " + response.getStatusCode());
+                if (mRequest.getIsExtendedLifetimeEnabled()) {
+                    result.setException(e);
+                } else {
+                    result.setException(new AuthenticationException(OIDCError.SERVER_ERROR,
+                            "WebResponse is not a success due to: " + response.getStatusCode()));
+                }
+                return;
+            } catch (final AuthenticationException e) {
+                endClientMetricsRecord();
+                result.setException(e);
+                return;
             }
-        } catch (final UnsupportedEncodingException e) {
             ClientMetrics.INSTANCE.setLastError(null);
-            Logger.e(TAG, e.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
-            throw e;
-        } catch (final SocketTimeoutException e) {
-            result = retry(requestMessage, headers);
-            if (result != null) {
-                return result;
+        }
+
+        if (tokenResult == null) {
+            // non-protocol related error
+            String errMessage = isBodyEmpty ? "Status code:" + response.getStatusCode() : response.getBody();
+            Logger.e(TAG, "Server error message", errMessage, OIDCError.SERVER_ERROR);
+            endClientMetricsRecord();
+            result.setException(new AuthenticationException(OIDCError.SERVER_ERROR, errMessage));
+            return;
+        }
+
+        ClientMetrics.INSTANCE.setLastErrorCodes(tokenResult.getErrorCodes());
+        endClientMetricsRecord();
+        completeWithVerifiedIdToken(tokenResult, result);
+    }
+
+    private void onTokenRequestFailed(final Throwable throwable, final String requestMessage,
+            final Map<String, String> headers, final int attempt, final long startMillis,
+            final CallbackFuture<AuthenticationResult> result) {
+        if (throwable instanceof SocketTimeoutException) {
+            endClientMetricsRecord();
+            if (retry(requestMessage, headers, attempt, startMillis, 0, result)) {
+                return;
             }
 
             ClientMetrics.INSTANCE.setLastError(null);
+            Logger.e(TAG, throwable.getMessage(), "", OIDCError.SERVER_ERROR, throwable);
             if (mRequest.getIsExtendedLifetimeEnabled()) {
-                Logger.e(TAG, e.getMessage(), "", OIDCError.SERVER_ERROR, e);
-                throw new ServerRespondingWithRetryableException(e.getMessage(), e);
+                result.setException(new ServerRespondingWithRetryableException(throwable.getMessage(), throwable));
             } else {
-                Logger.e(TAG, e.getMessage(), "", OIDCError.SERVER_ERROR, e);
-                throw e;
+                result.setException(throwable);
             }
-        } catch (final IOException e) {
-            ClientMetrics.INSTANCE.setLastError(null);
-            Logger.e(TAG, e.getMessage(), "", OIDCError.SERVER_ERROR, e);
-            throw e;
-        } finally {
-            ClientMetrics.INSTANCE.endClientMetricsRecord(ClientMetricsEndpointType.TOKEN,
-                    mRequest.getCorrelationId());
+            return;
         }
-        return result;
+
+        ClientMetrics.INSTANCE.setLastError(null);
+        Logger.e(TAG, throwable.getMessage(), "", OIDCError.SERVER_ERROR, throwable);
+        endClientMetricsRecord();
+        result.setException(throwable);
     }
-    
-    private AuthenticationResult retry(String requestMessage, Map<String, String> headers) throws IOException, AuthenticationException {
-        //retry once if there is an observation of a network timeout by the client 
-        if (mRetryOnce) {
-            mRetryOnce = false;
-            try {
-                Thread.sleep(DELAY_TIME_PERIOD);
-            } catch (final InterruptedException exception) {
-                Logger.v(TAG, "The thread is interrupted while it is sleeping. " + exception);
-            }
 
-            Logger.v(TAG, "Try again...");
-            return postMessage(requestMessage, headers);
+    /**
+     * Schedule the next attempt of the token request if the retry policy allows it,
+     * instead of sleeping on the calling thread.
+     *
+     * @return true if the retry is scheduled and will complete the result.
+     */
+    private boolean retry(final String requestMessage, final Map<String, String> headers, final int attempt,
+            final long startMillis, final long retryAfterMillis, final CallbackFuture<AuthenticationResult> result) {
+        final long delay = RetryingWebRequest.getRetryDelayMillis(attempt, startMillis, retryAfterMillis,
+                mRequest.getDeadlineMillis());
+        if (delay == IRetryPolicy.NO_RETRY) {
+            return false;
         }
 
-        return null;
+        Logger.v(TAG, "Try again in " + delay + " ms...");
+        result.setPendingStep(RetryingWebRequest.schedule(new Runnable() {
+            @Override
+            public void run() {
+                sendTokenRequest(requestMessage, headers, attempt + 1, startMillis, delay, result);
+            }
+        }, delay));
+
+        return true;
+    }
+
+    private void endClientMetricsRecord() {
+        ClientMetrics.INSTANCE.endClientMetricsRecord(ClientMetricsEndpointType.TOKEN,
+                mRequest.getCorrelationId());
+    }
+
+    /**
+     * Send the token request POST. The synchronous API waits on the calling thread anyway, so
+     * the steps that run on it send from it instead of holding a second thread.
+     */
+    private Future<HttpWebResponse> sendPostAsync(final URL authority, final Map<String, String> headers,
+            final byte[] content, final Callback<HttpWebResponse> callback) {
+        return RetryingWebRequest.sendPostAsync(mWebRequestHandler, authority, headers, content,
+                Thread.currentThread() == mWaitingThread, callback);
+    }
+
+    private static Future<AuthenticationResult> completedFuture(final AuthenticationResult value,
+            final Callback<AuthenticationResult> callback) {
+        final CallbackFuture<AuthenticationResult> future = new CallbackFuture<>(callback);
+        future.set(value);
+        return future;
+    }
+
+    /**
+     * Wait for the token request on the calling thread, used by the synchronous API.
+     * The wait never outlasts the deadline of the request.
+     */
+    private AuthenticationResult waitForResult(final Future<AuthenticationResult> future)
+            throws IOException, AuthenticationException {
+        try {
+            return RetryingWebRequest.waitUntilDeadline(future, mRequest.getDeadlineMillis());
+        } catch (final SocketTimeoutException e) {
+            Logger.w(TAG, e.getMessage(), "", OIDCError.SERVER_ERROR);
+            if (mRequest.getIsExtendedLifetimeEnabled()) {
+                throw new ServerRespondingWithRetryableException(e.getMessage(), e);
+            }
+
+            throw e;
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Token request is interrupted.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof AuthenticationException) {
+                throw (AuthenticationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new AuthenticationException(OIDCError.SERVER_ERROR, cause.getMessage(), cause);
+        }
     }
 
     public static String decodeProtocolState(String encodedState) throws UnsupportedEncodingException {
@@ -708,7 +1018,7 @@ class Oauth2 {
                 if (result != null) {
                     httpEvent.setOauthErrorCode(result.getErrorCode());
                 }
-            } catch (final JSONException jsonException) {
+            } catch (final IOException jsonException) {
                 throw new AuthenticationException(OIDCError.SERVER_INVALID_JSON_RESPONSE, "Can't parse server response " + webResponse.getBody(), jsonException);
             }
         } else if (statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR && statusCode <= MAX_RESILIENCY_ERROR_CODE) {
@@ -737,11 +1047,84 @@ class Oauth2 {
     }
 
     private AuthenticationResult parseJsonResponse(final String responseBody)
-            throws JSONException,
+            throws IOException,
             AuthenticationException {
-        final Map<String, String> responseItems = new HashMap<>();
-        extractJsonObjects(responseItems, responseBody);
-        return processUIResponseParams(responseItems);
+        return createAuthenticationResult(TokenResponse.parse(responseBody));
+    }
+
+    /**
+     * Complete the result once the id_token signature is verified with the key set of the authority.
+     * The OpenID configuration and key set are fetched if they are not cached, never on the network
+     * thread completing the token request. If they cannot be fetched, the token is rejected unless
+     * {@link AuthenticationSettings#getAcceptIdTokenWhenKeysUnavailable()} is set.
+     */
+    private void completeWithVerifiedIdToken(final AuthenticationResult tokenResult,
+            final CallbackFuture<AuthenticationResult> result) {
+        final String rawIdToken = tokenResult.getIdToken();
+        if (!AuthenticationSettings.INSTANCE.getVerifyIdTokenSignature()
+                || StringExtensions.isNullOrBlank(rawIdToken)) {
+            result.set(tokenResult);
+            return;
+        }
+
+        final OpenIdConfiguration configuration = getOpenIdConfiguration();
+        if (configuration == null ? !isOpenIdDiscoveryUsed()
+                : StringExtensions.isNullOrBlank(configuration.getJwksUri())) {
+            completeUnverified(tokenResult, new AuthenticationException(
+                    OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                    "jwks_uri of the authority is not known"), result);
+            return;
+        }
+
+        IdTokenVerifier.verifyAsync(rawIdToken, mRequest.getAuthority(),
+                configuration == null ? null : configuration.getJwksUri(), mRequest.getDeadlineMillis(),
+                new Callback<Void>() {
+            @Override
+            public void onSuccess(final Void verified) {
+                Logger.v(TAG, "IdToken signature is verified.");
+                result.set(tokenResult);
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                completeUnverified(tokenResult, throwable, result);
+            }
+        });
+    }
+
+    private static void completeUnverified(final AuthenticationResult tokenResult, final Throwable throwable,
+            final CallbackFuture<AuthenticationResult> result) {
+        final AuthenticationException rejection = getIdTokenRejection(throwable);
+        if (rejection == null) {
+            result.set(tokenResult);
+        } else {
+            result.setException(rejection);
+        }
+    }
+
+    /**
+     * @return the error the token request fails with, null if the id_token is accepted unverified.
+     */
+    private static AuthenticationException getIdTokenRejection(final Throwable throwable) {
+        final AuthenticationException e = throwable instanceof AuthenticationException
+                ? (AuthenticationException) throwable
+                : new AuthenticationException(OIDCError.IO_EXCEPTION, throwable.getMessage(), throwable);
+        if (e.getCode() == OIDCError.IDTOKEN_SIGNATURE_INVALID
+                || e.getCode() == OIDCError.IDTOKEN_PARSING_FAILURE) {
+            Logger.e(TAG, "IdToken signature verification failed.", e.getMessage(), e.getCode(), e);
+            return e;
+        }
+
+        if (AuthenticationSettings.INSTANCE.getAcceptIdTokenWhenKeysUnavailable()) {
+            Logger.w(TAG, "JSON Web Key Set is not available, id_token signature is not verified.",
+                    e.getMessage(), e.getCode());
+            return null;
+        }
+
+        Logger.e(TAG, "JSON Web Key Set is not available, id_token is rejected.", e.getMessage(),
+                OIDCError.IDTOKEN_SIGNATURE_INVALID, e);
+        return new AuthenticationException(OIDCError.IDTOKEN_SIGNATURE_INVALID,
+                "IdToken signature cannot be verified, the JSON Web Key Set is not available", e);
     }
 
     private HttpEvent startHttpEvent() {
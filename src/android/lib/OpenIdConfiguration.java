@@ -0,0 +1,92 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Data container for the OpenID Connect discovery document.
+ *
+ * @see <a href="https://openid.net/specs/openid-connect-discovery-1_0.html">OpenID Connect Discovery</a>
+ */
+final class OpenIdConfiguration {
+
+    @SerializedName("issuer")
+    private String mIssuer;
+
+    @SerializedName("authorization_endpoint")
+    private String mAuthorizationEndpoint;
+
+    @SerializedName("token_endpoint")
+    private String mTokenEndpoint;
+
+    @SerializedName("jwks_uri")
+    private String mJwksUri;
+
+    @SerializedName("end_session_endpoint")
+    private String mEndSessionEndpoint;
+
+    /**
+     * No args constructor for use in serialization for Gson to prevent usage of sun.misc.Unsafe
+     */
+    @SuppressWarnings("unused")
+    OpenIdConfiguration() {
+    }
+
+    /**
+     * @return the issuer identifier
+     */
+    String getIssuer() {
+        return mIssuer;
+    }
+
+    /**
+     * @return the authorization endpoint
+     */
+    String getAuthorizationEndpoint() {
+        return mAuthorizationEndpoint;
+    }
+
+    /**
+     * @return the token endpoint
+     */
+    String getTokenEndpoint() {
+        return mTokenEndpoint;
+    }
+
+    /**
+     * @return the url of the JSON Web Key Set of the issuer
+     */
+    String getJwksUri() {
+        return mJwksUri;
+    }
+
+    /**
+     * @return the end session endpoint, null if the authority does not support it
+     */
+    String getEndSessionEndpoint() {
+        return mEndSessionEndpoint;
+    }
+}
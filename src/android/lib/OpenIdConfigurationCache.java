@@ -0,0 +1,273 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Memory and disk cache of the OpenID Connect discovery documents, keyed by authority.
+ * Lookups never block on the network: a missing or expired document is fetched, or
+ * revalidated with its entity tag, in background while the caller keeps using the cached
+ * document or the endpoint fragment. Freshness follows the Cache-Control of the response.
+ */
+final class OpenIdConfigurationCache {
+
+    private static final String TAG = "OpenIdConfigurationCache";
+
+    private static final String SHARED_PREFERENCE_NAME = "com.cordova.plugin.oidc.openid_configuration";
+
+    /**
+     * Freshness lifetime of a document served without Cache-Control max-age.
+     */
+    private static final long DEFAULT_MAX_AGE_MILLIS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Lower bound of the freshness lifetime, so that no-cache does not revalidate on every request.
+     */
+    private static final long MIN_MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Time before an authority whose discovery failed is requested again.
+     */
+    private static final long FAILURE_BACKOFF_MILLIS = 60 * 60 * 1000;
+
+    private static final ExecutorService DISCOVERY_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final ConcurrentMap<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Long> NEXT_ATTEMPT_MILLIS = new ConcurrentHashMap<>();
+
+    /**
+     * Authorities with a discovery request queued or in flight.
+     */
+    private static final Set<String> IN_FLIGHT_AUTHORITIES =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private static final AtomicBoolean INITIALIZED = new AtomicBoolean(false);
+
+    private static final Gson GSON = new Gson();
+
+    private static volatile SharedPreferences sPrefs = null;
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private OpenIdConfigurationCache() { }
+
+    /**
+     * Load the persisted documents in background. Only the first call has an effect.
+     *
+     * @param context {@link Context} used to open the shared preferences.
+     */
+    static void initialize(final Context context) {
+        if (context == null || !INITIALIZED.compareAndSet(false, true)) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext() == null ? context : context.getApplicationContext();
+        DISCOVERY_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SharedPreferences prefs = appContext.getSharedPreferences(SHARED_PREFERENCE_NAME,
+                        Activity.MODE_PRIVATE);
+                for (final Map.Entry<String, ?> persisted : prefs.getAll().entrySet()) {
+                    try {
+                        final Entry entry = GSON.fromJson(String.valueOf(persisted.getValue()), Entry.class);
+                        if (entry != null && entry.mConfiguration != null) {
+                            ENTRIES.putIfAbsent(persisted.getKey(), entry);
+                        }
+                    } catch (final JsonSyntaxException e) {
+                        Logger.w(TAG, "Dropping unreadable OpenID configuration", e.getMessage(),
+                                OIDCError.JSON_PARSE_ERROR);
+                    }
+                }
+
+                sPrefs = prefs;
+                Logger.v(TAG, "Loaded " + ENTRIES.size() + " OpenID configurations from disk.");
+            }
+        });
+    }
+
+    /**
+     * Get the cached discovery document of the authority. A missing or expired document is
+     * requested in background, the expired one is still returned meanwhile.
+     *
+     * @param authority the authority url
+     * @return the cached {@link OpenIdConfiguration}, null if none is cached or discovery is disabled
+     */
+    static OpenIdConfiguration get(final String authority) {
+        if (!AuthenticationSettings.INSTANCE.getUseOpenIdDiscovery() || StringExtensions.isNullOrBlank(authority)) {
+            return null;
+        }
+
+        final String key = authority.toLowerCase(Locale.US);
+        final Entry entry = ENTRIES.get(key);
+        if (entry == null || entry.isExpired()) {
+            refreshAsync(key, authority);
+        }
+
+        return entry == null ? null : entry.mConfiguration;
+    }
+
+    /**
+     * Get the discovery document of the authority, fetching it on the calling thread if none is
+     * cached. Used where the document is required, so this must not be called on a network thread.
+     *
+     * @param authority the authority url
+     * @param deadlineMillis deadline of the fetch in milliseconds since epoch
+     * @return the {@link OpenIdConfiguration}, null if discovery is disabled
+     * @throws AuthenticationException if the document cannot be fetched
+     */
+    static OpenIdConfiguration getOrFetch(final String authority, final long deadlineMillis)
+            throws AuthenticationException {
+        final OpenIdConfiguration configuration = get(authority);
+        if (configuration != null || !AuthenticationSettings.INSTANCE.getUseOpenIdDiscovery()
+                || StringExtensions.isNullOrBlank(authority)) {
+            return configuration;
+        }
+
+        final String key = authority.toLowerCase(Locale.US);
+        refresh(key, authority, ENTRIES.get(key), deadlineMillis);
+        return ENTRIES.get(key).mConfiguration;
+    }
+
+    /**
+     * Drop the documents from memory and disk.
+     */
+    static void clear() {
+        ENTRIES.clear();
+        NEXT_ATTEMPT_MILLIS.clear();
+        final SharedPreferences prefs = sPrefs;
+        if (prefs != null) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    private static void refreshAsync(final String key, final String authority) {
+        final Long nextAttempt = NEXT_ATTEMPT_MILLIS.get(key);
+        if (nextAttempt != null && System.currentTimeMillis() < nextAttempt) {
+            return;
+        }
+
+        if (!IN_FLIGHT_AUTHORITIES.add(key)) {
+            return;
+        }
+
+        DISCOVERY_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // The document may have been loaded from disk since the request was queued.
+                    final Entry cachedEntry = ENTRIES.get(key);
+                    if (cachedEntry == null || cachedEntry.isExpired()) {
+                        refresh(key, authority, cachedEntry, 0);
+                    }
+                } catch (final AuthenticationException | RuntimeException e) {
+                    Logger.w(TAG, "OpenID configuration is not available, the endpoint fragment is used.",
+                            e.getMessage(), OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR);
+                    NEXT_ATTEMPT_MILLIS.put(key, System.currentTimeMillis() + FAILURE_BACKOFF_MILLIS);
+                } finally {
+                    IN_FLIGHT_AUTHORITIES.remove(key);
+                }
+            }
+        });
+    }
+
+    private static void refresh(final String key, final String authority, final Entry cachedEntry,
+                                final long deadlineMillis) throws AuthenticationException {
+        final OpenIdConfigurationRequestor requestor = new OpenIdConfigurationRequestor();
+        requestor.setDeadline(deadlineMillis);
+        if (cachedEntry != null) {
+            requestor.setETag(cachedEntry.mETag);
+        }
+
+        OpenIdConfiguration configuration = requestor.requestMetadata(authority);
+        if (configuration == null) {
+            // Not modified, keep the cached document.
+            configuration = cachedEntry.mConfiguration;
+        }
+
+        final long maxAgeMillis = requestor.getMaxAgeMillis() < 0
+                ? DEFAULT_MAX_AGE_MILLIS : Math.max(MIN_MAX_AGE_MILLIS, requestor.getMaxAgeMillis());
+        final Entry entry = new Entry(configuration, requestor.getETag(),
+                System.currentTimeMillis() + maxAgeMillis);
+        ENTRIES.put(key, entry);
+        NEXT_ATTEMPT_MILLIS.remove(key);
+        Logger.v(TAG, "OpenID configuration of " + authority + " is cached for " + maxAgeMillis + " ms.");
+
+        final SharedPreferences prefs = sPrefs;
+        if (prefs != null) {
+            if (requestor.isNoStore()) {
+                prefs.edit().remove(key).apply();
+            } else {
+                prefs.edit().putString(key, GSON.toJson(entry)).apply();
+            }
+        }
+    }
+
+    private static final class Entry {
+        @SerializedName("configuration")
+        private OpenIdConfiguration mConfiguration;
+
+        @SerializedName("etag")
+        private String mETag;
+
+        @SerializedName("expires_on")
+        private long mExpiresOnMillis;
+
+        /**
+         * No args constructor for use in serialization for Gson to prevent usage of sun.misc.Unsafe
+         */
+        @SuppressWarnings("unused")
+        Entry() {
+        }
+
+        Entry(final OpenIdConfiguration configuration, final String eTag, final long expiresOnMillis) {
+            mConfiguration = configuration;
+            mETag = eTag;
+            mExpiresOnMillis = expiresOnMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= mExpiresOnMillis;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.cordova.plugin.oidc.AuthenticationConstants.HeaderField.ACCEPT;
+import static com.cordova.plugin.oidc.AuthenticationConstants.MediaType.APPLICATION_JSON;
+
+/**
+ * Delegate class capable of fetching the OpenID Connect discovery document of an authority,
+ * conditionally if the entity tag of a cached document is set with {@link #setETag(String)}.
+ *
+ * @see OpenIdConfiguration
+ */
+final class OpenIdConfigurationRequestor extends AbstractMetadataRequestor<OpenIdConfiguration, String> {
+
+    /**
+     * Tag used for logging.
+     */
+    private static final String TAG = OpenIdConfigurationRequestor.class.getSimpleName();
+
+    private static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+    /**
+     * Request the OpenID Connect discovery document of the authority.
+     *
+     * @param authority the authority url
+     * @return the metadata, or null if the conditional request found the cached document unchanged
+     * @throws AuthenticationException if the document cannot be fetched or parsed
+     */
+    @Override
+    OpenIdConfiguration requestMetadata(final String authority) throws AuthenticationException {
+        final String trimmedAuthority = authority.endsWith("/")
+                ? authority.substring(0, authority.length() - 1) : authority;
+        final URL requestURL = StringExtensions.getUrl(trimmedAuthority + WELL_KNOWN_PATH);
+        if (requestURL == null) {
+            throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_URL_INVALID);
+        }
+
+        final Map<String, String> headers = new HashMap<>();
+        headers.put(ACCEPT, APPLICATION_JSON);
+        if (null != getCorrelationId()) {
+            headers.put(AuthenticationConstants.OIDC.CLIENT_REQUEST_ID, getCorrelationId().toString());
+        }
+
+        addConditionalHeaders(headers);
+
+        Logger.v(TAG, "Requesting OpenID configuration from " + requestURL.getHost());
+        final HttpWebResponse webResponse;
+        try {
+            webResponse = RetryingWebRequest.sendGet(getWebrequestHandler(), requestURL, headers, getDeadline());
+        } catch (final IOException e) {
+            throw new AuthenticationException(OIDCError.IO_EXCEPTION, e.getMessage(), e);
+        }
+
+        readCacheHeaders(webResponse);
+        final int statusCode = webResponse.getStatusCode();
+        if (HttpURLConnection.HTTP_NOT_MODIFIED == statusCode && !StringExtensions.isNullOrBlank(getETag())) {
+            Logger.v(TAG, "OpenID configuration is not modified");
+            return null;
+        } else if (HttpURLConnection.HTTP_OK == statusCode) {
+            return parseMetadata(webResponse);
+        }
+
+        throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                "Unexpected error code: [" + statusCode + "]");
+    }
+
+    @Override
+    OpenIdConfiguration parseMetadata(final HttpWebResponse response) throws AuthenticationException {
+        Logger.v(TAG, "Parsing OpenID configuration response");
+        final OpenIdConfiguration configuration;
+        try {
+            configuration = parser().fromJson(response.getBody(), OpenIdConfiguration.class);
+        } catch (final JsonSyntaxException e) {
+            throw new AuthenticationException(OIDCError.JSON_PARSE_ERROR);
+        }
+
+        if (configuration == null || !isHttpsUrl(configuration.getAuthorizationEndpoint())
+                || !isHttpsUrl(configuration.getTokenEndpoint())) {
+            throw new AuthenticationException(OIDCError.OPENID_CONFIGURATION_FAILED_SERVER_ERROR,
+                    "Authorization and token endpoints must be https urls");
+        }
+
+        return configuration;
+    }
+
+    private static boolean isHttpsUrl(final String url) {
+        if (StringExtensions.isNullOrBlank(url)) {
+            return false;
+        }
+
+        final URL parsed = StringExtensions.getUrl(url);
+        return parsed != null && "https".equalsIgnoreCase(parsed.getProtocol());
+    }
+}
@@ -0,0 +1,187 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import android.util.Base64;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Small pool of ready PKCE code verifier and challenge pairs and nonces, filled in background
+ * so that building the authorize url does not wait on seeding {@link SecureRandom} or on
+ * hashing. Each entry is handed out once, and the pool is refilled after every take.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc7636">RFC-7636</a>
+ */
+final class PkcePool {
+
+    private static final String TAG = "PkcePool";
+
+    private static final int POOL_SIZE = 4;
+
+    private static final int CODE_VERIFIER_BYTE_LENGTH = 32;
+
+    private static final int BASE64_FLAGS = Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING;
+
+    private static final ExecutorService REFILL_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static final Queue<PkcePair> PAIRS = new ConcurrentLinkedQueue<>();
+
+    private static final Queue<String> NONCES = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicBoolean REFILL_SCHEDULED = new AtomicBoolean(false);
+
+    private static SecureRandom sSecureRandom = null;
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private PkcePool() { }
+
+    /**
+     * Fill the pool in background. Call it once the PRNG fixes are applied.
+     */
+    static void prefill() {
+        scheduleRefill();
+    }
+
+    /**
+     * Take a code verifier and challenge pair, generated on the calling thread if the pool is empty.
+     *
+     * @return a pair that is not handed out again
+     */
+    static PkcePair takePair() {
+        PkcePair pair = PAIRS.poll();
+        scheduleRefill();
+        if (pair == null) {
+            Logger.v(TAG, "PKCE pool is empty, generating the code verifier on the calling thread.");
+            pair = createPair();
+        }
+
+        return pair;
+    }
+
+    /**
+     * Take a nonce, generated on the calling thread if the pool is empty.
+     *
+     * @return a nonce that is not handed out again
+     */
+    static String takeNonce() {
+        String nonce = NONCES.poll();
+        scheduleRefill();
+        if (nonce == null) {
+            nonce = UUID.randomUUID().toString();
+        }
+
+        return nonce;
+    }
+
+    private static void scheduleRefill() {
+        if (PAIRS.size() >= POOL_SIZE && NONCES.size() >= POOL_SIZE
+                || !REFILL_SCHEDULED.compareAndSet(false, true)) {
+            return;
+        }
+
+        REFILL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (PAIRS.size() < POOL_SIZE) {
+                        PAIRS.offer(createPair());
+                    }
+
+                    while (NONCES.size() < POOL_SIZE) {
+                        NONCES.offer(UUID.randomUUID().toString());
+                    }
+                } catch (final RuntimeException e) {
+                    Logger.w(TAG, "Failed to refill the PKCE pool.", e.getMessage(), OIDCError.ENCODING_IS_NOT_SUPPORTED);
+                } finally {
+                    REFILL_SCHEDULED.set(false);
+                }
+            }
+        });
+    }
+
+    private static PkcePair createPair() {
+        final byte[] code = new byte[CODE_VERIFIER_BYTE_LENGTH];
+        getSecureRandom().nextBytes(code);
+        final String verifier = Base64.encodeToString(code, BASE64_FLAGS);
+        // The raw random bytes are not needed once encoded
+        Arrays.fill(code, (byte) 0);
+
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(verifier.getBytes("US-ASCII"));
+            return new PkcePair(verifier, Base64.encodeToString(digest, BASE64_FLAGS));
+        } catch (final UnsupportedEncodingException | NoSuchAlgorithmException e) {
+            Logger.e(TAG, e.getMessage(), "", OIDCError.ENCODING_IS_NOT_SUPPORTED, e);
+            return new PkcePair(verifier, null);
+        }
+    }
+
+    private static synchronized SecureRandom getSecureRandom() {
+        // Created on first use, after the PRNG fixes are applied
+        if (sSecureRandom == null) {
+            sSecureRandom = new SecureRandom();
+        }
+
+        return sSecureRandom;
+    }
+
+    /**
+     * PKCE code verifier and its S256 code challenge.
+     */
+    static final class PkcePair {
+
+        private final String mCodeVerifier;
+
+        private final String mCodeChallenge;
+
+        PkcePair(final String codeVerifier, final String codeChallenge) {
+            mCodeVerifier = codeVerifier;
+            mCodeChallenge = codeChallenge;
+        }
+
+        String getCodeVerifier() {
+            return mCodeVerifier;
+        }
+
+        /**
+         * @return the code challenge, null if it could not be computed
+         */
+        String getCodeChallenge() {
+            return mCodeChallenge;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads HTTP response bodies as bytes into a per thread buffer that is reused
+ * across requests, then decodes them with the charset from Content-Type.
+ * Gzip encoded bodies are decompressed transparently.
+ */
+final class ResponseBodyReader {
+
+    private static final String TAG = "ResponseBodyReader";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final String CHARSET_PARAMETER = "charset=";
+
+    private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Buffers grown above this size are not kept for the next request.
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER_POOL = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
+        }
+    };
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private ResponseBodyReader() { }
+
+    /**
+     * Read the body and decode it.
+     *
+     * @param inputStream The response body, it is not closed by this method.
+     * @param headers The response headers, used to find charset and content encoding.
+     * @param maxSize Maximum number of body bytes after decompression.
+     * @return The decoded body, empty if the body has no bytes.
+     * @throws IOException when failing to read the body or the body is larger than maxSize.
+     */
+    static String read(final InputStream inputStream, final Map<String, List<String>> headers,
+                       final int maxSize) throws IOException {
+        // An empty body is not a valid gzip stream even if Content-Encoding says so
+        final PushbackInputStream peekStream = new PushbackInputStream(inputStream, 1);
+        final int firstByte = peekStream.read();
+        if (firstByte == -1) {
+            return "";
+        }
+
+        peekStream.unread(firstByte);
+        final InputStream bodyStream = ENCODING_GZIP.equalsIgnoreCase(getHeader(headers, HEADER_CONTENT_ENCODING))
+                ? new GZIPInputStream(peekStream) : peekStream;
+
+        byte[] buffer = BUFFER_POOL.get();
+        int length = 0;
+        int read;
+        while ((read = bodyStream.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length > maxSize) {
+                throw new IOException("Response body exceeds the maximum size of " + maxSize + " bytes");
+            }
+
+            if (length == buffer.length) {
+                final byte[] grown = new byte[Math.min(buffer.length * 2, maxSize + 1)];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+
+        if (buffer.length <= MAX_POOLED_BUFFER_SIZE) {
+            BUFFER_POOL.set(buffer);
+        }
+
+        return new String(buffer, 0, length, getCharset(getHeader(headers, HEADER_CONTENT_TYPE)));
+    }
+
+    private static Charset getCharset(final String contentType) {
+        if (contentType != null) {
+            for (final String parameter : contentType.split(";")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.toLowerCase(Locale.US).startsWith(CHARSET_PARAMETER)) {
+                    final String charsetName = trimmed.substring(CHARSET_PARAMETER.length()).replace("\"", "");
+                    try {
+                        return Charset.forName(charsetName);
+                    } catch (final IllegalCharsetNameException | UnsupportedCharsetException e) {
+                        Logger.w(TAG, "Unsupported response charset, falling back to UTF-8.", charsetName,
+                                OIDCError.IO_EXCEPTION);
+                    }
+                }
+            }
+        }
+
+        return DEFAULT_CHARSET;
+    }
+
+    private static String getHeader(final Map<String, List<String>> headers, final String name) {
+        if (headers == null) {
+            return null;
+        }
+
+        for (final Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends web requests through {@link IAsyncWebRequestHandler} when available and
+ * retries them as allowed by {@link AuthenticationSettings#getRetryPolicy()}.
+ * Retries are scheduled on a shared scheduler instead of sleeping the request thread.
+ */
+final class RetryingWebRequest {
+
+    private static final String TAG = "RetryingWebRequest";
+
+    private static final int MAX_RESILIENCY_ERROR_CODE = 599;
+
+    private static final String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded";
+
+    /**
+     * Upper bound of the threads doing network IO for asynchronous requests.
+     */
+    private static final int NETWORK_THREADS = 4;
+
+    /**
+     * Only waits for the delays between attempts, the attempts are handed to the network executor.
+     */
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor();
+
+    private static final ExecutorService NETWORK_EXECUTOR = Executors.newFixedThreadPool(NETWORK_THREADS);
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private RetryingWebRequest() { }
+
+    /**
+     * @param statusCode The response status code.
+     * @return true if the response is a server error worth retrying.
+     */
+    static boolean isRetryableStatus(final int statusCode) {
+        return statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR && statusCode <= MAX_RESILIENCY_ERROR_CODE;
+    }
+
+    /**
+     * Run the network task on the bounded network executor.
+     *
+     * @param task The task to run.
+     */
+    static void execute(final Runnable task) {
+        NETWORK_EXECUTOR.execute(task);
+    }
+
+    /**
+     * Run the task after the delay on the retry scheduler.
+     *
+     * @param task The task to run.
+     * @param delayMillis The delay in milliseconds.
+     * @return {@link Future} of the scheduled task.
+     */
+    static Future<?> schedule(final Runnable task, final long delayMillis) {
+        return RETRY_SCHEDULER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param deadlineMillis Time in milliseconds since epoch, 0 if there is no deadline.
+     * @return Milliseconds left before the deadline, {@link Long#MAX_VALUE} if there is no deadline.
+     */
+    static long getRemainingMillis(final long deadlineMillis) {
+        if (deadlineMillis <= 0) {
+            return Long.MAX_VALUE;
+        }
+
+        return deadlineMillis - System.currentTimeMillis();
+    }
+
+    /**
+     * Get the delay before the next attempt from the configured retry policy. No retry
+     * is made if the next attempt could not start before the deadline.
+     *
+     * @param attempt Number of attempts sent so far.
+     * @param startMillis Time the first attempt was sent.
+     * @param retryAfterMillis Delay requested by the server, 0 if none.
+     * @param deadlineMillis Deadline of the request, 0 if none.
+     * @return The delay in milliseconds, or {@link IRetryPolicy#NO_RETRY}.
+     */
+    static long getRetryDelayMillis(final int attempt, final long startMillis, final long retryAfterMillis,
+                                    final long deadlineMillis) {
+        final long delay = AuthenticationSettings.INSTANCE.getRetryPolicy().getRetryDelayMillis(attempt,
+                System.currentTimeMillis() - startMillis, retryAfterMillis);
+        if (delay != IRetryPolicy.NO_RETRY && delay >= getRemainingMillis(deadlineMillis)) {
+            Logger.v(TAG, "Not retrying, the retry delay of " + delay + " ms exceeds the request deadline.");
+            return IRetryPolicy.NO_RETRY;
+        }
+
+        return delay;
+    }
+
+    /**
+     * Wait for the future until the deadline, the future is cancelled if the deadline passes.
+     *
+     * @param future The pending request.
+     * @param deadlineMillis Deadline of the request, 0 to wait without limit.
+     * @throws SocketTimeoutException if the deadline passes before the future completes.
+     */
+    static <V> V waitUntilDeadline(final Future<V> future, final long deadlineMillis)
+            throws InterruptedException, ExecutionException, SocketTimeoutException {
+        if (deadlineMillis <= 0) {
+            return future.get();
+        }
+
+        try {
+            return future.get(Math.max(getRemainingMillis(deadlineMillis), 0), TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            throw new SocketTimeoutException("Request deadline has passed.");
+        }
+    }
+
+    /**
+     * Send the form encoded POST request. A caller that blocks for the result anyway sends it on
+     * its own thread. Otherwise the request is sent asynchronously if the handler supports it,
+     * and on the network executor if it does not.
+     *
+     * @param sendOnCallingThread True if the calling thread waits for the result.
+     */
+    static Future<HttpWebResponse> sendPostAsync(final IWebRequestHandler handler, final URL url,
+                                                 final Map<String, String> headers, final byte[] content,
+                                                 final boolean sendOnCallingThread,
+                                                 final Callback<HttpWebResponse> callback) {
+        if (!sendOnCallingThread && handler instanceof IAsyncWebRequestHandler) {
+            return ((IAsyncWebRequestHandler) handler).sendPostAsync(url, headers, content, CONTENT_TYPE_FORM,
+                    callback);
+        }
+
+        final CallbackFuture<HttpWebResponse> future = new CallbackFuture<>(new Callable<HttpWebResponse>() {
+            @Override
+            public HttpWebResponse call() throws IOException {
+                return handler.sendPost(url, headers, content, CONTENT_TYPE_FORM);
+            }
+        }, callback);
+        if (sendOnCallingThread) {
+            future.run();
+        } else {
+            execute(future);
+        }
+
+        return future;
+    }
+
+    /**
+     * Send the GET request, retrying timeouts and 5xx responses. Discovery and metadata
+     * requests are synchronous, so the first attempt is sent on the calling thread, which
+     * then waits for the final attempt while the delays between attempts run on the retry
+     * scheduler and the retries on the network executor.
+     *
+     * @param deadlineMillis Deadline of the request, 0 if none.
+     * @return The response of the last attempt.
+     * @throws IOException when the last attempt fails or the deadline passes.
+     */
+    static HttpWebResponse sendGet(final IWebRequestHandler handler, final URL url,
+                                   final Map<String, String> headers, final long deadlineMillis)
+            throws IOException {
+        if (handler instanceof IAsyncWebRequestHandler) {
+            ((IAsyncWebRequestHandler) handler).setRequestDeadline(deadlineMillis);
+        }
+
+        final CallbackFuture<HttpWebResponse> result = new CallbackFuture<>(null);
+        sendGetAttempt(handler, url, headers, 1, System.currentTimeMillis(), deadlineMillis, result);
+
+        try {
+            return waitUntilDeadline(result, deadlineMillis);
+        } catch (final InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request is interrupted.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    private static void sendGetAttempt(final IWebRequestHandler handler, final URL url,
+                                       final Map<String, String> headers, final int attempt,
+                                       final long startMillis, final long deadlineMillis,
+                                       final CallbackFuture<HttpWebResponse> result) {
+        final CircuitBreaker circuitBreaker = CircuitBreaker.forHost(url.getHost());
+        if (!circuitBreaker.allowRequest()) {
+            result.setException(new IOException("Requests to " + url.getHost()
+                    + " are suspended after repeated failures."));
+            return;
+        }
+
+        final Callback<HttpWebResponse> callback = new Callback<HttpWebResponse>() {
+            @Override
+            public void onSuccess(final HttpWebResponse response) {
+                circuitBreaker.recordResponse(response.getStatusCode());
+                if (!isRetryableStatus(response.getStatusCode())
+                        || !scheduleGetRetry(handler, url, headers, attempt, startMillis,
+                                response.getRetryAfterMillis(), deadlineMillis, result)) {
+                    result.set(response);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                circuitBreaker.recordError(throwable);
+                if (!(throwable instanceof SocketTimeoutException)
+                        || !scheduleGetRetry(handler, url, headers, attempt, startMillis, 0, deadlineMillis,
+                                result)) {
+                    result.setException(throwable);
+                }
+            }
+        };
+
+        if (attempt > 1 && handler instanceof IAsyncWebRequestHandler) {
+            result.setPendingStep(((IAsyncWebRequestHandler) handler).sendGetAsync(url, headers, callback));
+            return;
+        }
+
+        final CallbackFuture<HttpWebResponse> future = new CallbackFuture<>(new Callable<HttpWebResponse>() {
+            @Override
+            public HttpWebResponse call() throws IOException {
+                return handler.sendGet(url, headers);
+            }
+        }, callback);
+        if (attempt == 1) {
+            // The caller blocks for the result anyway
+            future.run();
+        } else {
+            result.setPendingStep(future);
+            execute(future);
+        }
+    }
+
+    private static boolean scheduleGetRetry(final IWebRequestHandler handler, final URL url,
+                                            final Map<String, String> headers, final int attempt,
+                                            final long startMillis, final long retryAfterMillis,
+                                            final long deadlineMillis,
+                                            final CallbackFuture<HttpWebResponse> result) {
+        final long delay = getRetryDelayMillis(attempt, startMillis, retryAfterMillis, deadlineMillis);
+        if (delay == IRetryPolicy.NO_RETRY) {
+            return false;
+        }
+
+        Logger.v(TAG, "Retrying request, attempt " + (attempt + 1) + " in " + delay + " ms.");
+        result.setPendingStep(schedule(new Runnable() {
+            @Override
+            public void run() {
+                sendGetAttempt(handler, url, headers, attempt + 1, startMillis, deadlineMillis, result);
+            }
+        }, delay));
+
+        return true;
+    }
+}
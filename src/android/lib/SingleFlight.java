@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces concurrent calls for the same key. The first caller runs the task, either on
+ * its own thread or asynchronously, callers arriving while it runs wait for it or are
+ * notified, and receive the same result or exception. The key is released once the task
+ * completes, so a later call runs the task again.
+ *
+ * @param <K> Type of the key.
+ * @param <V> Type of the result.
+ */
+final class SingleFlight<K, V> {
+
+    private static final String TAG = "SingleFlight";
+
+    private final ConcurrentMap<K, Flight<V>> mFlights = new ConcurrentHashMap<>();
+
+    /**
+     * Work started without blocking the calling thread.
+     *
+     * @param <V> Type of the result.
+     */
+    interface AsyncCall<V> {
+        /**
+         * Start the work.
+         *
+         * @param callback {@link Callback} to complete once the work is done.
+         */
+        void start(Callback<V> callback);
+    }
+
+    /**
+     * Run the task, or join the run already in flight for the key.
+     *
+     * @param key Key identifying the work.
+     * @param task The work to run if no run is in flight.
+     * @param deadlineMillis Deadline for joining callers in milliseconds since epoch, 0 to wait
+     *                       without limit. A joining caller that times out leaves the run going.
+     * @return The result of the run.
+     * @throws ExecutionException with the exception thrown by the task.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @throws TimeoutException if the deadline passes while waiting on another caller's run.
+     */
+    V execute(final K key, final Callable<V> task, final long deadlineMillis)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final Flight<V> newFlight = new Flight<>(task);
+        final Flight<V> flight = mFlights.putIfAbsent(key, newFlight);
+        if (flight == null) {
+            try {
+                newFlight.run();
+            } finally {
+                mFlights.remove(key, newFlight);
+            }
+
+            return newFlight.get();
+        }
+
+        Logger.v(TAG, "Joining the request already in flight.");
+        if (deadlineMillis <= 0) {
+            return flight.get();
+        }
+
+        return flight.get(Math.max(RetryingWebRequest.getRemainingMillis(deadlineMillis), 0),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start the work, or join the run already in flight for the key, without blocking the
+     * calling thread. Every caller's callback receives the result or exception of the run.
+     *
+     * @param key Key identifying the work.
+     * @param call The work to start if no run is in flight.
+     * @param deadlineMillis Deadline for joining callers in milliseconds since epoch, 0 to wait
+     *                       without limit. A joining caller that times out receives a
+     *                       {@link TimeoutException} and leaves the run going.
+     * @param callback {@link Callback} notified with the result of the run.
+     */
+    void executeAsync(final K key, final AsyncCall<V> call, final long deadlineMillis, final Callback<V> callback) {
+        final Flight<V> newFlight = new Flight<>(null);
+        final Flight<V> flight = mFlights.putIfAbsent(key, newFlight);
+        if (flight == null) {
+            newFlight.addCallback(callback);
+            try {
+                call.start(new Callback<V>() {
+                    @Override
+                    public void onSuccess(final V result) {
+                        mFlights.remove(key, newFlight);
+                        newFlight.set(result);
+                    }
+
+                    @Override
+                    public void onError(final Throwable throwable) {
+                        mFlights.remove(key, newFlight);
+                        newFlight.setException(throwable);
+                    }
+                });
+            } catch (final RuntimeException e) {
+                mFlights.remove(key, newFlight);
+                newFlight.setException(e);
+            }
+
+            return;
+        }
+
+        Logger.v(TAG, "Joining the request already in flight.");
+        final AtomicBoolean isNotified = new AtomicBoolean(false);
+        final Callback<V> joinedCallback = new Callback<V>() {
+            @Override
+            public void onSuccess(final V result) {
+                if (isNotified.compareAndSet(false, true)) {
+                    callback.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(final Throwable throwable) {
+                if (isNotified.compareAndSet(false, true)) {
+                    callback.onError(throwable);
+                }
+            }
+        };
+
+        if (!flight.addCallback(joinedCallback)) {
+            flight.deliver(joinedCallback);
+        } else if (deadlineMillis > 0) {
+            RetryingWebRequest.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    joinedCallback.onError(new TimeoutException("Deadline has passed while waiting for the run "
+                            + "in flight."));
+                }
+            }, Math.max(RetryingWebRequest.getRemainingMillis(deadlineMillis), 0));
+        }
+    }
+
+    /**
+     * @param key Key identifying the work.
+     * @return true if a run for the key is in flight.
+     */
+    boolean isInFlight(final K key) {
+        return mFlights.containsKey(key);
+    }
+
+    /**
+     * A run, completed by its task or by the {@link AsyncCall}, notifying the callbacks of
+     * the asynchronous callers once done.
+     */
+    private static final class Flight<V> extends FutureTask<V> {
+        private final List<Callback<V>> mCallbacks = new ArrayList<>();
+
+        Flight(final Callable<V> task) {
+            super(task == null ? new Callable<V>() {
+                @Override
+                public V call() {
+                    return null;
+                }
+            } : task);
+        }
+
+        @SuppressWarnings("PMD.UselessOverridingMethod")
+        @Override
+        public void set(V v) {
+            super.set(v);
+        }
+
+        @SuppressWarnings("PMD.UselessOverridingMethod")
+        @Override
+        public void setException(Throwable t) {
+            super.setException(t);
+        }
+
+        /**
+         * @return false if the run is already done, the caller then reads the result itself.
+         */
+        boolean addCallback(final Callback<V> callback) {
+            synchronized (mCallbacks) {
+                if (isDone()) {
+                    return false;
+                }
+
+                mCallbacks.add(callback);
+                return true;
+            }
+        }
+
+        @Override
+        protected void done() {
+            final List<Callback<V>> callbacks;
+            synchronized (mCallbacks) {
+                callbacks = new ArrayList<>(mCallbacks);
+                mCallbacks.clear();
+            }
+
+            for (final Callback<V> callback : callbacks) {
+                deliver(callback);
+            }
+        }
+
+        void deliver(final Callback<V> callback) {
+            final V result;
+            try {
+                result = get();
+            } catch (final ExecutionException e) {
+                callback.onError(e.getCause());
+                return;
+            } catch (final CancellationException e) {
+                callback.onError(e);
+                return;
+            } catch (final InterruptedException e) {
+                // Not reachable since the run is done
+                Thread.currentThread().interrupt();
+                callback.onError(e);
+                return;
+            }
+
+            callback.onSuccess(result);
+        }
+    }
+}
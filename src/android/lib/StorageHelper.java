@@ -52,6 +52,10 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -141,13 +145,30 @@ public class StorageHelper {
     private final SecureRandom mRandom;
 
     /**
-     * Public and private keys that are generated in AndroidKeyStore. 
+     * Guards key loading and creation. Once keys are published, encrypt/decrypt
+     * read them through the volatile holders below without taking this lock.
+     */
+    private final Object mKeyLoadLock = new Object();
+
+    /**
+     * Public and private keys that are generated in AndroidKeyStore. Guarded by {@link #mKeyLoadLock}.
      */
     private KeyPair mKeyPair;
-    private String mBlobVersion;
-    private SecretKey mKey = null;
-    private SecretKey mHMACKey = null;
-    private SecretKey mSecretKeyFromAndroidKeyStore = null;
+
+    /**
+     * Keys used for encryption, published once loaded.
+     */
+    private volatile KeyHolder mEncryptionKeys = null;
+
+    /**
+     * Keys persisted with AndroidKeyStore, published once loaded or created.
+     */
+    private volatile KeyHolder mAndroidKeyStoreKeys = null;
+
+    /**
+     * Background key load started by {@link #warmUpAsync()}, holds null if warm-up was never requested.
+     */
+    private final AtomicReference<FutureTask<SecretKey>> mWarmUpTask = new AtomicReference<>();
 
     /**
      * Constructor for {@link StorageHelper}.
@@ -158,6 +179,52 @@ public class StorageHelper {
         mRandom = new SecureRandom();
     }
 
+    /**
+     * Loads or creates the key material on a background thread, so the first
+     * encrypt/decrypt does not pay for keystore access, file IO and key unwrap.
+     * Calls arriving before the warm-up finishes wait for it instead of loading
+     * the keys again. Subsequent calls are no-op.
+     */
+    public void warmUpAsync() {
+        final FutureTask<SecretKey> warmUpTask = new FutureTask<>(new Callable<SecretKey>() {
+            @Override
+            public SecretKey call() throws IOException, GeneralSecurityException {
+                Logger.v(TAG, "Started key warm-up");
+                final SecretKey key = loadSecretKeyForEncryption();
+                Logger.v(TAG, "Finished key warm-up");
+                return key;
+            }
+        });
+
+        if (!mWarmUpTask.compareAndSet(null, warmUpTask)) {
+            return;
+        }
+
+        final Thread warmUpThread = new Thread(warmUpTask, TAG + "-warmup");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /**
+     * Block until the pending warm-up finishes. A failed warm-up is only logged,
+     * the caller loads the keys itself and gets the actual error.
+     */
+    private void awaitWarmUp() {
+        final FutureTask<SecretKey> warmUpTask = mWarmUpTask.get();
+        if (warmUpTask == null || warmUpTask.isDone()) {
+            return;
+        }
+
+        try {
+            warmUpTask.get();
+        } catch (final InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException exception) {
+            Logger.w(TAG, "Key warm-up failed, loading keys on the calling thread.",
+                    exception.getMessage(), OIDCError.ANDROIDKEYSTORE_FAILED);
+        }
+    }
+
     /**
      * Encrypt text with current key based on API level.
      *
@@ -174,12 +241,13 @@ public class StorageHelper {
             throw new IllegalArgumentException("Input is empty or null");
         }
 
+        awaitWarmUp();
+
         // load key for encryption if not loaded
-        mKey = loadSecretKeyForEncryption();
-        mHMACKey = getHMacKey(mKey);
-        
-        Logger.v(TAG, "Encrypt version:" + mBlobVersion);
-        final byte[] blobVersion = mBlobVersion.getBytes(AuthenticationConstants.ENCODING_UTF8);
+        final KeyHolder keys = loadKeysForEncryption();
+
+        Logger.v(TAG, "Encrypt version:" + keys.getBlobVersion());
+        final byte[] blobVersion = keys.getBlobVersion().getBytes(AuthenticationConstants.ENCODING_UTF8);
         final byte[] bytes = clearText.getBytes(AuthenticationConstants.ENCODING_UTF8);
 
         // IV: Initialization vector that is needed to start CBC
@@ -190,13 +258,13 @@ public class StorageHelper {
         // Set to encrypt mode
         final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, mKey, ivSpec);
+        cipher.init(Cipher.ENCRYPT_MODE, keys.getKey(), ivSpec);
 
         final byte[] encrypted = cipher.doFinal(bytes);
 
         // Mac output to sign encryptedData+IV. Keyversion is not included
         // in the digest. It defines what to use for Mac Key.
-        mac.init(mHMACKey);
+        mac.init(keys.getHMacKey());
         mac.update(blobVersion);
         mac.update(encrypted);
         mac.update(iv);
@@ -248,6 +316,8 @@ public class StorageHelper {
                     ENCODE_VERSION));
         }
 
+        awaitWarmUp();
+
         final byte[] bytes = Base64
                 .decode(encryptedBlob.substring(1 + encodeVersionLength), Base64.DEFAULT);
 
@@ -257,8 +327,7 @@ public class StorageHelper {
                 AuthenticationConstants.ENCODING_UTF8);
         Logger.v(TAG, "Encrypt version:" + keyVersion);
 
-        final SecretKey secretKey = getKey(keyVersion);
-        final SecretKey hmacKey = getHMacKey(secretKey);
+        final KeyHolder keys = getKeys(keyVersion);
 
         // byte input array: encryptedData-iv-macDigest
         final int ivIndex = bytes.length - DATA_KEY_LENGTH - HMAC_LENGTH;
@@ -273,7 +342,7 @@ public class StorageHelper {
         // Digest of EncryptedData+IV excluding key Version and digest
         final Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
-        mac.init(hmacKey);
+        mac.init(keys.getHMacKey());
         mac.update(bytes, 0, macIndex);
         final byte[] macDigest = mac.doFinal();
 
@@ -284,7 +353,7 @@ public class StorageHelper {
         // that IV.
         // It is using same cipher for different version since version# change
         // will mean upgrade to AndroidKeyStore and new Key.
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, new IvParameterSpec(bytes, ivIndex,
+        cipher.init(Cipher.DECRYPT_MODE, keys.getKey(), new IvParameterSpec(bytes, ivIndex,
                 DATA_KEY_LENGTH));
 
         // Decrypt data bytes from 0 to ivindex
@@ -302,88 +371,107 @@ public class StorageHelper {
      * @throws GeneralSecurityException
      * @throws IOException
      */
-    synchronized SecretKey loadSecretKeyForEncryption() throws IOException,
+    SecretKey loadSecretKeyForEncryption() throws IOException,
             GeneralSecurityException {
-        // Loading key only once for performance. If API is upgraded, it will
-        // restart the device anyway. It will load the correct key for new API.
-        if (mKey != null && mHMACKey != null) {
-            return mKey;
-        }
+        return loadKeysForEncryption().getKey();
+    }
 
-        final byte[] secretKeyData = AuthenticationSettings.INSTANCE.getSecretKeyData();
-        if (secretKeyData == null) {
-            mBlobVersion = VERSION_ANDROID_KEY_STORE;
-        } else {
-            mBlobVersion = VERSION_USER_DEFINED;
+    /**
+     * Loading key only once for performance. If API is upgraded, it will
+     * restart the device anyway. It will load the correct key for new API.
+     * Only the first call takes the lock, later calls read the published keys.
+     */
+    private KeyHolder loadKeysForEncryption() throws IOException, GeneralSecurityException {
+        final KeyHolder keys = mEncryptionKeys;
+        if (keys != null) {
+            return keys;
         }
 
-        return getKeyOrCreate(mBlobVersion);
+        synchronized (mKeyLoadLock) {
+            if (mEncryptionKeys == null) {
+                final byte[] secretKeyData = AuthenticationSettings.INSTANCE.getSecretKeyData();
+                final String blobVersion = secretKeyData == null ? VERSION_ANDROID_KEY_STORE : VERSION_USER_DEFINED;
+                mEncryptionKeys = getKeysOrCreate(blobVersion);
+            }
+
+            return mEncryptionKeys;
+        }
     }
 
     /**
      * For API <18 or user provide the key, will return the user supplied key.
      * Supported API >= 18 PrivateKey is stored in AndroidKeyStore. Loads key
      * from the file if it exists. If not exist, it will generate one.
+     * Caller must hold {@link #mKeyLoadLock}.
      * @param keyVersion The key type of the keys used to encrypt data, could be user provided key
      *                   or key persisted in the keystore.
-     * @return The {@link SecretKey} used to encrypt data.
+     * @return The {@link KeyHolder} with the {@link SecretKey} used to encrypt data.
      * @throws GeneralSecurityException
      * @throws IOException
      */
-    private synchronized SecretKey getKeyOrCreate(final String keyVersion)
+    private KeyHolder getKeysOrCreate(final String keyVersion)
             throws GeneralSecurityException, IOException {
         if (VERSION_USER_DEFINED.equals(keyVersion)) {
-            return getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData());
+            return getKeys(keyVersion);
         }
 
         try {
-            mSecretKeyFromAndroidKeyStore = getKey(keyVersion);
+            return getKeys(keyVersion);
         } catch (final IOException | GeneralSecurityException exception) {
             Logger.v(TAG, "Key does not exist in AndroidKeyStore, try to generate new keys.");
         }
 
-        if (mSecretKeyFromAndroidKeyStore == null) {
-            // If encountering exception for reading keys, try to generate new keys
-            mKeyPair = generateKeyPairFromAndroidKeyStore();
-            
-            // Also generate new secretkey
-            mSecretKeyFromAndroidKeyStore = generateSecretKey();
-            final byte[] keyWrapped = wrap(mSecretKeyFromAndroidKeyStore);
-            writeKeyData(keyWrapped);
-        }
+        // If encountering exception for reading keys, try to generate new keys
+        mKeyPair = generateKeyPairFromAndroidKeyStore();
+
+        // Also generate new secretkey
+        final SecretKey secretKey = generateSecretKey();
+        final byte[] keyWrapped = wrap(secretKey);
+        writeKeyData(keyWrapped);
 
-        return mSecretKeyFromAndroidKeyStore;
+        mAndroidKeyStoreKeys = new KeyHolder(VERSION_ANDROID_KEY_STORE, secretKey, getHMacKey(secretKey));
+        return mAndroidKeyStoreKeys;
     }
 
     /**
-     * Get the saved key. Will only do read operation. 
+     * Get the saved key. Will only do read operation. Keys from AndroidKeyStore are
+     * loaded once under {@link #mKeyLoadLock} and read without locking afterwards.
      * @param keyVersion whether the key is user defined or in Android key store
-     * @return SecretKey
+     * @return KeyHolder
      * @throws GeneralSecurityException
      * @throws IOException
      */
-    private synchronized SecretKey getKey(final String keyVersion) throws GeneralSecurityException, IOException {
+    private KeyHolder getKeys(final String keyVersion) throws GeneralSecurityException, IOException {
         switch (keyVersion) {
-        case VERSION_USER_DEFINED : 
-            return getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData());
+        case VERSION_USER_DEFINED :
+            final SecretKey userKey = getSecretKey(AuthenticationSettings.INSTANCE.getSecretKeyData());
+            return new KeyHolder(VERSION_USER_DEFINED, userKey, getHMacKey(userKey));
         case VERSION_ANDROID_KEY_STORE :
+            final KeyHolder keys = mAndroidKeyStoreKeys;
+            if (keys != null) {
+                return keys;
+            }
 
-            if (mSecretKeyFromAndroidKeyStore != null) {
-                return mSecretKeyFromAndroidKeyStore;
+            synchronized (mKeyLoadLock) {
+                if (mAndroidKeyStoreKeys == null) {
+                    // androidKeyStore can store app specific self signed cert.
+                    // Asymmetric cryptography is used to protect the session key
+                    // used for Encryption and HMac
+                    mKeyPair = readKeyPair();
+                    final SecretKey secretKey = getUnwrappedSecretKey();
+                    mAndroidKeyStoreKeys = new KeyHolder(VERSION_ANDROID_KEY_STORE, secretKey,
+                            getHMacKey(secretKey));
+                }
+
+                return mAndroidKeyStoreKeys;
             }
-            // androidKeyStore can store app specific self signed cert.
-            // Asymmetric cryptography is used to protect the session key
-            // used for Encryption and HMac
-            mKeyPair = readKeyPair();
-            mSecretKeyFromAndroidKeyStore = getUnwrappedSecretKey();
-            return mSecretKeyFromAndroidKeyStore;
         default :
             throw new IOException("Unknown keyVersion.");
         }
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
-    private synchronized KeyPair generateKeyPairFromAndroidKeyStore()
+    private KeyPair generateKeyPairFromAndroidKeyStore()
             throws GeneralSecurityException, IOException {
         final KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
         keyStore.load(null);
@@ -416,9 +504,9 @@ public class StorageHelper {
     }
 
     /**
-     * Read KeyPair from AndroidKeyStore. 
+     * Read KeyPair from AndroidKeyStore. Caller must hold {@link #mKeyLoadLock}.
      */
-    private synchronized KeyPair readKeyPair() throws GeneralSecurityException, IOException {
+    private KeyPair readKeyPair() throws GeneralSecurityException, IOException {
         if (!doesKeyPairExist()) {
             throw new KeyStoreException("KeyPair entry does not exist.");
         }
@@ -447,7 +535,7 @@ public class StorageHelper {
     /**
      * Check if KeyPair exists on AndroidKeyStore. 
      */
-    private synchronized boolean doesKeyPairExist() throws GeneralSecurityException, IOException {
+    private boolean doesKeyPairExist() throws GeneralSecurityException, IOException {
         final KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
         keyStore.load(null);
         
@@ -544,7 +632,7 @@ public class StorageHelper {
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
-    private synchronized SecretKey getUnwrappedSecretKey()
+    private SecretKey getUnwrappedSecretKey()
             throws GeneralSecurityException, IOException {
         Logger.v(TAG, "Reading SecretKey");
 
@@ -581,7 +669,7 @@ public class StorageHelper {
     }
 
     @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
-    private synchronized void resetKeyPairFromAndroidKeyStore() throws KeyStoreException,
+    private void resetKeyPairFromAndroidKeyStore() throws KeyStoreException,
             NoSuchAlgorithmException, CertificateException, IOException {
         final KeyStore keyStore = KeyStore.getInstance(ANDROID_KEY_STORE);
         keyStore.load(null);
@@ -652,5 +740,32 @@ public class StorageHelper {
             in.close();
         }
     }
-    
+
+    /**
+     * Immutable holder of a data key, its derived HMac key and the blob version
+     * they are written with. Instances are safely published through volatile fields.
+     */
+    private static final class KeyHolder {
+        private final String mBlobVersion;
+        private final SecretKey mKey;
+        private final SecretKey mHMacKey;
+
+        KeyHolder(final String blobVersion, final SecretKey key, final SecretKey hmacKey) {
+            mBlobVersion = blobVersion;
+            mKey = key;
+            mHMacKey = hmacKey;
+        }
+
+        String getBlobVersion() {
+            return mBlobVersion;
+        }
+
+        SecretKey getKey() {
+            return mKey;
+        }
+
+        SecretKey getHMacKey() {
+            return mHMacKey;
+        }
+    }
 }
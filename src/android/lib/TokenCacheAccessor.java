@@ -27,8 +27,11 @@ import com.cordova.plugin.oidc.AuthenticationResult.AuthenticationStatus;
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Internal class handling the interaction with {@link AcquireTokenSilentHandler} and {@link ITokenCacheStore}. 
@@ -39,6 +42,11 @@ class TokenCacheAccessor {
     private final ITokenCacheStore mTokenCacheStore;
     private final String mAuthority;
     private final String mTelemetryRequestId;
+
+    /**
+     * Writes held back between {@link #beginBatchWrite()} and {@link #commitBatchWrite()}.
+     */
+    private volatile Map<String, TokenCacheItem> mPendingWrites = null;
     
     TokenCacheAccessor(final ITokenCacheStore tokenCacheStore, final String authority, final String telemetryRequestId) {
         if (tokenCacheStore == null) {
@@ -58,6 +66,75 @@ class TokenCacheAccessor {
         mTelemetryRequestId = telemetryRequestId;
     }
     
+    /**
+     * Hold back the cache writes until {@link #commitBatchWrite()}. Reads and removals from any
+     * thread see the held back items.
+     */
+    void beginBatchWrite() {
+        mPendingWrites = Collections.synchronizedMap(new LinkedHashMap<String, TokenCacheItem>());
+    }
+
+    /**
+     * Write the items held back since {@link #beginBatchWrite()}, with a single write if the
+     * cache is the {@link DefaultTokenCacheStore}.
+     */
+    void commitBatchWrite() {
+        final Map<String, TokenCacheItem> pendingWrites = mPendingWrites;
+        mPendingWrites = null;
+        if (pendingWrites == null || pendingWrites.isEmpty()) {
+            return;
+        }
+
+        Logger.v(TAG, "Writing " + pendingWrites.size() + " token cache items.");
+        synchronized (pendingWrites) {
+            if (mTokenCacheStore instanceof DefaultTokenCacheStore) {
+                ((DefaultTokenCacheStore) mTokenCacheStore).setItems(pendingWrites);
+            } else {
+                for (final Map.Entry<String, TokenCacheItem> entry : pendingWrites.entrySet()) {
+                    mTokenCacheStore.setItem(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private TokenCacheItem getItem(final String key) {
+        final Map<String, TokenCacheItem> pendingWrites = mPendingWrites;
+        if (pendingWrites != null) {
+            final TokenCacheItem item = pendingWrites.get(key);
+            if (item != null) {
+                return item;
+            }
+        }
+
+        return mTokenCacheStore.getItem(key);
+    }
+
+    private void setItem(final String key, final TokenCacheItem item) {
+        final Map<String, TokenCacheItem> pendingWrites = mPendingWrites;
+        if (pendingWrites != null) {
+            pendingWrites.put(key, item);
+        } else {
+            mTokenCacheStore.setItem(key, item);
+        }
+    }
+
+    private void removeItem(final String key) {
+        final Map<String, TokenCacheItem> pendingWrites = mPendingWrites;
+        if (pendingWrites != null) {
+            pendingWrites.remove(key);
+        }
+
+        mTokenCacheStore.removeItem(key);
+    }
+
+    /**
+     * @return {@link TokenCacheAccessor} on the same cache and authority recording telemetry
+     * under another request id.
+     */
+    TokenCacheAccessor withTelemetryRequestId(final String telemetryRequestId) {
+        return new TokenCacheAccessor(mTokenCacheStore, mAuthority, telemetryRequestId);
+    }
+
     /**
      * @return Access token from cache. Could be null if AT does not exist or expired. 
      * This will be a strict match with the user passed in, could be unique userid, 
@@ -97,7 +174,7 @@ class TokenCacheAccessor {
         final CacheEvent cacheEvent = startCacheTelemetryRequest(EventStrings.TOKEN_TYPE_RT);
 
         final String cacheKey = CacheKey.createCacheKeyForRTEntry(mAuthority, resource, clientId, user);
-        final TokenCacheItem item =  mTokenCacheStore.getItem(cacheKey);
+        final TokenCacheItem item = getItem(cacheKey);
 
         if (item != null) {
             cacheEvent.setTokenTypeRT(true);
@@ -113,7 +190,7 @@ class TokenCacheAccessor {
     TokenCacheItem getMRRTItem(final String clientId, final String user) {
         final CacheEvent cacheEvent = startCacheTelemetryRequest(EventStrings.TOKEN_TYPE_MRRT);
         final String cacheKey = CacheKey.createCacheKeyForMRRT(mAuthority, clientId, user);
-        final TokenCacheItem item = mTokenCacheStore.getItem(cacheKey);
+        final TokenCacheItem item = getItem(cacheKey);
 
         if (item != null) {
             cacheEvent.setTokenTypeMRRT(true);
@@ -135,7 +212,7 @@ class TokenCacheAccessor {
         }
         
         final String cacheKey = CacheKey.createCacheKeyForFRT(mAuthority, familyClientId, user);
-        final TokenCacheItem item = mTokenCacheStore.getItem(cacheKey);
+        final TokenCacheItem item = getItem(cacheKey);
 
         if (item != null) {
             cacheEvent.setTokenTypeFRT(true);
@@ -211,6 +288,14 @@ class TokenCacheAccessor {
         
         // update for empty userid
         setItemToCacheForUser(resource, clientId, result, null);
+
+        // The built-in stores clear it on every change, custom stores only through here.
+        if (result.getUserInfo() == null) {
+            NegativeResultCache.INSTANCE.clear(mAuthority, clientId);
+        } else {
+            NegativeResultCache.INSTANCE.clear(mAuthority, clientId, result.getUserInfo().getDisplayableId(),
+                    result.getUserInfo().getUserId());
+        }
     }
     
     /**
@@ -257,7 +342,7 @@ class TokenCacheAccessor {
         }
         
         for (final String key : keys) {
-            mTokenCacheStore.removeItem(key);
+            removeItem(key);
         }
         Telemetry.getInstance().stopEvent(mTelemetryRequestId, cacheEvent,
                 EventStrings.TOKEN_CACHE_DELETE);
@@ -305,13 +390,13 @@ class TokenCacheAccessor {
         cacheEvent.setRequestId(mTelemetryRequestId);
         Telemetry.getInstance().startEvent(mTelemetryRequestId, EventStrings.TOKEN_CACHE_WRITE);
 
-        mTokenCacheStore.setItem(CacheKey.createCacheKeyForRTEntry(mAuthority, resource, clientId, userId), 
+        setItem(CacheKey.createCacheKeyForRTEntry(mAuthority, resource, clientId, userId), 
                 TokenCacheItem.createRegularTokenCacheItem(mAuthority, resource, clientId, result));
         cacheEvent.setTokenTypeRT(true);
         // Store separate entries for MRRT.  
         if (result.getIsMultiResourceRefreshToken()) {
             Logger.v(TAG, "Save Multi Resource Refresh token to cache");
-            mTokenCacheStore.setItem(CacheKey.createCacheKeyForMRRT(mAuthority, clientId, userId),
+            setItem(CacheKey.createCacheKeyForMRRT(mAuthority, clientId, userId),
                     TokenCacheItem.createMRRTTokenCacheItem(mAuthority, clientId, result));
             cacheEvent.setTokenTypeMRRT(true);
         }
@@ -320,7 +405,7 @@ class TokenCacheAccessor {
         if (!StringExtensions.isNullOrBlank(result.getFamilyClientId()) && !StringExtensions.isNullOrBlank(userId)) {
             Logger.v(TAG, "Save Family Refresh token into cache");
             final TokenCacheItem familyTokenCacheItem = TokenCacheItem.createFRRTTokenCacheItem(mAuthority, result);
-            mTokenCacheStore.setItem(CacheKey.createCacheKeyForFRT(mAuthority, result.getFamilyClientId(), userId), familyTokenCacheItem);
+            setItem(CacheKey.createCacheKeyForFRT(mAuthority, result.getFamilyClientId(), userId), familyTokenCacheItem);
             cacheEvent.setTokenTypeFRT(true);
         }
         Telemetry.getInstance().stopEvent(mTelemetryRequestId, cacheEvent,
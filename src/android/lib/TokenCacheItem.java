@@ -67,6 +67,17 @@ public class TokenCacheItem implements Serializable {
 
     private Date mExtendedExpiresOn;
 
+    /**
+     * Time the token was received, used to find its lifetime. Null for items cached by
+     * earlier versions.
+     */
+    private Date mIssuedOn;
+
+    /**
+     * True once the user info and tenant id were read from the raw id token, not persisted.
+     */
+    private transient boolean mIdTokenClaimsParsed;
+
     /**
      * Default constructor for cache item.
      */
@@ -81,12 +92,13 @@ public class TokenCacheItem implements Serializable {
         mAccessToken = tokenCacheItem.getAccessToken();
         mRefreshtoken = tokenCacheItem.getRefreshToken();
         mRawIdToken = tokenCacheItem.getRawIdToken();
-        mUserInfo = tokenCacheItem.getUserInfo();
+        mUserInfo = tokenCacheItem.mUserInfo;
         mExpiresOn = tokenCacheItem.getExpiresOn();
         mIsMultiResourceRefreshToken = tokenCacheItem.getIsMultiResourceRefreshToken();
-        mTenantId = tokenCacheItem.getTenantId();
+        mTenantId = tokenCacheItem.mTenantId;
         mFamilyClientId = tokenCacheItem.getFamilyClientId();
         mExtendedExpiresOn = tokenCacheItem.getExtendedExpiresOn();
+        mIssuedOn = tokenCacheItem.getIssuedOn();
     }
     
     /**
@@ -112,6 +124,7 @@ public class TokenCacheItem implements Serializable {
         mRefreshtoken = authenticationResult.getRefreshToken();
         mFamilyClientId = authenticationResult.getFamilyClientId();
         mExtendedExpiresOn = authenticationResult.getExtendedExpiresOn();
+        mIssuedOn = new Date();
     }
 
     /**
@@ -168,6 +181,7 @@ public class TokenCacheItem implements Serializable {
      * @return UserInfo object.
      */
     public UserInfo getUserInfo() {
+        parseIdTokenClaims();
         return mUserInfo;
     }
 
@@ -312,6 +326,7 @@ public class TokenCacheItem implements Serializable {
      * @return the tenant identifier string.
      */
     public String getTenantId() {
+        parseIdTokenClaims();
         return mTenantId;
     }
 
@@ -324,6 +339,29 @@ public class TokenCacheItem implements Serializable {
         mTenantId = tenantId;
     }
 
+    /**
+     * Read the user info and tenant id from the raw id token on first access. Items cached
+     * with user info are returned as is, so cache hits do not decode the id token.
+     */
+    private synchronized void parseIdTokenClaims() {
+        if (mIdTokenClaimsParsed) {
+            return;
+        }
+
+        mIdTokenClaimsParsed = true;
+        if (mUserInfo != null) {
+            return;
+        }
+
+        final IdToken idToken = IdToken.tryParse(mRawIdToken);
+        if (idToken != null) {
+            mUserInfo = new UserInfo(idToken);
+            if (mTenantId == null) {
+                mTenantId = idToken.getTenantId();
+            }
+        }
+    }
+
     /**
      * Get raw ID token.
      * 
@@ -393,6 +431,37 @@ public class TokenCacheItem implements Serializable {
         return false;
     }
 
+    /**
+     * @return The time the token was received, null if it was not recorded.
+     */
+    public final Date getIssuedOn() {
+        return mIssuedOn;
+    }
+
+    /**
+     * @param issuedOn The time the token was received.
+     */
+    public final void setIssuedOn(final Date issuedOn) {
+        mIssuedOn = issuedOn;
+    }
+
+    /**
+     * Check if the access token is in the last part of its lifetime.
+     *
+     * @param fraction Fraction of the lifetime counted back from the expiry, 0 to disable.
+     * @return true if the remaining lifetime is within the fraction.
+     */
+    final boolean isInRefreshAheadWindow(final float fraction) {
+        if (fraction <= 0 || mIssuedOn == null || mExpiresOn == null
+                || StringExtensions.isNullOrBlank(mAccessToken)) {
+            return false;
+        }
+
+        final long lifetimeMillis = mExpiresOn.getTime() - mIssuedOn.getTime();
+        return lifetimeMillis > 0
+                && mExpiresOn.getTime() - System.currentTimeMillis() <= lifetimeMillis * fraction;
+    }
+
     /**
      * Checks expiration time.
      * 
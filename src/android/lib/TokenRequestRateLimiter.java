@@ -0,0 +1,167 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+
+package com.cordova.plugin.oidc;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Client side rate limit of the token endpoint requests, a token bucket per authority and
+ * one per cache key. It protects the tenant from being throttled by the identity provider
+ * when the application asks for tokens in a loop. Limits are read from
+ * {@link AuthenticationSettings} on every request.
+ */
+final class TokenRequestRateLimiter {
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    private static final Map<String, TokenBucket> AUTHORITY_BUCKETS = new HashMap<>();
+
+    private static final Map<String, TokenBucket> KEY_BUCKETS = new HashMap<>();
+
+    private static long sEvictedAtMillis = 0;
+
+    /**
+     * Private constructor to prevent the class from being initiated.
+     */
+    private TokenRequestRateLimiter() { }
+
+    /**
+     * Take a token from both buckets if both have one. Nothing is taken otherwise.
+     *
+     * @param authority authority of the request
+     * @param requestKey key of the authority, resource, client id and user of the request
+     * @return 0 if the request can be sent, otherwise the time in milliseconds until it can
+     */
+    static synchronized long tryAcquire(final String authority, final String requestKey) {
+        final int authorityLimit = AuthenticationSettings.INSTANCE.getTokenRequestsPerMinutePerAuthority();
+        final int keyLimit = AuthenticationSettings.INSTANCE.getTokenRequestsPerMinutePerKey();
+        final long now = System.currentTimeMillis();
+        if (now - sEvictedAtMillis >= MILLIS_PER_MINUTE) {
+            // A full bucket behaves as a new one, so it is dropped instead of kept for every key seen
+            sEvictedAtMillis = now;
+            evictFullBuckets(AUTHORITY_BUCKETS, authorityLimit, now);
+            evictFullBuckets(KEY_BUCKETS, keyLimit, now);
+        }
+
+        final TokenBucket authorityBucket = authorityLimit > 0 ? getBucket(AUTHORITY_BUCKETS, authority) : null;
+        final TokenBucket keyBucket = keyLimit > 0 ? getBucket(KEY_BUCKETS, requestKey) : null;
+        final long waitMillis = Math.max(
+                authorityBucket == null ? 0 : authorityBucket.getWaitMillis(authorityLimit, now),
+                keyBucket == null ? 0 : keyBucket.getWaitMillis(keyLimit, now));
+        if (waitMillis > 0) {
+            return waitMillis;
+        }
+
+        if (authorityBucket != null) {
+            authorityBucket.take();
+        }
+
+        if (keyBucket != null) {
+            keyBucket.take();
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return the key of the authority, resource, client id and user of the request
+     */
+    static String createRequestKey(final AuthenticationRequest request) {
+        final String user = StringExtensions.isNullOrBlank(request.getUserId())
+                ? request.getLoginHint() : request.getUserId();
+        return (request.getAuthority() + "$" + request.getResource() + "$" + request.getClientId() + "$" + user)
+                .toLowerCase(Locale.US);
+    }
+
+    private static TokenBucket getBucket(final Map<String, TokenBucket> buckets, final String key) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new TokenBucket();
+            buckets.put(key, bucket);
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Drop the buckets that have refilled to the limit, or all of them if the limit is off.
+     */
+    private static void evictFullBuckets(final Map<String, TokenBucket> buckets, final int limit, final long now) {
+        if (limit <= 0) {
+            buckets.clear();
+            return;
+        }
+
+        final Iterator<TokenBucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(limit, now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Bucket refilled continuously at the limit per minute, holding at most the limit.
+     * Accessed under the lock of {@link TokenRequestRateLimiter}.
+     */
+    private static final class TokenBucket {
+
+        private double mTokens = -1;
+
+        private long mRefilledAtMillis;
+
+        long getWaitMillis(final int limit, final long now) {
+            refill(limit, now);
+            if (mTokens >= 1) {
+                return 0;
+            }
+
+            return (long) Math.ceil((1 - mTokens) * MILLIS_PER_MINUTE / limit);
+        }
+
+        boolean isFull(final int limit, final long now) {
+            refill(limit, now);
+            return mTokens >= limit;
+        }
+
+        void take() {
+            mTokens--;
+        }
+
+        private void refill(final int limit, final long now) {
+            if (mTokens < 0) {
+                // New bucket, full
+                mTokens = limit;
+            } else {
+                mTokens = Math.min(limit, mTokens + (now - mRefilledAtMillis) * (double) limit / MILLIS_PER_MINUTE);
+            }
+
+            mRefilledAtMillis = now;
+        }
+    }
+}
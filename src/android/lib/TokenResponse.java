@@ -0,0 +1,243 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.cordova.plugin.oidc;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+/**
+ * Typed fields of a token endpoint response, or of the parameters returned to
+ * the redirect uri. The token endpoint JSON is read in a single pass with
+ * {@link JsonReader}, members the library does not use are skipped.
+ */
+final class TokenResponse {
+
+    /**
+     * Value of the expiration fields when they are not in the response.
+     */
+    static final long NOT_PRESENT = -1;
+
+    private String mError;
+    private String mErrorDescription;
+    private String mErrorCodes;
+    private String mCorrelationId;
+    private String mCode;
+    private String mAccessToken;
+    private String mRefreshToken;
+    private String mIdToken;
+    private String mResource;
+    private boolean mHasResource = false;
+    private long mExpiresIn = NOT_PRESENT;
+    private long mExtendedExpiresIn = NOT_PRESENT;
+
+    private TokenResponse() {
+        // Created by the factory methods
+    }
+
+    /**
+     * Read the JSON body of the token endpoint response.
+     *
+     * @param json The response body.
+     * @return {@link TokenResponse}
+     * @throws IOException if the body is not a valid JSON object.
+     */
+    static TokenResponse parse(final String json) throws IOException {
+        final TokenResponse response = new TokenResponse();
+        final JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                response.readMember(reader.nextName(), reader);
+            }
+            reader.endObject();
+        } catch (final IllegalStateException | NumberFormatException e) {
+            throw new IOException("Unexpected token response member: " + e.getMessage(), e);
+        } finally {
+            reader.close();
+        }
+
+        return response;
+    }
+
+    /**
+     * Read the parameters of the redirect uri or of a broker response.
+     *
+     * @param params Parameters keyed by their OAuth2 names.
+     * @return {@link TokenResponse}
+     */
+    static TokenResponse fromParams(final Map<String, String> params) {
+        final TokenResponse response = new TokenResponse();
+        response.mError = params.get(AuthenticationConstants.OAuth2.ERROR);
+        response.mErrorDescription = params.get(AuthenticationConstants.OAuth2.ERROR_DESCRIPTION);
+        response.mErrorCodes = params.get(AuthenticationConstants.OAuth2.ERROR_CODES);
+        response.mCorrelationId = params.get(AuthenticationConstants.OIDC.CORRELATION_ID);
+        response.mCode = params.get(AuthenticationConstants.OAuth2.CODE);
+        response.mAccessToken = params.get(AuthenticationConstants.OAuth2.ACCESS_TOKEN);
+        response.mRefreshToken = params.get(AuthenticationConstants.OAuth2.REFRESH_TOKEN);
+        response.mIdToken = params.get(AuthenticationConstants.OAuth2.ID_TOKEN);
+        response.mHasResource = params.containsKey(AuthenticationConstants.OIDC.RESOURCE);
+        response.mResource = params.get(AuthenticationConstants.OIDC.RESOURCE);
+        response.mExpiresIn = parseSeconds(params.get(AuthenticationConstants.OAuth2.EXPIRES_IN),
+                params.containsKey(AuthenticationConstants.OAuth2.EXPIRES_IN));
+        response.mExtendedExpiresIn = parseSeconds(params.get(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN),
+                params.containsKey(AuthenticationConstants.OAuth2.EXT_EXPIRES_IN));
+        return response;
+    }
+
+    private void readMember(final String name, final JsonReader reader) throws IOException {
+        if (AuthenticationConstants.OAuth2.ERROR.equals(name)) {
+            mError = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.ERROR_DESCRIPTION.equals(name)) {
+            mErrorDescription = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.ERROR_CODES.equals(name)) {
+            mErrorCodes = readErrorCodes(reader);
+        } else if (AuthenticationConstants.OIDC.CORRELATION_ID.equals(name)) {
+            mCorrelationId = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.CODE.equals(name)) {
+            mCode = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.ACCESS_TOKEN.equals(name)) {
+            mAccessToken = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.REFRESH_TOKEN.equals(name)) {
+            mRefreshToken = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.ID_TOKEN.equals(name)) {
+            mIdToken = readString(reader);
+        } else if (AuthenticationConstants.OIDC.RESOURCE.equals(name)) {
+            mHasResource = true;
+            mResource = readString(reader);
+        } else if (AuthenticationConstants.OAuth2.EXPIRES_IN.equals(name)) {
+            mExpiresIn = parseSeconds(readString(reader), true);
+        } else if (AuthenticationConstants.OAuth2.EXT_EXPIRES_IN.equals(name)) {
+            mExtendedExpiresIn = parseSeconds(readString(reader), true);
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    /**
+     * Read a string, number or boolean value as its text, null for a JSON null.
+     */
+    static String readString(final JsonReader reader) throws IOException {
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        } else if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+
+        // Numbers are returned as their literal text
+        return reader.nextString();
+    }
+
+    /**
+     * AAD returns the error codes as a number array, kept in the "[a,b]" text form
+     * {@link AuthenticationResult} splits.
+     */
+    private static String readErrorCodes(final JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return readString(reader);
+        }
+
+        final StringBuilder errorCodes = new StringBuilder("[");
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (errorCodes.length() > 1) {
+                errorCodes.append(',');
+            }
+            errorCodes.append(readString(reader));
+        }
+        reader.endArray();
+        return errorCodes.append(']').toString();
+    }
+
+    /**
+     * Blank values of a present field fall back to the default expiration.
+     */
+    private static long parseSeconds(final String value, final boolean isPresent) {
+        if (!isPresent) {
+            return NOT_PRESENT;
+        }
+
+        return StringExtensions.isNullOrBlank(value)
+                ? AuthenticationConstants.DEFAULT_EXPIRATION_TIME_SEC : Long.parseLong(value);
+    }
+
+    String getError() {
+        return mError;
+    }
+
+    String getErrorDescription() {
+        return mErrorDescription;
+    }
+
+    String getErrorCodes() {
+        return mErrorCodes;
+    }
+
+    String getCorrelationId() {
+        return mCorrelationId;
+    }
+
+    String getCode() {
+        return mCode;
+    }
+
+    String getAccessToken() {
+        return mAccessToken;
+    }
+
+    String getRefreshToken() {
+        return mRefreshToken;
+    }
+
+    String getIdToken() {
+        return mIdToken;
+    }
+
+    String getResource() {
+        return mResource;
+    }
+
+    boolean hasResource() {
+        return mHasResource;
+    }
+
+    /**
+     * @return Lifetime of the access token in seconds, {@link #NOT_PRESENT} if not returned.
+     */
+    long getExpiresIn() {
+        return mExpiresIn;
+    }
+
+    /**
+     * @return Extended lifetime of the access token in seconds, {@link #NOT_PRESENT} if not returned.
+     */
+    long getExtendedExpiresIn() {
+        return mExtendedExpiresIn;
+    }
+}
@@ -51,11 +51,12 @@ class WebFingerMetadataRequestor
 
             // make the request
             final HttpWebResponse webResponse =
-                    getWebrequestHandler()
-                            .sendGet(
-                                    webFingerUrl,
-                                    new HashMap<String, String>()
-                            );
+                    RetryingWebRequest.sendGet(
+                            getWebrequestHandler(),
+                            webFingerUrl,
+                            new HashMap<String, String>(),
+                            getDeadline()
+                    );
 
             // get the status code
             final int statusCode = webResponse.getStatusCode();
@@ -27,8 +27,12 @@ import android.os.Build;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import static com.cordova.plugin.oidc.AuthenticationConstants.HeaderField;
 import static com.cordova.plugin.oidc.AuthenticationConstants.MediaType;
@@ -38,7 +42,7 @@ import static com.cordova.plugin.oidc.AuthenticationConstants.MediaType;
  * reuses for same tasks. Each request returns a handler for cancel action. Call
  * this from UI thread to correctly create async task and execute.
  */
-public class WebRequestHandler implements IWebRequestHandler {
+public class WebRequestHandler implements IAsyncWebRequestHandler {
 
     private static final String TAG = "WebRequestHandler";
 
@@ -52,13 +56,22 @@ public class WebRequestHandler implements IWebRequestHandler {
      */
     public static final String HEADER_ACCEPT_JSON = MediaType.APPLICATION_JSON;
 
+    /**
+     * Platform headers, the same for every request of the process.
+     */
+    private static final Map<String, String> PLATFORM_HEADERS = createPlatformHeaders();
+
     private UUID mRequestCorrelationId = null;
 
+    private long mRequestDeadlineMillis = 0;
+
     @Override
     public HttpWebResponse sendGet(URL url, Map<String, String> headers) throws IOException {
         Logger.v(TAG, "WebRequestHandler thread" + android.os.Process.myTid());
 
         final HttpWebRequest request = new HttpWebRequest(url, HttpWebRequest.REQUEST_METHOD_GET, updateHeaders(headers));
+        request.setDefaultHeaders(PLATFORM_HEADERS);
+        request.setDeadline(mRequestDeadlineMillis);
         return request.send();
     }
 
@@ -73,21 +86,54 @@ public class WebRequestHandler implements IWebRequestHandler {
                 updateHeaders(headers),
                 content,
                 contentType);
+        request.setDefaultHeaders(PLATFORM_HEADERS);
+        request.setDeadline(mRequestDeadlineMillis);
         return request.send();
     }
 
+    @Override
+    public Future<HttpWebResponse> sendGetAsync(final URL url, final Map<String, String> headers,
+                                                final Callback<HttpWebResponse> callback) {
+        final CallbackFuture<HttpWebResponse> future = new CallbackFuture<>(new Callable<HttpWebResponse>() {
+            @Override
+            public HttpWebResponse call() throws IOException {
+                return sendGet(url, headers);
+            }
+        }, callback);
+        RetryingWebRequest.execute(future);
+        return future;
+    }
+
+    @Override
+    public Future<HttpWebResponse> sendPostAsync(final URL url, final Map<String, String> headers,
+                                                 final byte[] content, final String contentType,
+                                                 final Callback<HttpWebResponse> callback) {
+        final CallbackFuture<HttpWebResponse> future = new CallbackFuture<>(new Callable<HttpWebResponse>() {
+            @Override
+            public HttpWebResponse call() throws IOException {
+                return sendPost(url, headers, content, contentType);
+            }
+        }, callback);
+        RetryingWebRequest.execute(future);
+        return future;
+    }
+
     private Map<String, String> updateHeaders(final Map<String, String> headers) {
 
         if (mRequestCorrelationId != null) {
             headers.put(AuthenticationConstants.OIDC.CLIENT_REQUEST_ID, mRequestCorrelationId.toString());
         }
 
+        return headers;
+    }
+
+    private static Map<String, String> createPlatformHeaders() {
+        final Map<String, String> headers = new HashMap<>();
         headers.put(AuthenticationConstants.OIDC.ADAL_ID_PLATFORM, "Android");
         headers.put(AuthenticationConstants.OIDC.ADAL_ID_VERSION, AuthenticationContext.getVersionName());
-        headers.put(AuthenticationConstants.OIDC.ADAL_ID_OS_VER, "" + Build.VERSION.SDK_INT);
-        headers.put(AuthenticationConstants.OIDC.ADAL_ID_DM, android.os.Build.MODEL);
-
-        return headers;
+        headers.put(AuthenticationConstants.OIDC.ADAL_ID_OS_VER, String.valueOf(Build.VERSION.SDK_INT));
+        headers.put(AuthenticationConstants.OIDC.ADAL_ID_DM, Build.MODEL);
+        return Collections.unmodifiableMap(headers);
     }
 
     /**
@@ -98,4 +144,9 @@ public class WebRequestHandler implements IWebRequestHandler {
     public void setRequestCorrelationId(UUID requestCorrelationId) {
         this.mRequestCorrelationId = requestCorrelationId;
     }
+
+    @Override
+    public void setRequestDeadline(final long deadlineMillis) {
+        this.mRequestDeadlineMillis = deadlineMillis;
+    }
 }
@@ -41,12 +41,14 @@ function AuthenticationContext(authority, validateAuthority) {
  *
  * @param   {String}   authority         Authority url to send code and token requests
  * @param   {Boolean}  validateAuthority Validate authority before sending token request. True by default
+ * @param   {Boolean}  preWarm           Open connections to the authority in background so that the first
+ *                                       token request finds them warm. False by default
  *
  * @returns {Promise}  Promise either fulfilled with newly created authentication context or rejected with error
  */
-AuthenticationContext.createAsync = function (authority, validateAuthority) {
+AuthenticationContext.createAsync = function (authority, validateAuthority, preWarm) {
 
-    checkArgs('s*', 'AuthenticationContext.createAsync', arguments);
+    checkArgs('s**', 'AuthenticationContext.createAsync', arguments);
 
     var d = new Deferred();
 
@@ -54,7 +56,7 @@ AuthenticationContext.createAsync = function (authority, validateAuthority) {
         validateAuthority = true;
     }
 
-    bridge.executeNativeMethod('createAsync', [authority, validateAuthority]).then(function () {
+    bridge.executeNativeMethod('createAsync', [authority, validateAuthority, preWarm === true]).then(function () {
         d.resolve(new AuthenticationContext(authority, validateAuthority));
     }, function(err) {
         d.reject(err);
@@ -110,16 +112,17 @@ AuthenticationContext.prototype.acquireTokenAsync = function (resourceUrl, clien
  * @param   {String}  resourceUrl Resource identifier
  * @param   {String}  clientId    Client (application) identifier
  * @param   {String}  userId      User identifier (optional)
+ * @param   {Number}  timeoutMs   Overall time budget of the call in milliseconds (optional)
  *
  * @returns {Promise} Promise either fulfilled with AuthenticationResult object or rejected with error
  */
-AuthenticationContext.prototype.acquireTokenSilentAsync = function (resourceUrl, clientId, userId) {
+AuthenticationContext.prototype.acquireTokenSilentAsync = function (resourceUrl, clientId, userId, timeoutMs) {
 
-    checkArgs('ssS', 'AuthenticationContext.acquireTokenSilentAsync', arguments);
+    checkArgs('ssS*', 'AuthenticationContext.acquireTokenSilentAsync', arguments);
 
     var d = new Deferred();
 
-    bridge.executeNativeMethod('acquireTokenSilentAsync', [this.authority, this.validateAuthority, resourceUrl, clientId, userId])
+    bridge.executeNativeMethod('acquireTokenSilentAsync', [this.authority, this.validateAuthority, resourceUrl, clientId, userId, timeoutMs || 0])
     .then(function(authResult){
         d.resolve(new AuthenticationResult(authResult));
     }, function(err) {
@@ -129,6 +132,36 @@ AuthenticationContext.prototype.acquireTokenSilentAsync = function (resourceUrl,
     return d;
 };
 
+/**
+ * Acquires tokens for several resources WITHOUT using interactive flow. Tokens found in the cache
+ * are returned as is, the missing ones are acquired together with the multi resource refresh token.
+ * This method guarantees that no UI will be shown to user.
+ *
+ * @param   {String[]} resourceUrls Resource identifiers
+ * @param   {String}   clientId     Client (application) identifier
+ * @param   {String}   userId       User identifier (optional)
+ *
+ * @returns {Promise} Promise either fulfilled with an array of AuthenticationResult objects, in the order of
+ *                    resourceUrls, or rejected with error. Results of the failed resources have errorCode set
+ */
+AuthenticationContext.prototype.acquireTokensSilentAsync = function (resourceUrls, clientId, userId) {
+
+    checkArgs('asS', 'AuthenticationContext.acquireTokensSilentAsync', arguments);
+
+    var d = new Deferred();
+
+    bridge.executeNativeMethod('acquireTokensSilentAsync', [this.authority, this.validateAuthority, resourceUrls, clientId, userId])
+    .then(function(authResults){
+        d.resolve(authResults.map(function(authResult) {
+            return new AuthenticationResult(authResult);
+        }));
+    }, function(err) {
+        d.reject(err);
+    });
+
+    return d;
+};
+
 AuthenticationContext.prototype.tokenCacheClear = function () {
 
     var d = new Deferred();
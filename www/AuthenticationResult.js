@@ -16,6 +16,9 @@ function AuthenticationResult(authResult) {
     this.status = authResult.status;
     this.statusCode = authResult.statusCode;
     this.tenantId = authResult.tenantId;
+    // Only set on the failed results of a batch request
+    this.errorCode = authResult.errorCode;
+    this.errorDescription = authResult.errorDescription;
 
     var jwtToken = authResult.idToken || authResult.accessToken;
     this.userInfo = null;